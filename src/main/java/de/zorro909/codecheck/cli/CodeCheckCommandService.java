@@ -2,12 +2,17 @@ package de.zorro909.codecheck.cli;
 
 import de.zorro909.codecheck.legacy.ValidationCheckPipeline;
 import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetProducer;
 import de.zorro909.codecheck.core.changeset.ChangeSetService;
 import de.zorro909.codecheck.infra.git.GitCommandException;
 import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.core.config.CodeCheckConfig;
 import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
 import de.zorro909.codecheck.core.config.ConfigException;
 import de.zorro909.codecheck.core.config.ConfigOverrides;
+import de.zorro909.codecheck.core.project.JavaParserService;
+import de.zorro909.codecheck.core.profiling.ProfileReport;
+import de.zorro909.codecheck.core.project.SourceOverlay;
 import de.zorro909.codecheck.core.reporting.ModeSeverityPolicy;
 import de.zorro909.codecheck.core.reporting.TerminalDiagnosticRenderer;
 import de.zorro909.codecheck.legacy.selector.FileSelector;
@@ -36,6 +41,8 @@ public class CodeCheckCommandService {
 
     private final ChangeSetService changeSetService;
 
+    private final JavaParserService javaParserService;
+
     private final CodeCheckConfigLoader configLoader;
 
     private final TerminalDiagnosticRenderer diagnosticRenderer;
@@ -47,14 +54,15 @@ public class CodeCheckCommandService {
     @Inject
     public CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, ValidationEngine validationEngine,
-            ChangeSetService changeSetService, CodeCheckConfigLoader configLoader) {
-        this(assistantDaemonController, validationCheckPipeline, validationEngine, changeSetService, configLoader,
-                new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), System.out, System.err);
+            ChangeSetService changeSetService, CodeCheckConfigLoader configLoader,
+            JavaParserService javaParserService) {
+        this(assistantDaemonController, validationCheckPipeline, validationEngine, changeSetService, javaParserService,
+                configLoader, new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), System.out, System.err);
     }
 
     public CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, FileSelector fileSelector) {
-        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector),
+        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector), null,
                 CodeCheckConfigLoader.defaultsOnly(), new TerminalDiagnosticRenderer(new ModeSeverityPolicy()),
                 System.out, System.err);
     }
@@ -62,7 +70,7 @@ public class CodeCheckCommandService {
     CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, FileSelector fileSelector, PrintStream out,
             PrintStream err) {
-        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector),
+        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector), null,
                 CodeCheckConfigLoader.defaultsOnly(), new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), out,
                 err);
     }
@@ -70,32 +78,33 @@ public class CodeCheckCommandService {
     CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, FileSelector fileSelector,
             CodeCheckConfigLoader configLoader, PrintStream out, PrintStream err) {
-        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector), configLoader,
-                new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), out, err);
+        this(assistantDaemonController, validationCheckPipeline, null, fromFileSelector(fileSelector), null,
+                configLoader, new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), out, err);
     }
 
     CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, ChangeSetService changeSetService,
             CodeCheckConfigLoader configLoader, PrintStream out, PrintStream err) {
-        this(assistantDaemonController, validationCheckPipeline, null, changeSetService, configLoader,
+        this(assistantDaemonController, validationCheckPipeline, null, changeSetService, null, configLoader,
                 new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), out, err);
     }
 
     CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, ValidationEngine validationEngine,
             ChangeSetService changeSetService, CodeCheckConfigLoader configLoader, PrintStream out, PrintStream err) {
-        this(assistantDaemonController, validationCheckPipeline, validationEngine, changeSetService, configLoader,
+        this(assistantDaemonController, validationCheckPipeline, validationEngine, changeSetService, null, configLoader,
                 new TerminalDiagnosticRenderer(new ModeSeverityPolicy()), out, err);
     }
 
     CodeCheckCommandService(AssistantDaemonController assistantDaemonController,
             ValidationCheckPipeline validationCheckPipeline, ValidationEngine validationEngine,
-            ChangeSetService changeSetService, CodeCheckConfigLoader configLoader,
+            ChangeSetService changeSetService, JavaParserService javaParserService, CodeCheckConfigLoader configLoader,
             TerminalDiagnosticRenderer diagnosticRenderer, PrintStream out, PrintStream err) {
         this.assistantDaemonController = assistantDaemonController;
         this.validationCheckPipeline = validationCheckPipeline;
         this.validationEngine = validationEngine;
         this.changeSetService = changeSetService;
+        this.javaParserService = javaParserService;
         this.configLoader = configLoader;
         this.diagnosticRenderer = diagnosticRenderer;
         this.out = out;
@@ -117,12 +126,17 @@ public class CodeCheckCommandService {
     }
 
     public CommandOutcome runInteractiveCheck(boolean noExitCode) {
-        if (!loadConfig()) {
+        return runInteractiveCheck(noExitCode, ConfigOverrides.none());
+    }
+
+    public CommandOutcome runInteractiveCheck(boolean noExitCode, ConfigOverrides overrides) {
+        CodeCheckConfig config = loadConfig(overrides);
+        if (config == null) {
             return CommandOutcome.failure();
         }
         try {
             Map<Path, List<ValidationError>> errorsMap = collectErrors(
-                    changeSetService.currentInteractiveCheckChangeSet(), ValidationMode.INTERACTIVE);
+                    changeSetService.currentInteractiveCheckChangeSet(), ValidationMode.INTERACTIVE, config);
             diagnosticRenderer.render(ValidationMode.INTERACTIVE, errorsMap, out);
 
             if (errorsMap.isEmpty()) {
@@ -148,12 +162,21 @@ public class CodeCheckCommandService {
     }
 
     public CommandOutcome runBatchCheck() {
-        return runNonInteractive("batch check", changeSetService::currentInteractiveCheckChangeSet,
-                ValidationMode.BATCH);
+        return runBatchCheck(ConfigOverrides.none());
+    }
+
+    public CommandOutcome runBatchCheck(ConfigOverrides overrides) {
+        return runNonInteractive("batch check", changeSetService::streamInteractiveCheckChangeSet,
+                () -> SourceOverlay.NONE, ValidationMode.BATCH, overrides);
     }
 
     public CommandOutcome runPreCommit() {
-        return runNonInteractive("pre-commit check", changeSetService::preCommitChangeSet, ValidationMode.PRE_COMMIT);
+        return runPreCommit(ConfigOverrides.none());
+    }
+
+    public CommandOutcome runPreCommit(ConfigOverrides overrides) {
+        return runNonInteractive("pre-commit check", changeSetService::streamPreCommitChangeSet,
+                changeSetService::preCommitSources, ValidationMode.PRE_COMMIT, overrides);
     }
 
     public CommandOutcome printStatus() {
@@ -164,6 +187,17 @@ public class CodeCheckCommandService {
         return CommandOutcome.success();
     }
 
+    public void printProfile(ProfileReport report, int top, Path reportFile) {
+        report.printSummary(out, top);
+        try {
+            report.write(reportFile);
+            out.println("Profile report written to " + reportFile.toAbsolutePath());
+        }
+        catch (IOException e) {
+            err.println("Failed to write profile report: " + e.getMessage());
+        }
+    }
+
     public CommandOutcome applyFix(String diagnosticId) {
         if (!loadConfig()) {
             return CommandOutcome.failure();
@@ -178,14 +212,27 @@ public class CodeCheckCommandService {
         }
     }
 
-    private CommandOutcome runNonInteractive(String label, Supplier<ChangeSet> changeSetSupplier, ValidationMode mode) {
-        if (!loadConfig()) {
+    private CommandOutcome runNonInteractive(String label, ChangeSetProducer changeSet,
+            Supplier<SourceOverlay> sourcesSupplier, ValidationMode mode, ConfigOverrides overrides) {
+        CodeCheckConfig config = loadConfig(overrides);
+        if (config == null) {
             return CommandOutcome.failure();
         }
         try {
-            Map<Path, List<ValidationError>> errorsMap = collectErrors(changeSetSupplier.get(), mode);
-            diagnosticRenderer.render(mode, errorsMap, out);
-            return diagnosticRenderer.blocks(mode, errorsMap) ? CommandOutcome.failure() : CommandOutcome.success();
+            TerminalDiagnosticRenderer.Session session = diagnosticRenderer.open(mode, out);
+            if (javaParserService == null) {
+                streamErrors(changeSet, mode, config, session);
+            }
+            else {
+                javaParserService.overlay(sourcesSupplier.get());
+                try {
+                    streamErrors(changeSet, mode, config, session);
+                }
+                finally {
+                    javaParserService.overlay(SourceOverlay.NONE);
+                }
+            }
+            return session.finish() ? CommandOutcome.failure() : CommandOutcome.success();
         }
         catch (IOException e) {
             err.println("Failed to run " + label + ": " + e.getMessage());
@@ -197,10 +244,10 @@ public class CodeCheckCommandService {
         }
     }
 
-    private Map<Path, List<ValidationError>> collectErrors(ChangeSet changeSet, ValidationMode mode)
-            throws IOException {
+    private Map<Path, List<ValidationError>> collectErrors(ChangeSet changeSet, ValidationMode mode,
+            CodeCheckConfig config) throws IOException {
         if (validationEngine != null) {
-            return validationEngine.validate(changeSet, mode)
+            return validationEngine.validate(changeSet, mode, config.validation().effectiveParallelism())
                 .diagnostics()
                 .stream()
                 .map(Diagnostic::toValidationError)
@@ -211,14 +258,32 @@ public class CodeCheckCommandService {
         }
     }
 
+    // Validation starts with the first path git reports instead of waiting for the
+    // whole change set.
+    private void streamErrors(ChangeSetProducer changeSet, ValidationMode mode, CodeCheckConfig config,
+            TerminalDiagnosticRenderer.Session session) throws IOException {
+        if (validationEngine != null) {
+            int parallelism = config.validation().effectiveParallelism();
+            validationEngine.validate(changeSet, mode, parallelism, result -> session
+                .render(result.diagnostics().stream().map(Diagnostic::toValidationError).toList()));
+            return;
+        }
+        try (Stream<Path> changedFiles = changeSet.collect().paths()) {
+            validationCheckPipeline.checkForErrors(changedFiles).values().forEach(session::render);
+        }
+    }
+
     private boolean loadConfig() {
+        return loadConfig(ConfigOverrides.none()) != null;
+    }
+
+    private CodeCheckConfig loadConfig(ConfigOverrides overrides) {
         try {
-            configLoader.load(ConfigOverrides.none());
-            return true;
+            return configLoader.load(overrides);
         }
         catch (ConfigException e) {
             err.println(e.getMessage());
-            return false;
+            return null;
         }
     }
 
@@ -1,6 +1,8 @@
 package de.zorro909.codecheck.cli;
 
 import de.zorro909.codecheck.cli.CodeCheckCommandService;
+import de.zorro909.codecheck.core.config.ConfigOverrides;
+import de.zorro909.codecheck.core.profiling.ValidationProfiler;
 import io.micronaut.configuration.picocli.MicronautFactory;
 import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.env.Environment;
@@ -13,7 +15,9 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.ParentCommand;
 
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 /**
  * Command-line entry point for Git Commit Code Check.
@@ -27,6 +31,9 @@ public class GitCommitCodeCheckCommand implements Callable<Integer> {
     @Inject
     CodeCheckCommandService commandService;
 
+    @Inject
+    ValidationProfiler profiler;
+
     @Getter
     @Option(names = { "-v", "--verbose" }, description = "...", defaultValue = "false")
     boolean verbose;
@@ -59,6 +66,20 @@ public class GitCommitCodeCheckCommand implements Callable<Integer> {
     @Option(names = "--watch", defaultValue = "false")
     boolean watch;
 
+    @Getter
+    @Option(names = "--parallelism",
+            description = "Number of files validated concurrently; 0 uses all available processors.")
+    Integer parallelism;
+
+    @Getter
+    @Option(names = "--profile", arity = "0..1", fallbackValue = "codecheck-profile.json", paramLabel = "<report>",
+            description = "Time parses, symbol resolution and rules, print the slowest and write a JSON report.")
+    Path profileReport;
+
+    @Getter
+    @Option(names = "--profile-top", defaultValue = "10", description = "Number of entries in the profile summary.")
+    int profileTop;
+
     public static void main(String[] args) {
         try (ApplicationContext context = ApplicationContext.builder(GitCommitCodeCheckCommand.class, Environment.CLI)
             .singletons((Object) args)
@@ -76,6 +97,20 @@ public class GitCommitCodeCheckCommand implements Callable<Integer> {
         return commandService.startAssistantDaemon().exitCode();
     }
 
+    ConfigOverrides configOverrides() {
+        return new ConfigOverrides(null, null, null, parallelism);
+    }
+
+    int profiled(Supplier<CommandOutcome> command) {
+        if (profileReport == null) {
+            return command.get().exitCode();
+        }
+        profiler.enable();
+        CommandOutcome outcome = command.get();
+        commandService.printProfile(profiler.report(), profileTop, profileReport);
+        return outcome.exitCode();
+    }
+
     @Command(name = "check", description = "Run a one-shot code check.")
     static class CheckCommand implements Callable<Integer> {
 
@@ -88,9 +123,10 @@ public class GitCommitCodeCheckCommand implements Callable<Integer> {
         @Override
         public Integer call() {
             if (batch) {
-                return parent.commandService.runBatchCheck().exitCode();
+                return parent.profiled(() -> parent.commandService.runBatchCheck(parent.configOverrides()));
             }
-            return parent.commandService.runInteractiveCheck(parent.noExitCode).exitCode();
+            return parent
+                .profiled(() -> parent.commandService.runInteractiveCheck(parent.noExitCode, parent.configOverrides()));
         }
 
     }
@@ -103,7 +139,7 @@ public class GitCommitCodeCheckCommand implements Callable<Integer> {
 
         @Override
         public Integer call() {
-            return parent.commandService.runPreCommit().exitCode();
+            return parent.profiled(() -> parent.commandService.runPreCommit(parent.configOverrides()));
         }
 
     }
@@ -7,11 +7,21 @@ import de.zorro909.codecheck.daemon.DaemonMetadata;
 import de.zorro909.codecheck.daemon.DaemonProcessRegistry;
 import jakarta.inject.Singleton;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 @Singleton
 public class LocalAssistantDaemonController implements AssistantDaemonController {
 
+    private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(2);
+
     private final DaemonServer daemonServer;
 
     private final DaemonProcessRegistry daemonProcessRegistry;
@@ -45,10 +55,34 @@ public class LocalAssistantDaemonController implements AssistantDaemonController
 
     @Override
     public void printStatus(PrintStream out) {
-        daemonProcessRegistry.aliveMetadata()
-            .ifPresentOrElse(
-                    metadata -> out.println("Assistant daemon running on " + metadata.host() + ":" + metadata.port()),
-                    () -> out.println("Assistant daemon is not running."));
+        daemonProcessRegistry.aliveMetadata().ifPresentOrElse(metadata -> {
+            out.println("Assistant daemon running on " + metadata.host() + ":" + metadata.port());
+            changedFiles(metadata).ifPresent(files -> out.println("Tracking " + files.size() + " changed file(s)"));
+        }, () -> out.println("Assistant daemon is not running."));
+    }
+
+    // Read from the daemon's live change set, so status does not run git itself.
+    private Optional<List<String>> changedFiles(DaemonMetadata metadata) {
+        HttpRequest request = HttpRequest
+            .newBuilder(URI.create("http://" + metadata.host() + ":" + metadata.port() + "/changeset"))
+            .header("X-CodeCheck-Token", metadata.token())
+            .timeout(STATUS_TIMEOUT)
+            .GET()
+            .build();
+        try (HttpClient client = HttpClient.newBuilder().connectTimeout(STATUS_TIMEOUT).build()) {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Optional.empty();
+            }
+            return Optional.of(response.body().lines().filter(line -> !line.isBlank()).toList());
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
     }
 
     @Override
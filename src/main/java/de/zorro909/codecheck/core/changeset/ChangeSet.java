@@ -15,9 +15,12 @@ public record ChangeSet(List<ChangeSetEntry> entries) {
     }
 
     public Stream<Path> paths() {
-        return entries.stream()
-                      .filter(entry -> !entry.deleted())
-                      .map(ChangeSetEntry::path)
-                      .distinct();
+        return entries.stream().filter(entry -> !entry.deleted()).map(ChangeSetEntry::path).distinct();
+    }
+
+    // Renames and copies whose source path is known, so state kept for the source can
+    // be carried over instead of being rebuilt.
+    public Stream<ChangeSetEntry> moves() {
+        return entries.stream().filter(entry -> !entry.deleted()).filter(entry -> entry.renamed() || entry.copied());
     }
 }
@@ -1,12 +1,22 @@
 package de.zorro909.codecheck.core.changeset;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
-public record ChangeSetEntry(Path path,
-                             GitFileStatus status,
-                             boolean staged,
-                             boolean unstaged,
-                             boolean untracked,
-                             boolean deleted,
-                             String originReason) {
+// previousPath is the source git paired this entry with for a rename or copy.
+public record ChangeSetEntry(Path path, GitFileStatus status, boolean staged, boolean unstaged, boolean untracked,
+        boolean deleted, String originReason, Optional<Path> previousPath) {
+
+    public ChangeSetEntry(Path path, GitFileStatus status, boolean staged, boolean unstaged, boolean untracked,
+            boolean deleted, String originReason) {
+        this(path, status, staged, unstaged, untracked, deleted, originReason, Optional.empty());
+    }
+
+    public boolean renamed() {
+        return status == GitFileStatus.RENAMED && previousPath.isPresent();
+    }
+
+    public boolean copied() {
+        return status == GitFileStatus.COPIED && previousPath.isPresent();
+    }
 }
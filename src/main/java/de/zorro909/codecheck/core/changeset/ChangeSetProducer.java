@@ -0,0 +1,20 @@
+package de.zorro909.codecheck.core.changeset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Emits change-set entries as they are discovered, so validation can start on the first
+// path while git is still reporting the rest. A path may be emitted more than once.
+@FunctionalInterface
+public interface ChangeSetProducer {
+
+    void produce(Consumer<ChangeSetEntry> sink);
+
+    default ChangeSet collect() {
+        List<ChangeSetEntry> entries = new ArrayList<>();
+        produce(entries::add);
+        return new ChangeSet(entries);
+    }
+
+}
@@ -1,7 +1,10 @@
 package de.zorro909.codecheck.core.changeset;
 
+import de.zorro909.codecheck.core.project.SourceOverlay;
+
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 public interface ChangeSetService {
 
@@ -12,4 +15,18 @@ public interface ChangeSetService {
     ChangeSet preCommitChangeSet();
 
     ChangeSet explicitFiles(Collection<Path> files);
+
+    default void streamInteractiveCheckChangeSet(Consumer<ChangeSetEntry> sink) {
+        currentInteractiveCheckChangeSet().entries().forEach(sink);
+    }
+
+    default void streamPreCommitChangeSet(Consumer<ChangeSetEntry> sink) {
+        preCommitChangeSet().entries().forEach(sink);
+    }
+
+    // What a commit would contain for the pre-commit change set, if it differs from disk.
+    default SourceOverlay preCommitSources() {
+        return SourceOverlay.NONE;
+    }
+
 }
@@ -0,0 +1,14 @@
+package de.zorro909.codecheck.core.changeset;
+
+import java.io.IOException;
+
+// Reports changes to the repository state a change set is derived from apart from the
+// work tree: the index, HEAD and the refs.
+@FunctionalInterface
+public interface RepositoryStateWatcher {
+
+    // Throws when the state cannot be watched, and calls onFailure when a running watch
+    // breaks; callers must then assume the state may change at any time.
+    AutoCloseable watch(Runnable onChange, Runnable onFailure) throws IOException;
+
+}
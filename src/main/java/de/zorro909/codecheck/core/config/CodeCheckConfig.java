@@ -3,37 +3,43 @@ package de.zorro909.codecheck.core.config;
 import java.time.Duration;
 import java.util.List;
 
-public record CodeCheckConfig(Git git, Daemon daemon, JavaProject javaProject, Maven maven, Coverage coverage) {
+public record CodeCheckConfig(Git git, Daemon daemon, JavaProject javaProject, Maven maven, Coverage coverage,
+        Validation validation) {
 
     public static CodeCheckConfig defaults() {
         return new CodeCheckConfig(new Git(List.of("develop", "main", "master"), "release/.*", true),
                 new Daemon(Duration.ofMinutes(30), Duration.ofSeconds(5), Transport.WEBSOCKET),
-                new JavaProject(25, GeneratedSourceDetection.MAVEN_DEFAULTS),
+                new JavaProject(25, GeneratedSourceDetection.MAVEN_DEFAULTS, 256),
                 new Maven(MavenRunner.DOCKER_MVND, true,
                         new Docker("team/mvnd-jdk25:latest", Duration.ofMinutes(10), true),
                         List.of("test", "jacoco:report"), List.of(), "-Dtest"),
                 new Coverage(CoverageProvider.JACOCO, CoverageFreshnessMode.REUSE_IF_FRESH,
-                        List.of("target/site/jacoco/jacoco.xml", "*/target/site/jacoco/jacoco.xml")));
+                        List.of("target/site/jacoco/jacoco.xml", "*/target/site/jacoco/jacoco.xml")),
+                new Validation(1, true));
     }
 
     public CodeCheckConfig withGit(Git git) {
-        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage);
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
     }
 
     public CodeCheckConfig withDaemon(Daemon daemon) {
-        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage);
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
     }
 
     public CodeCheckConfig withJavaProject(JavaProject javaProject) {
-        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage);
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
     }
 
     public CodeCheckConfig withMaven(Maven maven) {
-        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage);
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
     }
 
     public CodeCheckConfig withCoverage(Coverage coverage) {
-        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage);
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
+    }
+
+    public CodeCheckConfig withValidation(Validation validation) {
+        return new CodeCheckConfig(git, daemon, javaProject, maven, coverage, validation);
     }
 
     public record Git(List<String> mainBranches, String releaseBranchPattern, boolean restageAfterFix) {
@@ -42,7 +48,12 @@ public record CodeCheckConfig(Git git, Daemon daemon, JavaProject javaProject, M
     public record Daemon(Duration inactivityTimeout, Duration saveDebounce, Transport transport) {
     }
 
-    public record JavaProject(int languageLevel, GeneratedSourceDetection generatedSourceDetection) {
+    public record JavaProject(int languageLevel, GeneratedSourceDetection generatedSourceDetection,
+            int parseCacheMegabytes) {
+
+        public long parseCacheBytes() {
+            return parseCacheMegabytes * 1024L * 1024L;
+        }
     }
 
     public record Maven(MavenRunner runner, boolean preferMvnd, Docker docker, List<String> goals, List<String> args,
@@ -55,6 +66,14 @@ public record CodeCheckConfig(Git git, Daemon daemon, JavaProject javaProject, M
     public record Coverage(CoverageProvider provider, CoverageFreshnessMode freshnessMode, List<String> reportPaths) {
     }
 
+    public record Validation(int parallelism, boolean diagnosticCache) {
+
+        // 0 selects every available processor, 1 validates sequentially.
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
     public enum Transport {
 
         WEBSOCKET
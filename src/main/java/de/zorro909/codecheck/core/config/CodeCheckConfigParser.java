@@ -22,13 +22,14 @@ import java.util.regex.PatternSyntaxException;
 
 final class CodeCheckConfigParser {
 
-    private static final Set<String> ROOT_KEYS = Set.of("git", "daemon", "java", "maven", "coverage");
+    private static final Set<String> ROOT_KEYS = Set.of("git", "daemon", "java", "maven", "coverage", "validation");
 
     private static final Set<String> GIT_KEYS = Set.of("mainBranches", "releaseBranchPattern", "restageAfterFix");
 
     private static final Set<String> DAEMON_KEYS = Set.of("inactivityTimeout", "saveDebounce", "transport");
 
-    private static final Set<String> JAVA_KEYS = Set.of("languageLevel", "generatedSourceDetection");
+    private static final Set<String> JAVA_KEYS = Set.of("languageLevel", "generatedSourceDetection",
+            "parseCacheMegabytes");
 
     private static final Set<String> MAVEN_KEYS = Set.of("runner", "preferMvnd", "docker", "goals", "args",
             "targetedTestProperty");
@@ -37,6 +38,8 @@ final class CodeCheckConfigParser {
 
     private static final Set<String> COVERAGE_KEYS = Set.of("provider", "freshnessMode", "reportPaths");
 
+    private static final Set<String> VALIDATION_KEYS = Set.of("parallelism", "diagnosticCache");
+
     private final Yaml yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
 
     private final Consumer<String> warningConsumer;
@@ -91,6 +94,10 @@ final class CodeCheckConfigParser {
         if (coverage != null) {
             config = config.withCoverage(applyCoverage(configPath, coverage, config.coverage()));
         }
+        Map<String, Object> validation = object(rootObject, "validation", configPath, "validation");
+        if (validation != null) {
+            config = config.withValidation(applyValidation(configPath, validation, config.validation()));
+        }
         return config;
     }
 
@@ -125,8 +132,13 @@ final class CodeCheckConfigParser {
         CodeCheckConfig.GeneratedSourceDetection generatedSourceDetection = enumValue(node, "generatedSourceDetection",
                 configPath, "java.generatedSourceDetection", CodeCheckConfig.GeneratedSourceDetection.class,
                 base.generatedSourceDetection());
+        Integer parseCacheMegabytes = integer(node, "parseCacheMegabytes", configPath, "java.parseCacheMegabytes");
+        if (parseCacheMegabytes != null && parseCacheMegabytes < 1) {
+            throw invalid(configPath, "java.parseCacheMegabytes", "must be at least 1");
+        }
         return new CodeCheckConfig.JavaProject(languageLevel == null ? base.languageLevel() : languageLevel,
-                generatedSourceDetection);
+                generatedSourceDetection,
+                parseCacheMegabytes == null ? base.parseCacheMegabytes() : parseCacheMegabytes);
     }
 
     private CodeCheckConfig.Maven applyMaven(Path configPath, Map<String, Object> node, CodeCheckConfig.Maven base) {
@@ -166,6 +178,18 @@ final class CodeCheckConfigParser {
         return new CodeCheckConfig.Coverage(provider, freshnessMode, reportPaths);
     }
 
+    private CodeCheckConfig.Validation applyValidation(Path configPath, Map<String, Object> node,
+            CodeCheckConfig.Validation base) {
+        warnUnknownKeys(node, VALIDATION_KEYS, configPath, "validation");
+        Integer parallelism = integer(node, "parallelism", configPath, "validation.parallelism");
+        if (parallelism != null && parallelism < 0) {
+            throw invalid(configPath, "validation.parallelism", "must not be negative");
+        }
+        Boolean diagnosticCache = bool(node, "diagnosticCache", configPath, "validation.diagnosticCache");
+        return new CodeCheckConfig.Validation(parallelism == null ? base.parallelism() : parallelism,
+                diagnosticCache == null ? base.diagnosticCache() : diagnosticCache);
+    }
+
     private Map<String, Object> object(Map<String, Object> parent, String field, Path configPath, String path) {
         Object node = parent.get(field);
         if (node == null) {
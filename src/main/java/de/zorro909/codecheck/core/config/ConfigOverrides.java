@@ -3,10 +3,11 @@ package de.zorro909.codecheck.core.config;
 import java.time.Duration;
 import java.util.List;
 
-public record ConfigOverrides(List<String> mainBranches, Duration inactivityTimeout, Duration saveDebounce) {
+public record ConfigOverrides(List<String> mainBranches, Duration inactivityTimeout, Duration saveDebounce,
+        Integer parallelism) {
 
     public static ConfigOverrides none() {
-        return new ConfigOverrides(null, null, null);
+        return new ConfigOverrides(null, null, null, null);
     }
 
     public CodeCheckConfig apply(CodeCheckConfig config) {
@@ -20,6 +21,10 @@ public record ConfigOverrides(List<String> mainBranches, Duration inactivityTime
                     inactivityTimeout == null ? result.daemon().inactivityTimeout() : inactivityTimeout,
                     saveDebounce == null ? result.daemon().saveDebounce() : saveDebounce, result.daemon().transport()));
         }
+        if (parallelism != null) {
+            result = result
+                .withValidation(new CodeCheckConfig.Validation(parallelism, result.validation().diagnosticCache()));
+        }
         return result;
     }
 }
@@ -8,6 +8,10 @@ import java.nio.file.Path;
 public record Diagnostic(Path file, String message, SourcePosition position, ValidationError.Severity severity,
         DiagnosticKind kind, RuleId ruleId) {
 
+    public Diagnostic withFile(Path file) {
+        return new Diagnostic(file, message, position, severity, kind, ruleId);
+    }
+
     public ValidationError toValidationError() {
         return new ValidationError(file, message, position.toJavaParserPosition(), severity);
     }
@@ -0,0 +1,5 @@
+package de.zorro909.codecheck.core.profiling;
+
+public record ProfileEntry(ProfilePhase phase, String subject, long calls, long wallNanos, long cpuNanos,
+        long allocatedBytes) {
+}
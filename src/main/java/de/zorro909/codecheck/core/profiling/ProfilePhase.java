@@ -0,0 +1,7 @@
+package de.zorro909.codecheck.core.profiling;
+
+public enum ProfilePhase {
+
+    PARSE, SYMBOL_RESOLUTION, RULE
+
+}
@@ -0,0 +1,92 @@
+package de.zorro909.codecheck.core.profiling;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public record ProfileReport(List<ProfileEntry> bySubject, List<ProfileEntry> byFile) {
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private static final double BYTES_PER_MEGABYTE = 1024d * 1024d;
+
+    public ProfileReport {
+        bySubject = List.copyOf(bySubject);
+        byFile = List.copyOf(byFile);
+    }
+
+    public void printSummary(PrintStream out, int top) {
+        out.println("Profile (top " + top + " by self wall time; parses a rule triggers count as parses):");
+        printSection(out, "Rules and parser passes", bySubject, top);
+        printSection(out, "Files", byFile, top);
+    }
+
+    public void write(Path report) throws IOException {
+        Path parent = report.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(report, toJson());
+    }
+
+    public String toJson() {
+        return """
+                {
+                  "bySubject": [%s],
+                  "byFile": [%s]
+                }
+                """.formatted(json(bySubject), json(byFile));
+    }
+
+    private static void printSection(PrintStream out, String title, List<ProfileEntry> entries, int top) {
+        out.println("  " + title + ":");
+        entries.stream().limit(top).map(ProfileReport::summaryLine).forEach(out::println);
+    }
+
+    private static String summaryLine(ProfileEntry entry) {
+        return String.format(Locale.ROOT, "    %-17s %9.1f ms wall %9.1f ms cpu %9.1f MB %6d x  %s", entry.phase(),
+                entry.wallNanos() / NANOS_PER_MILLI, entry.cpuNanos() / NANOS_PER_MILLI,
+                entry.allocatedBytes() / BYTES_PER_MEGABYTE, entry.calls(), entry.subject());
+    }
+
+    private static String json(List<ProfileEntry> entries) {
+        if (entries.isEmpty()) {
+            return "";
+        }
+        return entries.stream().map(ProfileReport::json).collect(Collectors.joining(",\n", "\n", "\n  "));
+    }
+
+    private static String json(ProfileEntry entry) {
+        return ("    {\"phase\": \"%s\", \"subject\": \"%s\", \"calls\": %d, \"wallNanos\": %d, "
+                + "\"cpuNanos\": %d, \"allocatedBytes\": %d}")
+            .formatted(entry.phase(), escape(entry.subject()), entry.calls(), entry.wallNanos(), entry.cpuNanos(),
+                    entry.allocatedBytes());
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append("\\u%04x".formatted((int) c));
+                    }
+                    else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+}
@@ -0,0 +1,139 @@
+package de.zorro909.codecheck.core.profiling;
+
+import jakarta.inject.Singleton;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Singleton
+public class ValidationProfiler {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final ThreadLocal<Deque<Measurement>> OPEN = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Map<Key, Totals> bySubject = new ConcurrentHashMap<>();
+
+    private final Map<Key, Totals> byFile = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+
+    public void enable() {
+        enabled = true;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // Measurements report self time: whatever a nested measurement on the same thread
+    // took, e.g. a parse triggered by a rule, is counted for the nested subject only.
+    public <T> T measure(ProfilePhase phase, String subject, Path file, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Deque<Measurement> open = OPEN.get();
+        Measurement measurement = new Measurement();
+        open.push(measurement);
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuTime();
+        long allocatedStart = allocatedBytes();
+        try {
+            return work.get();
+        }
+        finally {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = Math.max(0, cpuTime() - cpuStart);
+            long allocated = Math.max(0, allocatedBytes() - allocatedStart);
+            open.pop();
+            Measurement parent = open.peek();
+            if (parent != null) {
+                parent.nested(wall, cpu, allocated);
+            }
+            long selfWall = Math.max(0, wall - measurement.wall);
+            long selfCpu = Math.max(0, cpu - measurement.cpu);
+            long selfAllocated = Math.max(0, allocated - measurement.allocated);
+            bySubject.computeIfAbsent(new Key(phase, subject), _ -> new Totals()).add(selfWall, selfCpu, selfAllocated);
+            byFile.computeIfAbsent(new Key(phase, file.toString()), _ -> new Totals())
+                .add(selfWall, selfCpu, selfAllocated);
+        }
+    }
+
+    public ProfileReport report() {
+        return new ProfileReport(entries(bySubject), entries(byFile));
+    }
+
+    private static List<ProfileEntry> entries(Map<Key, Totals> totals) {
+        return totals.entrySet()
+            .stream()
+            .map(entry -> entry.getValue().toEntry(entry.getKey()))
+            .sorted(Comparator.comparingLong(ProfileEntry::wallNanos).reversed())
+            .toList();
+    }
+
+    // Both counters are per platform thread; virtual threads report -1 and count as 0.
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? Math.max(0, THREADS.getCurrentThreadCpuTime()) : 0;
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            return Math.max(0, threads.getCurrentThreadAllocatedBytes());
+        }
+        return 0;
+    }
+
+    private record Key(ProfilePhase phase, String subject) {
+    }
+
+    // Totals of the measurements nested directly inside an open one.
+    private static final class Measurement {
+
+        private long wall;
+
+        private long cpu;
+
+        private long allocated;
+
+        private void nested(long wall, long cpu, long allocated) {
+            this.wall += wall;
+            this.cpu += cpu;
+            this.allocated += allocated;
+        }
+
+    }
+
+    private static final class Totals {
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder wallNanos = new LongAdder();
+
+        private final LongAdder cpuNanos = new LongAdder();
+
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private void add(long wall, long cpu, long allocated) {
+            calls.increment();
+            wallNanos.add(wall);
+            cpuNanos.add(cpu);
+            allocatedBytes.add(allocated);
+        }
+
+        private ProfileEntry toEntry(Key key) {
+            return new ProfileEntry(key.phase(), key.subject(), calls.sum(), wallNanos.sum(), cpuNanos.sum(),
+                    allocatedBytes.sum());
+        }
+
+    }
+
+}
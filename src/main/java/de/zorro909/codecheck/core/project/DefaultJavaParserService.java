@@ -9,44 +9,168 @@ import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
 import de.zorro909.codecheck.core.diagnostic.ValidationError;
 import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 import de.zorro909.codecheck.core.diagnostic.DiagnosticKind;
 import de.zorro909.codecheck.core.validation.rule.RuleId;
 import de.zorro909.codecheck.core.diagnostic.SourcePosition;
+import de.zorro909.codecheck.core.profiling.ProfilePhase;
+import de.zorro909.codecheck.core.profiling.ValidationProfiler;
+import de.zorro909.codecheck.core.validation.DependencyScope;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Singleton
 public class DefaultJavaParserService implements JavaParserService {
 
     private static final RuleId JAVA_PARSER_RULE = new RuleId("java.parser");
 
+    // Rough retained size of a JavaParser AST with tokens and resolution state per byte
+    // of source; only used to weigh cache entries against the configured budget.
+    private static final long ESTIMATED_AST_BYTES_PER_SOURCE_BYTE = 40;
+
+    private static final int PARSE_LOCK_STRIPES = 64;
+
     private final ProjectModelService projectModelService;
 
-    private final ConcurrentMap<Path, ParseOutcome> parseCache = new ConcurrentHashMap<>();
+    private final CodeCheckConfigLoader configLoader;
+
+    private final ValidationProfiler profiler;
+
+    private final Object[] parseLocks = new Object[PARSE_LOCK_STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
 
     private final ConcurrentMap<ModuleId, JavaParser> parserCache = new ConcurrentHashMap<>();
 
+    private volatile WeightedLruCache<ParseKey, CachedParse> parseCache;
+
+    private volatile SourceOverlay overlay = SourceOverlay.NONE;
+
+    private volatile ProjectTypeSolver typeSolver;
+
     public DefaultJavaParserService(ProjectModelService projectModelService) {
+        this(projectModelService, CodeCheckConfigLoader.defaultsOnly());
+    }
+
+    public DefaultJavaParserService(ProjectModelService projectModelService, CodeCheckConfigLoader configLoader) {
+        this(projectModelService, configLoader, new ValidationProfiler());
+    }
+
+    @Inject
+    public DefaultJavaParserService(ProjectModelService projectModelService, CodeCheckConfigLoader configLoader,
+            ValidationProfiler profiler) {
         this.projectModelService = projectModelService;
+        this.configLoader = configLoader;
+        this.profiler = profiler;
+        Arrays.setAll(parseLocks, _ -> new Object());
     }
 
     @Override
     public ParseOutcome parse(Path file) {
+        return cachedParse(file.toAbsolutePath().normalize()).outcome();
+    }
+
+    // Symbol resolution is the expensive part of parsing, so it only runs for rules that
+    // ask for it and is then kept with the parse of the same content version.
+    @Override
+    public List<Diagnostic> symbolDiagnostics(Path file) {
         Path absolute = file.toAbsolutePath().normalize();
-        return parseCache.computeIfAbsent(absolute, this::parseUncached);
+        CachedParse parsed = cachedParse(absolute);
+        Optional<CompilationUnit> compilationUnit = parsed.outcome().compilationUnit();
+        if (compilationUnit.isEmpty()) {
+            return List.of();
+        }
+        SymbolResolution resolution = parsed.symbolResolution;
+        if (resolution == null) {
+            Set<Path> read = ConcurrentHashMap.newKeySet();
+            List<Diagnostic> diagnostics = profiler.measure(ProfilePhase.SYMBOL_RESOLUTION, JAVA_PARSER_RULE.value(),
+                    absolute, () -> DependencyScope.recording(read::add, () -> withSymbolResolution(absolute,
+                            () -> symbolDiagnostics(absolute, compilationUnit.get()))));
+            resolution = new SymbolResolution(diagnostics, Set.copyOf(read));
+            parsed.symbolResolution = resolution;
+        }
+        // A reused result still depends on the files its resolution read.
+        resolution.dependencies().forEach(DependencyScope::record);
+        return resolution.diagnostics();
+    }
+
+    private CachedParse cachedParse(Path absolute) {
+        Optional<SourceOverlay.Source> source = overlay.source(absolute);
+        if (source.isPresent()) {
+            return cachedParse(absolute, source.get());
+        }
+        WeightedLruCache<ParseKey, CachedParse> cache = parseCache();
+        ParseKey key = new ParseKey(absolute, null);
+        // Striped locks keep concurrent rules from parsing the same file twice without
+        // holding the cache lock during a parse.
+        synchronized (parseLocks[Math.floorMod(absolute.hashCode(), PARSE_LOCK_STRIPES)]) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+                CachedParse cached = cache.get(key);
+                CachedParse current = current(absolute, attributes, cached);
+                if (current != cached) {
+                    cache.put(key, current);
+                }
+                return current;
+            }
+            catch (IOException e) {
+                cache.remove(key);
+                return new CachedParse(null, failure(absolute, e.getMessage()), 0);
+            }
+        }
+    }
+
+    // Overlay content is immutable per content id, so its parse never needs revalidation
+    // and the content itself is only fetched on a miss.
+    private CachedParse cachedParse(Path absolute, SourceOverlay.Source source) {
+        WeightedLruCache<ParseKey, CachedParse> cache = parseCache();
+        ParseKey key = new ParseKey(absolute, source.contentId());
+        synchronized (parseLocks[Math.floorMod(absolute.hashCode(), PARSE_LOCK_STRIPES)]) {
+            CachedParse cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            byte[] content;
+            try {
+                content = source.content().get();
+            }
+            catch (RuntimeException e) {
+                return new CachedParse(null, failure(absolute, e.getMessage()), 0);
+            }
+            ParseOutcome outcome = profiler.measure(ProfilePhase.PARSE, JAVA_PARSER_RULE.value(), absolute,
+                    () -> parseUncached(absolute, content));
+            CachedParse parsed = new CachedParse(null, outcome, content.length * ESTIMATED_AST_BYTES_PER_SOURCE_BYTE);
+            cache.put(key, parsed);
+            return parsed;
+        }
+    }
+
+    public ParseCacheStats cacheStats() {
+        WeightedLruCache<ParseKey, CachedParse> cache = parseCache();
+        return new ParseCacheStats(hits.sum(), misses.sum(), cache.evictions(), cache.size(), cache.weight());
     }
 
     @Override
@@ -56,7 +180,22 @@ public class DefaultJavaParserService implements JavaParserService {
 
     @Override
     public void invalidate(Path file) {
-        parseCache.remove(file.toAbsolutePath().normalize());
+        Path absolute = file.toAbsolutePath().normalize();
+        // A deleted file keeps its parse until it is read again or evicted, so a rename
+        // reported by git afterwards can still carry it over.
+        if (Files.exists(absolute)) {
+            parseCache().remove(new ParseKey(absolute, null));
+        }
+        projectModelService.typeIndex().update(absolute);
+        ProjectTypeSolver solver = typeSolver;
+        if (solver != null) {
+            solver.invalidate(absolute);
+        }
+        // Symbol results of files that looked this path up, or listed the package it was
+        // added to or removed from, may resolve differently now.
+        Path directory = absolute.getParent();
+        parseCache().forEachValue(parsed -> parsed.dropSymbolResolutionIf(
+                dependencies -> dependencies.contains(absolute) || dependencies.contains(directory)));
     }
 
     @Override
@@ -67,48 +206,156 @@ public class DefaultJavaParserService implements JavaParserService {
             .stream()
             .filter(module -> module.id().equals(moduleId))
             .findFirst()
-            .ifPresent(module -> parseCache.keySet().removeIf(module::owns));
+            .ifPresent(module -> parseCache().removeIf(key -> module.owns(key.file())));
+        ProjectTypeSolver solver = typeSolver;
+        if (solver != null) {
+            solver.invalidateAll();
+        }
+        parseCache().forEachValue(parsed -> parsed.dropSymbolResolutionIf(_ -> true));
+    }
+
+    // Only renames qualify: for a copy the source is still parsed under its own path
+    // and shares nothing with the new file.
+    @Override
+    public void migrate(Path previous, Path file) {
+        Path source = previous.toAbsolutePath().normalize();
+        Path target = file.toAbsolutePath().normalize();
+        WeightedLruCache<ParseKey, CachedParse> cache = parseCache();
+        ParseKey sourceKey = new ParseKey(source, null);
+        CachedParse cached = cache.get(sourceKey);
+        if (cached == null || cached.version() == null || Files.exists(source)) {
+            return;
+        }
+        synchronized (parseLocks[Math.floorMod(target.hashCode(), PARSE_LOCK_STRIPES)]) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+                SourceVersion version = SourceVersion.of(attributes, Files.readAllBytes(target));
+                if (version.sameContent(cached.version())) {
+                    cache.put(new ParseKey(target, null), cached.movedTo(target, version));
+                    cache.remove(sourceKey);
+                }
+            }
+            catch (IOException e) {
+                // The next parse of the target reads it from scratch.
+            }
+        }
+    }
+
+    @Override
+    public void overlay(SourceOverlay overlay) {
+        this.overlay = overlay;
+    }
+
+    @Override
+    public SourceOverlay currentOverlay() {
+        return overlay;
     }
 
-    private ParseOutcome parseUncached(Path file) {
+    @Override
+    public <T> T withSymbolResolution(Path file, Supplier<T> resolution) {
         ProjectModel model = projectModelService.currentModel();
-        MavenModule module = model.moduleFor(file).orElseGet(() -> model.modules().getFirst());
+        parserFor(moduleFor(file, model), model);
+        // Resolution of every module goes through the shared type solver and its caches.
+        // It runs one file at a time: JavaParser's solvers and facades are not thread
+        // safe, and the memoized declarations point back at this solver, so per-worker
+        // solvers would still share them. The result is kept with the parse, so a file
+        // only waits here for its first resolution; parsing still runs in parallel.
+        ProjectTypeSolver solver = typeSolver();
+        synchronized (solver) {
+            return resolution.get();
+        }
+    }
+
+    // A touched but unchanged file only costs a hash; the parse is reused as long as
+    // the content is identical.
+    private CachedParse current(Path file, BasicFileAttributes attributes, CachedParse cached) throws IOException {
+        if (cached != null && cached.version().unchanged(attributes)) {
+            hits.increment();
+            return cached;
+        }
+        byte[] content = Files.readAllBytes(file);
+        SourceVersion version = SourceVersion.of(attributes, content);
+        long weight = content.length * ESTIMATED_AST_BYTES_PER_SOURCE_BYTE;
+        if (cached != null && version.sameContent(cached.version())) {
+            hits.increment();
+            return cached.withVersion(version, weight);
+        }
+        misses.increment();
+        ParseOutcome outcome = profiler.measure(ProfilePhase.PARSE, JAVA_PARSER_RULE.value(), file,
+                () -> parseUncached(file, content));
+        return new CachedParse(version, outcome, weight);
+    }
+
+    private WeightedLruCache<ParseKey, CachedParse> parseCache() {
+        WeightedLruCache<ParseKey, CachedParse> cache = parseCache;
+        if (cache == null) {
+            synchronized (parseLocks) {
+                cache = parseCache;
+                if (cache == null) {
+                    cache = new WeightedLruCache<>(configLoader.load().javaProject().parseCacheBytes(),
+                            CachedParse::weight);
+                    parseCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private ParseOutcome parseUncached(Path file, byte[] content) {
+        ProjectModel model = projectModelService.currentModel();
+        MavenModule module = moduleFor(file, model);
         try {
-            ParseResult<CompilationUnit> result = parserFor(module, model).parse(file);
-            if (!result.isSuccessful() || result.getResult().isEmpty()) {
-                return new ParseOutcome(file, Optional.empty(), parseDiagnostics(file, result));
+            JavaParser parser = parserFor(module, model);
+            // JavaParser is not thread-safe, so parsing is serialized per module parser.
+            synchronized (parser) {
+                Charset encoding = parser.getParserConfiguration().getCharacterEncoding();
+                ParseResult<CompilationUnit> result = parser.parse(new ByteArrayInputStream(content), encoding);
+                result.getResult().ifPresent(compilationUnit -> compilationUnit.setStorage(file, encoding));
+                if (!result.isSuccessful() || result.getResult().isEmpty()) {
+                    return new ParseOutcome(file, Optional.empty(), parseDiagnostics(file, result));
+                }
+                return new ParseOutcome(file, result.getResult(), parseDiagnostics(file, result));
             }
-            CompilationUnit compilationUnit = result.getResult().get();
-            List<Diagnostic> diagnostics = new ArrayList<>();
-            diagnostics.addAll(parseDiagnostics(file, result));
-            diagnostics.addAll(symbolDiagnostics(file, compilationUnit));
-            return new ParseOutcome(file, Optional.of(compilationUnit), diagnostics);
         }
         catch (Exception e) {
-            return new ParseOutcome(file, Optional.empty(),
-                    List.of(new Diagnostic(file, "Failure parsing java file: " + e.getMessage(),
-                            new SourcePosition(Position.FIRST_LINE, Position.FIRST_COLUMN),
-                            ValidationError.Severity.HIGH, DiagnosticKind.PARSE_ERROR, JAVA_PARSER_RULE)));
+            return failure(file, e.getMessage());
         }
     }
 
+    private ParseOutcome failure(Path file, String message) {
+        return new ParseOutcome(file, Optional.empty(),
+                List.of(new Diagnostic(file, "Failure parsing java file: " + message,
+                        new SourcePosition(Position.FIRST_LINE, Position.FIRST_COLUMN), ValidationError.Severity.HIGH,
+                        DiagnosticKind.PARSE_ERROR, JAVA_PARSER_RULE)));
+    }
+
+    private MavenModule moduleFor(Path file, ProjectModel model) {
+        return model.moduleFor(file).orElseGet(() -> model.modules().getFirst());
+    }
+
     private JavaParser parserFor(MavenModule module, ProjectModel model) {
         return parserCache.computeIfAbsent(module.id(), _ -> {
-            CombinedTypeSolver typeSolver = new CombinedTypeSolver();
-            typeSolver.add(new ReflectionTypeSolver());
-            Stream
-                .of(module.sourceRoots(), module.testRoots(), module.generatedSourceRoots(),
-                        module.generatedTestSourceRoots())
-                .flatMap(List::stream)
-                .filter(Files::exists)
-                .forEach(root -> typeSolver.add(new JavaParserTypeSolver(root)));
             ParserConfiguration configuration = new ParserConfiguration()
                 .setLanguageLevel(languageLevel(model.languageLevel()))
-                .setSymbolResolver(new JavaSymbolSolver(typeSolver));
+                .setSymbolResolver(new JavaSymbolSolver(typeSolver()));
             return new JavaParser(configuration);
         });
     }
 
+    private ProjectTypeSolver typeSolver() {
+        ProjectTypeSolver solver = typeSolver;
+        if (solver == null) {
+            synchronized (parserCache) {
+                solver = typeSolver;
+                if (solver == null) {
+                    solver = new ProjectTypeSolver(this::compilationUnit, projectModelService::typeIndex);
+                    typeSolver = solver;
+                }
+            }
+        }
+        return solver;
+    }
+
     private ParserConfiguration.LanguageLevel languageLevel(int languageLevel) {
         return switch (languageLevel) {
             case 8 -> ParserConfiguration.LanguageLevel.JAVA_8;
@@ -164,4 +411,71 @@ public class DefaultJavaParserService implements JavaParserService {
         return diagnostics;
     }
 
+    private record SymbolResolution(List<Diagnostic> diagnostics, Set<Path> dependencies) {
+    }
+
+    // Working-tree parses have no content id; overlay parses are keyed by content.
+    private record ParseKey(Path file, String contentId) {
+    }
+
+    private static final class CachedParse {
+
+        private final SourceVersion version;
+
+        private final ParseOutcome outcome;
+
+        private final long weight;
+
+        private volatile SymbolResolution symbolResolution;
+
+        private CachedParse(SourceVersion version, ParseOutcome outcome, long weight) {
+            this.version = version;
+            this.outcome = outcome;
+            this.weight = weight;
+        }
+
+        private CachedParse movedTo(Path file, SourceVersion version) {
+            outcome.compilationUnit()
+                .ifPresent(compilationUnit -> compilationUnit.getStorage()
+                    .ifPresent(storage -> compilationUnit.setStorage(file, storage.getEncoding())));
+            CachedParse moved = new CachedParse(version,
+                    new ParseOutcome(file, outcome.compilationUnit(),
+                            outcome.diagnostics().stream().map(diagnostic -> diagnostic.withFile(file)).toList()),
+                    weight);
+            SymbolResolution symbols = symbolResolution;
+            if (symbols != null) {
+                moved.symbolResolution = new SymbolResolution(
+                        symbols.diagnostics().stream().map(diagnostic -> diagnostic.withFile(file)).toList(),
+                        symbols.dependencies());
+            }
+            return moved;
+        }
+
+        private CachedParse withVersion(SourceVersion version, long weight) {
+            CachedParse updated = new CachedParse(version, outcome, weight);
+            updated.symbolResolution = symbolResolution;
+            return updated;
+        }
+
+        private void dropSymbolResolutionIf(Predicate<Set<Path>> dependencies) {
+            SymbolResolution resolution = symbolResolution;
+            if (resolution != null && dependencies.test(resolution.dependencies())) {
+                symbolResolution = null;
+            }
+        }
+
+        private SourceVersion version() {
+            return version;
+        }
+
+        private ParseOutcome outcome() {
+            return outcome;
+        }
+
+        private long weight() {
+            return weight;
+        }
+
+    }
+
 }
@@ -1,18 +1,34 @@
 package de.zorro909.codecheck.core.project;
 
 import com.github.javaparser.ast.CompilationUnit;
+import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public interface JavaParserService {
 
     ParseOutcome parse(Path file);
 
+    List<Diagnostic> symbolDiagnostics(Path file);
+
     Optional<CompilationUnit> compilationUnit(Path file);
 
+    <T> T withSymbolResolution(Path file, Supplier<T> resolution);
+
     void invalidate(Path file);
 
     void invalidateModule(ModuleId moduleId);
 
+    // Carries the parse of a renamed file over to its new path if the content is
+    // unchanged.
+    void migrate(Path previous, Path file);
+
+    // Until reset with SourceOverlay.NONE, files the overlay provides are parsed from it.
+    void overlay(SourceOverlay overlay);
+
+    SourceOverlay currentOverlay();
+
 }
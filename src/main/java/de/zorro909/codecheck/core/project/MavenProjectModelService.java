@@ -25,6 +25,8 @@ public class MavenProjectModelService implements ProjectModelService {
 
     private volatile ProjectModel currentModel;
 
+    private volatile SourceTypeIndex typeIndex;
+
     @Inject
     public MavenProjectModelService(@Named(RepositoryPathProvider.REPOSITORY_DIRECTORY) Path repositoryRoot,
             CodeCheckConfigLoader configLoader) {
@@ -46,13 +48,31 @@ public class MavenProjectModelService implements ProjectModelService {
     }
 
     @Override
-    public ProjectModel refresh() {
+    public synchronized ProjectModel refresh() {
         int languageLevel = configLoader.load().javaProject().languageLevel();
         ProjectModel model = new ProjectModel(repositoryRoot, repositoryRoot, discoverModules(), languageLevel);
         currentModel = model;
+        typeIndex = null;
         return model;
     }
 
+    // Walking every source root only pays off once a type is resolved, so the index is
+    // built on first use and dropped with the model it was built from.
+    @Override
+    public SourceTypeIndex typeIndex() {
+        SourceTypeIndex index = typeIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = typeIndex;
+                if (index == null) {
+                    index = SourceTypeIndex.build(currentModel());
+                    typeIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     private List<MavenModule> discoverModules() {
         Set<Path> moduleRoots = new LinkedHashSet<>();
         moduleRoots.add(repositoryRoot);
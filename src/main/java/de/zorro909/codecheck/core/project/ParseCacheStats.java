@@ -0,0 +1,4 @@
+package de.zorro909.codecheck.core.project;
+
+public record ParseCacheStats(long hits, long misses, long evictions, int entries, long estimatedBytes) {
+}
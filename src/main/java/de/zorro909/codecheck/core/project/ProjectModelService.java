@@ -6,4 +6,6 @@ public interface ProjectModelService {
 
     ProjectModel refresh();
 
+    SourceTypeIndex typeIndex();
+
 }
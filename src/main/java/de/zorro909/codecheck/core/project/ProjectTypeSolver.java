@@ -0,0 +1,147 @@
+package de.zorro909.codecheck.core.project;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.Navigator;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import de.zorro909.codecheck.core.validation.DependencyScope;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// One type solver for the whole project, so JDK and sibling-module types are resolved
+// once and shared by every module parser. Callers serialize resolution on this instance.
+final class ProjectTypeSolver implements TypeSolver {
+
+    // A solved source type keeps the whole compilation unit that declares it reachable,
+    // so the memo is bounded like the parse cache.
+    private static final int RESOLVED_TYPES = 8192;
+
+    private final Function<Path, Optional<CompilationUnit>> parser;
+
+    private final Supplier<SourceTypeIndex> typeIndex;
+
+    private final TypeSolver reflectionTypeSolver = new ReflectionTypeSolver();
+
+    private final WeightedLruCache<String, Resolution> resolvedTypes = new WeightedLruCache<>(RESOLVED_TYPES, _ -> 1);
+
+    // Declaring files are parsed through the parser service, so they share its cache and
+    // its overlay with the files being validated.
+    ProjectTypeSolver(Function<Path, Optional<CompilationUnit>> parser, Supplier<SourceTypeIndex> typeIndex) {
+        this.parser = parser;
+        this.typeIndex = typeIndex;
+        reflectionTypeSolver.setParent(this);
+    }
+
+    synchronized void invalidate(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        // Unsolved names may be declared by the new content, solved ones may have moved
+        // away.
+        boolean removed = resolvedTypes.removeValuesIf(resolution -> !resolution.reference().isSolved()
+                || declaringFile(resolution.reference()).filter(declaring -> declaring.startsWith(absolute))
+                    .isPresent());
+        if (removed) {
+            clearFacade();
+        }
+    }
+
+    synchronized void invalidateAll() {
+        resolvedTypes.removeIf(_ -> true);
+        clearFacade();
+    }
+
+    // The facade of this solver outlives any single resolution, so it is dropped together
+    // with the declarations it may still refer to. JavaParserFacade.get locks the class.
+    private static void clearFacade() {
+        synchronized (JavaParserFacade.class) {
+            JavaParserFacade.clearInstances();
+        }
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return null;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        throw new IllegalStateException("The project type solver is always the root type solver.");
+    }
+
+    // The source files a resolution looked at are reported to the running check on every
+    // lookup, also when the resolution is answered from the cache.
+    @Override
+    public synchronized SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        Resolution resolution = resolvedTypes.get(name);
+        if (resolution == null) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> resolved = reflectionTypeSolver.tryToSolveType(name);
+            List<Path> read = new ArrayList<>();
+            if (!resolved.isSolved()) {
+                resolved = solveFromSources(name, read);
+            }
+            resolution = new Resolution(resolved, List.copyOf(read));
+            resolvedTypes.put(name, resolution);
+        }
+        resolution.dependencies().forEach(DependencyScope::record);
+        return resolution.reference();
+    }
+
+    @Override
+    public synchronized SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveTypeInModule(
+            String qualifiedModuleName, String simpleTypeName) {
+        return reflectionTypeSolver.tryToSolveTypeInModule(qualifiedModuleName, simpleTypeName);
+    }
+
+    // Same lookup order as JavaParserTypeSolver: the file named after each prefix of the
+    // name first, then any file of that package, but answered from the type index.
+    private SymbolReference<ResolvedReferenceTypeDeclaration> solveFromSources(String name, List<Path> read) {
+        SourceTypeIndex index = typeIndex.get();
+        String[] elements = name.split("\\.");
+        for (int i = elements.length; i > 0; i--) {
+            String topLevelName = String.join(".", Arrays.copyOfRange(elements, 0, i));
+            String packageName = String.join(".", Arrays.copyOfRange(elements, 0, i - 1));
+            String typeName = String.join(".", Arrays.copyOfRange(elements, i - 1, elements.length));
+            read.addAll(index.candidatePaths(topLevelName, packageName));
+            Optional<TypeDeclaration<?>> declaration = findType(index.sourceFiles(topLevelName), typeName).or(() -> {
+                List<Path> packageFiles = index.packageFiles(packageName);
+                read.addAll(packageFiles);
+                return findType(packageFiles, typeName);
+            });
+            if (declaration.isPresent()) {
+                return SymbolReference.solved(JavaParserFacade.get(this).getTypeDeclaration(declaration.get()));
+            }
+        }
+        return SymbolReference.unsolved();
+    }
+
+    private Optional<TypeDeclaration<?>> findType(List<Path> files, String typeName) {
+        return files.stream()
+            .map(parser)
+            .flatMap(Optional::stream)
+            .map(compilationUnit -> Navigator.findType(compilationUnit, typeName))
+            .flatMap(Optional::stream)
+            .findFirst();
+    }
+
+    private static Optional<Path> declaringFile(SymbolReference<ResolvedReferenceTypeDeclaration> reference) {
+        return reference.getDeclaration()
+            .flatMap(ResolvedReferenceTypeDeclaration::toAst)
+            .flatMap(Node::findCompilationUnit)
+            .flatMap(CompilationUnit::getStorage)
+            .map(storage -> storage.getPath().toAbsolutePath().normalize());
+    }
+
+    private record Resolution(SymbolReference<ResolvedReferenceTypeDeclaration> reference, List<Path> dependencies) {
+    }
+
+}
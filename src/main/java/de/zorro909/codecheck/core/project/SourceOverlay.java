@@ -0,0 +1,20 @@
+package de.zorro909.codecheck.core.project;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Content to parse instead of the working-tree file, e.g. the staged blob during
+// pre-commit. Sources are identified by a content id so their parses can be cached by
+// content rather than by file attributes.
+@FunctionalInterface
+public interface SourceOverlay {
+
+    SourceOverlay NONE = _ -> Optional.empty();
+
+    Optional<Source> source(Path file);
+
+    record Source(String contentId, Supplier<byte[]> content) {
+    }
+
+}
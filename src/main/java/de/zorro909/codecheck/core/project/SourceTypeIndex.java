@@ -0,0 +1,160 @@
+package de.zorro909.codecheck.core.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Maps qualified names of top-level types to their source files by path convention, so
+// type resolution never has to probe the file system for candidate files.
+public final class SourceTypeIndex {
+
+    private static final String JAVA_EXTENSION = ".java";
+
+    private final List<Path> roots;
+
+    private final Map<String, List<Path>> typeFiles = new HashMap<>();
+
+    private final Map<String, Set<Path>> packageFiles = new HashMap<>();
+
+    private SourceTypeIndex(List<Path> roots) {
+        this.roots = List.copyOf(roots);
+    }
+
+    public static SourceTypeIndex build(ProjectModel model) {
+        List<Path> roots = model.modules()
+            .stream()
+            .flatMap(module -> Stream.of(module.sourceRoots(), module.testRoots(), module.generatedSourceRoots(),
+                    module.generatedTestSourceRoots()))
+            .flatMap(List::stream)
+            .distinct()
+            .toList();
+        SourceTypeIndex index = new SourceTypeIndex(roots);
+        for (Path root : roots) {
+            try {
+                index.addAll(root, root);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Unable to index Java sources under " + root, e);
+            }
+        }
+        return index;
+    }
+
+    public synchronized List<Path> sourceFiles(String qualifiedName) {
+        return List.copyOf(typeFiles.getOrDefault(qualifiedName, List.of()));
+    }
+
+    public synchronized List<Path> packageFiles(String packageName) {
+        return List.copyOf(packageFiles.getOrDefault(packageName, Set.of()));
+    }
+
+    // The files and package directories whose presence decides the two lookups above,
+    // whether they exist or not, so callers can record them as dependencies.
+    public List<Path> candidatePaths(String qualifiedName, String packageName) {
+        return roots.stream()
+            .flatMap(root -> Stream.of(root.resolve(relativePath(root, qualifiedName) + JAVA_EXTENSION),
+                    packageName.isEmpty() ? root : root.resolve(relativePath(root, packageName))))
+            .toList();
+    }
+
+    public synchronized int size() {
+        return typeFiles.size();
+    }
+
+    // Re-reads a single watched path: a changed or deleted source file, or a directory
+    // that appeared or disappeared together with the files below it.
+    public synchronized void update(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Optional<Path> root = rootFor(absolute);
+        if (root.isEmpty()) {
+            return;
+        }
+        if (isJavaFile(absolute)) {
+            remove(root.get(), absolute);
+            if (Files.isRegularFile(absolute)) {
+                add(root.get(), absolute);
+            }
+            return;
+        }
+        removeAll(absolute);
+        try {
+            addAll(root.get(), absolute);
+        }
+        catch (IOException e) {
+            // Build tools and IDEs delete temporary directories quickly, so one that
+            // vanishes while it is walked is treated as removed.
+            removeAll(absolute);
+        }
+    }
+
+    private Optional<Path> rootFor(Path absolute) {
+        return roots.stream().filter(absolute::startsWith).max(Comparator.comparingInt(Path::getNameCount));
+    }
+
+    private void addAll(Path root, Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(SourceTypeIndex::isJavaFile).filter(Files::isRegularFile).forEach(file -> add(root, file));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void add(Path root, Path file) {
+        typeFiles.computeIfAbsent(qualifiedName(root, file), _ -> new ArrayList<>()).add(file);
+        packageFiles.computeIfAbsent(packageName(root, file), _ -> new LinkedHashSet<>()).add(file);
+    }
+
+    private void remove(Path root, Path file) {
+        removeFrom(typeFiles, qualifiedName(root, file), file);
+        removeFrom(packageFiles, packageName(root, file), file);
+    }
+
+    private void removeAll(Path directory) {
+        typeFiles.values().forEach(files -> files.removeIf(file -> file.startsWith(directory)));
+        typeFiles.values().removeIf(List::isEmpty);
+        packageFiles.values().forEach(files -> files.removeIf(file -> file.startsWith(directory)));
+        packageFiles.values().removeIf(Set::isEmpty);
+    }
+
+    private static <C extends Collection<Path>> void removeFrom(Map<String, C> index, String key, Path file) {
+        C files = index.get(key);
+        if (files != null && files.remove(file) && files.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String qualifiedName(Path root, Path file) {
+        String relative = root.relativize(file).toString();
+        return relative.substring(0, relative.length() - JAVA_EXTENSION.length())
+            .replace(file.getFileSystem().getSeparator(), ".");
+    }
+
+    private static String packageName(Path root, Path file) {
+        Path directory = root.relativize(file).getParent();
+        return directory == null ? "" : directory.toString().replace(file.getFileSystem().getSeparator(), ".");
+    }
+
+    private static String relativePath(Path root, String name) {
+        return name.replace(".", root.getFileSystem().getSeparator());
+    }
+
+    private static boolean isJavaFile(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(JAVA_EXTENSION);
+    }
+
+}
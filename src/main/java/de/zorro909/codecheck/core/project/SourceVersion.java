@@ -0,0 +1,32 @@
+package de.zorro909.codecheck.core.project;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public record SourceVersion(long size, FileTime lastModified, String contentHash) {
+
+    public static SourceVersion of(BasicFileAttributes attributes, byte[] content) {
+        return new SourceVersion(attributes.size(), attributes.lastModifiedTime(), hash(content));
+    }
+
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+
+    public boolean unchanged(BasicFileAttributes attributes) {
+        return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime());
+    }
+
+    public boolean sameContent(SourceVersion other) {
+        return other != null && contentHash.equals(other.contentHash);
+    }
+
+}
@@ -0,0 +1,93 @@
+package de.zorro909.codecheck.core.project;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+final class WeightedLruCache<K, V> {
+
+    private final long maxWeight;
+
+    private final ToLongFunction<V> weigher;
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private long evictions;
+
+    WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(K key, V value) {
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += weigher.applyAsLong(value);
+        // The newest entry stays even if it alone exceeds the budget, so the rules of
+        // the file being validated still share its value.
+        Iterator<V> eldest = entries.values().iterator();
+        while (weight > maxWeight && entries.size() > 1) {
+            weight -= weigher.applyAsLong(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            weight -= weigher.applyAsLong(removed);
+        }
+    }
+
+    synchronized void removeIf(Predicate<K> keyFilter) {
+        removeEntriesIf(entry -> keyFilter.test(entry.getKey()));
+    }
+
+    synchronized boolean removeValuesIf(Predicate<V> valueFilter) {
+        return removeEntriesIf(entry -> valueFilter.test(entry.getValue()));
+    }
+
+    private boolean removeEntriesIf(Predicate<Map.Entry<K, V>> filter) {
+        boolean removed = false;
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (filter.test(entry)) {
+                weight -= weigher.applyAsLong(entry.getValue());
+                iterator.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    // Visits the values without counting as a use.
+    synchronized void forEachValue(Consumer<V> action) {
+        entries.values().forEach(action);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long weight() {
+        return weight;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+}
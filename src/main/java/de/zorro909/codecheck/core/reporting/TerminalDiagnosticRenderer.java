@@ -21,37 +21,70 @@ public class TerminalDiagnosticRenderer {
     }
 
     public void render(ValidationMode mode, Map<Path, List<ValidationError>> errorsMap, PrintStream out) {
-        out.println("Overview of code checks:");
-        out.println("------------------------");
-        if (errorsMap.isEmpty()) {
-            out.println("No validation errors found.");
-            return;
-        }
+        Session session = open(mode, out);
+        errorsMap.values().forEach(session::render);
+        session.finish();
+    }
 
-        List<ValidationError> visibleErrors = errorsMap.values()
+    public boolean blocks(ValidationMode mode, Map<Path, List<ValidationError>> errorsMap) {
+        return errorsMap.values()
             .stream()
             .flatMap(List::stream)
-            .filter(error -> severityPolicy.visible(mode, error.severity()))
-            .toList();
+            .anyMatch(error -> severityPolicy.blocks(mode, error.severity()));
+    }
+
+    public Session open(ValidationMode mode, PrintStream out) {
+        out.println("Overview of code checks:");
+        out.println("------------------------");
+        return new Session(mode, out);
+    }
+
+    public final class Session {
 
-        if (visibleErrors.isEmpty()) {
-            out.println("No blocking validation errors found.");
-            return;
+        private final ValidationMode mode;
+
+        private final PrintStream out;
+
+        private boolean anyErrors;
+
+        private boolean anyVisible;
+
+        private boolean blocking;
+
+        private Session(ValidationMode mode, PrintStream out) {
+            this.mode = mode;
+            this.out = out;
         }
 
-        out.println("Validation diagnostics:");
-        visibleErrors.stream().map(ValidationError::toString).forEach(out::println);
+        public void render(List<ValidationError> errors) {
+            for (ValidationError error : errors) {
+                anyErrors = true;
+                blocking |= severityPolicy.blocks(mode, error.severity());
+                if (!severityPolicy.visible(mode, error.severity())) {
+                    continue;
+                }
+                if (!anyVisible) {
+                    out.println("Validation diagnostics:");
+                    anyVisible = true;
+                }
+                out.println(error);
+            }
+            out.flush();
+        }
 
-        if ((mode == ValidationMode.BATCH || mode == ValidationMode.PRE_COMMIT) && blocks(mode, errorsMap)) {
-            out.println("Blocking HIGH diagnostics found; exiting with failure.");
+        public boolean finish() {
+            if (!anyErrors) {
+                out.println("No validation errors found.");
+            }
+            else if (!anyVisible) {
+                out.println("No blocking validation errors found.");
+            }
+            else if ((mode == ValidationMode.BATCH || mode == ValidationMode.PRE_COMMIT) && blocking) {
+                out.println("Blocking HIGH diagnostics found; exiting with failure.");
+            }
+            return blocking;
         }
-    }
 
-    public boolean blocks(ValidationMode mode, Map<Path, List<ValidationError>> errorsMap) {
-        return errorsMap.values()
-            .stream()
-            .flatMap(List::stream)
-            .anyMatch(error -> severityPolicy.blocks(mode, error.severity()));
     }
 
 }
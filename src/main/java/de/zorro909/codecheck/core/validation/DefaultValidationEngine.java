@@ -1,37 +1,290 @@
 package de.zorro909.codecheck.core.validation;
 
 import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetProducer;
+import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
 import de.zorro909.codecheck.core.diagnostic.Diagnostic;
+import de.zorro909.codecheck.core.profiling.ProfilePhase;
+import de.zorro909.codecheck.core.profiling.ValidationProfiler;
+import de.zorro909.codecheck.core.validation.rule.Rule;
 import de.zorro909.codecheck.core.validation.rule.RuleRegistry;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Singleton
 public class DefaultValidationEngine implements ValidationEngine {
 
+    private static final int QUEUE_CAPACITY = 256;
+
     private final RuleRegistry ruleRegistry;
 
+    private final CodeCheckConfigLoader configLoader;
+
+    private final DiagnosticCache diagnosticCache;
+
+    private final ValidationProfiler profiler;
+
     public DefaultValidationEngine(RuleRegistry ruleRegistry) {
+        this(ruleRegistry, CodeCheckConfigLoader.defaultsOnly(), DiagnosticCache.disabled());
+    }
+
+    public DefaultValidationEngine(RuleRegistry ruleRegistry, CodeCheckConfigLoader configLoader,
+            DiagnosticCache diagnosticCache) {
+        this(ruleRegistry, configLoader, diagnosticCache, new ValidationProfiler());
+    }
+
+    @Inject
+    public DefaultValidationEngine(RuleRegistry ruleRegistry, CodeCheckConfigLoader configLoader,
+            DiagnosticCache diagnosticCache, ValidationProfiler profiler) {
         this.ruleRegistry = ruleRegistry;
+        this.configLoader = configLoader;
+        this.diagnosticCache = diagnosticCache;
+        this.profiler = profiler;
     }
 
     @Override
     public ValidationResult validate(ChangeSet changeSet, ValidationMode mode) {
-        List<FileValidationResult> fileResults = changeSet.paths().map(file -> validateFile(file, mode)).toList();
+        return validate(changeSet, mode, configLoader.load().validation().effectiveParallelism());
+    }
+
+    @Override
+    public ValidationResult validate(ChangeSet changeSet, ValidationMode mode, int parallelism) {
+        List<FileValidationResult> fileResults = new ArrayList<>();
+        validate(changeSet, mode, parallelism, fileResults::add);
         return new ValidationResult(mode, fileResults);
     }
 
+    @Override
+    public void validate(ChangeSet changeSet, ValidationMode mode, int parallelism,
+            Consumer<FileValidationResult> listener) {
+        List<Path> files = changeSet.paths().toList();
+        DiagnosticCache.Scope cache = diagnosticCache.open();
+        if (parallelism <= 1 || files.size() <= 1) {
+            files.forEach(file -> listener.accept(validateFile(file, mode, cache)));
+            return;
+        }
+        // forEachOrdered releases each result once all earlier files are done, so the
+        // listener sees change-set order while idle workers keep stealing pending files.
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            pool.submit(
+                    () -> files.parallelStream().map(file -> validateFile(file, mode, cache)).forEachOrdered(listener))
+                .join();
+        }
+    }
+
+    @Override
+    public void validate(ChangeSetProducer producer, ValidationMode mode, int parallelism,
+            Consumer<FileValidationResult> listener) {
+        DiagnosticCache.Scope cache = diagnosticCache.open();
+        BlockingQueue<QueuedFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread feeder = Thread.ofVirtual().name("codecheck-changeset").start(() -> feed(producer, queue, failure));
+        OrderedRelease release = new OrderedRelease(listener);
+        int workers = Math.max(1, parallelism);
+        try {
+            if (workers == 1) {
+                drain(queue, mode, cache, release, failure);
+            }
+            else {
+                try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+                    for (int i = 0; i < workers; i++) {
+                        pool.execute(() -> drain(queue, mode, cache, release, failure));
+                    }
+                }
+            }
+        }
+        finally {
+            // A failed validation stops consuming, so unblock a producer waiting on a
+            // full queue.
+            if (failure.get() != null) {
+                feeder.interrupt();
+            }
+            joinUninterruptibly(feeder);
+        }
+        RuntimeException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Runs on its own thread so git keeps reporting paths while the first files are
+    // checked. The bounded queue applies back-pressure to git instead of buffering
+    // the whole change set.
+    private static void feed(ChangeSetProducer producer, BlockingQueue<QueuedFile> queue,
+            AtomicReference<RuntimeException> failure) {
+        Set<Path> seen = new HashSet<>();
+        long[] sequence = { 0 };
+        try {
+            producer.produce(entry -> {
+                if (entry.deleted() || !seen.add(entry.path())) {
+                    return;
+                }
+                put(queue, new QueuedFile(sequence[0]++, entry.path()));
+            });
+        }
+        catch (RuntimeException exception) {
+            failure.compareAndSet(null, exception);
+        }
+        finally {
+            try {
+                queue.put(QueuedFile.END);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void drain(BlockingQueue<QueuedFile> queue, ValidationMode mode, DiagnosticCache.Scope cache,
+            OrderedRelease release, AtomicReference<RuntimeException> failure) {
+        while (true) {
+            QueuedFile next = take(queue);
+            if (next == QueuedFile.END) {
+                // Leave the marker for the other workers.
+                put(queue, next);
+                return;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                release.accept(next.sequence(), validateFile(next.file(), mode, cache));
+            }
+            catch (RuntimeException exception) {
+                failure.compareAndSet(null, exception);
+            }
+        }
+    }
+
+    private static QueuedFile take(BlockingQueue<QueuedFile> queue) {
+        try {
+            return queue.take();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for changed files", exception);
+        }
+    }
+
+    private static void put(BlockingQueue<QueuedFile> queue, QueuedFile file) {
+        try {
+            queue.put(file);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing changed files", exception);
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public FileValidationResult validateFile(Path file, ValidationMode mode) {
-        ValidationContext context = new ValidationContext(mode);
+        return validateFile(file, mode, DependencyRecorder.NONE);
+    }
+
+    @Override
+    public FileValidationResult validateFile(Path file, ValidationMode mode, DependencyRecorder dependencies) {
+        return validateFile(new ValidationContext(mode, dependencies), file, DiagnosticCache.Scope.DISABLED);
+    }
+
+    private FileValidationResult validateFile(Path file, ValidationMode mode, DiagnosticCache.Scope cache) {
+        return validateFile(new ValidationContext(mode), file, cache);
+    }
+
+    // Rules of one file share parse and resolution caches, so a rule may rely on files
+    // an earlier rule read without reading them again. Every entry of the file is
+    // therefore stored with all files read while validating it.
+    private FileValidationResult validateFile(ValidationContext context, Path file, DiagnosticCache.Scope cache) {
+        Set<Path> dependencies = ConcurrentHashMap.newKeySet();
+        ValidationContext recording = new ValidationContext(context.mode(), dependency -> {
+            dependencies.add(dependency);
+            context.dependencies().record(dependency);
+        });
+        Map<Rule, List<Diagnostic>> checked = new LinkedHashMap<>();
         List<Diagnostic> diagnostics = ruleRegistry.activeRules()
             .stream()
             .filter(rule -> rule.validatedFiles().matches(file))
-            .flatMap(rule -> rule.check(context, file).stream())
+            .flatMap(rule -> check(rule, recording, file, cache, checked).stream())
             .toList();
-        return new FileValidationResult(file, mode, diagnostics);
+        Set<Path> read = Set.copyOf(dependencies);
+        checked.forEach((rule, ruleDiagnostics) -> cache.store(recording, file, rule, ruleDiagnostics, read));
+        return new FileValidationResult(file, context.mode(), diagnostics);
+    }
+
+    private List<Diagnostic> check(Rule rule, ValidationContext context, Path file, DiagnosticCache.Scope cache,
+            Map<Rule, List<Diagnostic>> checked) {
+        Optional<DiagnosticCache.Entry> cached = cache.lookup(context, file, rule);
+        if (cached.isPresent()) {
+            cached.get().dependencies().forEach(context.dependencies()::record);
+            return cached.get().diagnostics();
+        }
+        List<Diagnostic> diagnostics = profiler.measure(ProfilePhase.RULE, rule.id().value(), file,
+                () -> DependencyScope.recording(context.dependencies(), () -> rule.check(context, file)));
+        checked.put(rule, diagnostics);
+        return diagnostics;
+    }
+
+    private record QueuedFile(long sequence, Path file) {
+
+        private static final QueuedFile END = new QueuedFile(-1, null);
+
+    }
+
+    // Hands results to the listener in the order the producer reported the files.
+    private static final class OrderedRelease {
+
+        private final Consumer<FileValidationResult> listener;
+
+        private final Map<Long, FileValidationResult> pending = new HashMap<>();
+
+        private long next;
+
+        private OrderedRelease(Consumer<FileValidationResult> listener) {
+            this.listener = listener;
+        }
+
+        private synchronized void accept(long sequence, FileValidationResult result) {
+            pending.put(sequence, result);
+            FileValidationResult ready;
+            while ((ready = pending.remove(next)) != null) {
+                next++;
+                listener.accept(ready);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,15 @@
+package de.zorro909.codecheck.core.validation;
+
+import java.nio.file.Path;
+
+// Receives the files a validation reads besides the validated file, so a later change to
+// one of them can invalidate the result.
+@FunctionalInterface
+public interface DependencyRecorder {
+
+    DependencyRecorder NONE = _ -> {
+    };
+
+    void record(Path dependency);
+
+}
@@ -0,0 +1,30 @@
+package de.zorro909.codecheck.core.validation;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Binds the recorder of the running check to the current thread, for code that reads
+// files but is not handed a validation context, such as type resolution and legacy checks.
+public final class DependencyScope {
+
+    private static final ScopedValue<DependencyRecorder> CURRENT = ScopedValue.newInstance();
+
+    private DependencyScope() {
+    }
+
+    public static <T> T recording(DependencyRecorder recorder, Supplier<T> work) {
+        AtomicReference<T> result = new AtomicReference<>();
+        ScopedValue.where(CURRENT, recorder).run(() -> result.set(work.get()));
+        return result.get();
+    }
+
+    public static DependencyRecorder current() {
+        return CURRENT.isBound() ? CURRENT.get() : DependencyRecorder.NONE;
+    }
+
+    public static void record(Path dependency) {
+        current().record(dependency);
+    }
+
+}
@@ -0,0 +1,46 @@
+package de.zorro909.codecheck.core.validation;
+
+import de.zorro909.codecheck.core.diagnostic.Diagnostic;
+import de.zorro909.codecheck.core.validation.rule.Rule;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface DiagnosticCache {
+
+    Scope open();
+
+    static DiagnosticCache disabled() {
+        return () -> Scope.DISABLED;
+    }
+
+    // A scope snapshots the configuration and project state of one validation run.
+    interface Scope {
+
+        Scope DISABLED = new Scope() {
+            @Override
+            public Optional<Entry> lookup(ValidationContext context, Path file, Rule rule) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void store(ValidationContext context, Path file, Rule rule, List<Diagnostic> diagnostics,
+                    Set<Path> dependencies) {
+            }
+        };
+
+        Optional<Entry> lookup(ValidationContext context, Path file, Rule rule);
+
+        // The dependencies are the files read while validating the file; an entry is only
+        // returned while none of them has changed.
+        void store(ValidationContext context, Path file, Rule rule, List<Diagnostic> diagnostics,
+                Set<Path> dependencies);
+
+    }
+
+    record Entry(List<Diagnostic> diagnostics, Set<Path> dependencies) {
+    }
+
+}
@@ -1,4 +1,10 @@
 package de.zorro909.codecheck.core.validation;
 
-public record ValidationContext(ValidationMode mode) {
+// Each validation gets its own context, so the dependency recorder is never shared
+// between files validated concurrently.
+public record ValidationContext(ValidationMode mode, DependencyRecorder dependencies) {
+
+    public ValidationContext(ValidationMode mode) {
+        this(mode, DependencyRecorder.NONE);
+    }
 }
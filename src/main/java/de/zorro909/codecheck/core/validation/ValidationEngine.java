@@ -1,13 +1,33 @@
 package de.zorro909.codecheck.core.validation;
 
 import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetProducer;
 
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 public interface ValidationEngine {
 
     ValidationResult validate(ChangeSet changeSet, ValidationMode mode);
 
+    default ValidationResult validate(ChangeSet changeSet, ValidationMode mode, int parallelism) {
+        return validate(changeSet, mode);
+    }
+
+    default void validate(ChangeSet changeSet, ValidationMode mode, int parallelism,
+            Consumer<FileValidationResult> listener) {
+        validate(changeSet, mode, parallelism).fileResults().forEach(listener);
+    }
+
+    default void validate(ChangeSetProducer producer, ValidationMode mode, int parallelism,
+            Consumer<FileValidationResult> listener) {
+        validate(producer.collect(), mode, parallelism, listener);
+    }
+
     FileValidationResult validateFile(Path file, ValidationMode mode);
 
+    default FileValidationResult validateFile(Path file, ValidationMode mode, DependencyRecorder dependencies) {
+        return validateFile(file, mode);
+    }
+
 }
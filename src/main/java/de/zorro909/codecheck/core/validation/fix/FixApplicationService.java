@@ -48,8 +48,11 @@ public class FixApplicationService {
             .map(file -> validationEngine.validateFile(file, mode))
             .allMatch(FileValidationResult::passed);
         if (recheckPassed) {
-            postActions.forEach(action -> action.perform(affectedFiles));
-            return fixResult.withRestaged(true);
+            boolean restaged = true;
+            for (PostAction action : postActions) {
+                restaged &= action.performAfterFix(affectedFiles);
+            }
+            return fixResult.withRestaged(restaged);
         }
 
         return fixResult.withRestaged(false);
@@ -1,4 +1,12 @@
 package de.zorro909.codecheck.core.validation.rule;
 
-public record RuleMetadata(String name, String description) {
+// fileLocal rules only read the validated file itself, so their cached diagnostics stay
+// valid while other files change; bump the version whenever a rule's output changes.
+// Only rules with symbolResolution pay for resolving types and report unresolved symbols.
+public record RuleMetadata(String name, String description, String version, boolean fileLocal,
+        boolean symbolResolution) {
+
+    public RuleMetadata(String name, String description) {
+        this(name, description, "1", false, false);
+    }
 }
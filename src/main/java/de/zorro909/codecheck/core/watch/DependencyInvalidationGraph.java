@@ -1,28 +1,106 @@
 package de.zorro909.codecheck.core.watch;
 
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class DependencyInvalidationGraph {
 
     private final ConcurrentHashMap<Path, Set<Path>> dependentsByContext = new ConcurrentHashMap<>();
 
+    // Reverse edges, so a revalidated file can drop dependencies it no longer has.
+    private final ConcurrentHashMap<Path, Set<Path>> contextsByValidated = new ConcurrentHashMap<>();
+
     public void recordDependency(Path contextFile, Path dependentValidatedFile) {
-        dependentsByContext.computeIfAbsent(normalize(contextFile), _ -> ConcurrentHashMap.newKeySet())
-            .add(normalize(dependentValidatedFile));
+        Path context = normalize(contextFile);
+        Path validated = normalize(dependentValidatedFile);
+        synchronized (this) {
+            dependentsByContext.computeIfAbsent(context, _ -> ConcurrentHashMap.newKeySet()).add(validated);
+            contextsByValidated.computeIfAbsent(validated, _ -> ConcurrentHashMap.newKeySet()).add(context);
+        }
+    }
+
+    // Replaces everything recorded for a validated file with what its latest validation
+    // read, so edges of code that was removed since do not keep invalidating it.
+    public void replaceDependencies(Path dependentValidatedFile, Collection<Path> contextFiles) {
+        Path validated = normalize(dependentValidatedFile);
+        Set<Path> contexts = contextFiles.stream()
+            .map(this::normalize)
+            .filter(context -> !context.equals(validated))
+            .collect(Collectors.toCollection(ConcurrentHashMap::newKeySet));
+        synchronized (this) {
+            Set<Path> previous = contextsByValidated.put(validated, contexts);
+            if (previous != null) {
+                previous.stream()
+                    .filter(context -> !contexts.contains(context))
+                    .forEach(context -> removeDependent(context, validated));
+            }
+            contexts.forEach(context -> dependentsByContext.computeIfAbsent(context, _ -> ConcurrentHashMap.newKeySet())
+                .add(validated));
+        }
     }
 
     public Set<Path> dependents(Path contextFile) {
         return Set.copyOf(dependentsByContext.getOrDefault(normalize(contextFile), Set.of()));
     }
 
+    // The changed files and everything that depends on them, directly or through other
+    // dependents. Each file is visited once, so dependency cycles end the walk.
+    public Set<Path> closure(Collection<Path> changedFiles) {
+        Set<Path> visited = new LinkedHashSet<>();
+        Deque<Path> pending = new ArrayDeque<>();
+        changedFiles.stream().map(this::normalize).forEach(pending::add);
+        while (!pending.isEmpty()) {
+            Path file = pending.poll();
+            if (visited.add(file)) {
+                pending.addAll(dependentsByContext.getOrDefault(file, Set.of()));
+            }
+        }
+        return visited;
+    }
+
     public Set<Path> invalidate(Path contextFile, IncrementalValidationState state) {
-        Set<Path> dependents = dependents(contextFile);
+        Set<Path> dependents = closure(dependents(contextFile));
         dependents.forEach(state::markStale);
         return dependents;
     }
 
+    // Dependencies recorded for the old path of a renamed file now belong to the new one.
+    public synchronized void rename(Path previous, Path file) {
+        Path source = normalize(previous);
+        Path target = normalize(file);
+        Set<Path> dependents = dependentsByContext.remove(source);
+        if (dependents != null) {
+            dependentsByContext.computeIfAbsent(target, _ -> ConcurrentHashMap.newKeySet()).addAll(dependents);
+        }
+        Set<Path> contexts = contextsByValidated.remove(source);
+        if (contexts != null) {
+            contextsByValidated.computeIfAbsent(target, _ -> ConcurrentHashMap.newKeySet()).addAll(contexts);
+        }
+        renameIn(dependentsByContext, source, target);
+        renameIn(contextsByValidated, source, target);
+    }
+
+    private void removeDependent(Path context, Path validated) {
+        dependentsByContext.computeIfPresent(context, (_, dependents) -> {
+            dependents.remove(validated);
+            return dependents.isEmpty() ? null : dependents;
+        });
+    }
+
+    private static void renameIn(ConcurrentHashMap<Path, Set<Path>> edges, Path source, Path target) {
+        edges.values().forEach(paths -> {
+            if (paths.remove(source)) {
+                paths.add(target);
+            }
+        });
+    }
+
     private Path normalize(Path path) {
         return path.toAbsolutePath().normalize();
     }
@@ -5,38 +5,143 @@ import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class IncrementalValidationState {
 
-    private final Map<Path, FileValidationStatus> statuses = new ConcurrentHashMap<>();
+    private final Map<Path, Tracked> statuses = new ConcurrentHashMap<>();
 
     private final Map<Path, List<Diagnostic>> diagnostics = new ConcurrentHashMap<>();
 
+    private final ReentrantLock settleLock = new ReentrantLock();
+
+    private final Condition settled = settleLock.newCondition();
+
     public void markChecking(Path path) {
-        statuses.put(normalize(path), FileValidationStatus.CHECKING);
+        statuses.compute(normalize(path), (_, tracked) -> new Tracked(FileValidationStatus.CHECKING, version(tracked)));
     }
 
+    // Bumps the version, so a validation that started before the change cannot mark the
+    // file current afterwards.
     public void markStale(Path path) {
-        statuses.put(normalize(path), FileValidationStatus.STALE);
+        statuses.compute(normalize(path),
+                (_, tracked) -> new Tracked(FileValidationStatus.STALE, version(tracked) + 1));
+        signalSettled();
     }
 
     public void updateCurrent(Path path, List<Diagnostic> latestDiagnostics) {
         Path normalized = normalize(path);
         diagnostics.put(normalized, List.copyOf(latestDiagnostics));
-        statuses.put(normalized, FileValidationStatus.CURRENT);
+        statuses.compute(normalized, (_, tracked) -> new Tracked(FileValidationStatus.CURRENT, version(tracked)));
+        signalSettled();
+    }
+
+    // Claims a stale file for validation. Returns the version to complete it with, or
+    // nothing if the file is current or another caller is validating it already.
+    public OptionalLong claim(Path path) {
+        AtomicLong claimed = new AtomicLong(-1);
+        statuses.compute(normalize(path), (_, tracked) -> {
+            if (tracked != null && tracked.status() != FileValidationStatus.STALE) {
+                return tracked;
+            }
+            claimed.set(version(tracked));
+            return new Tracked(FileValidationStatus.CHECKING, version(tracked));
+        });
+        return claimed.get() < 0 ? OptionalLong.empty() : OptionalLong.of(claimed.get());
+    }
+
+    // Stores the result of a claimed validation. Returns false if the file changed in the
+    // meantime; the result is dropped then and the file stays stale.
+    public boolean complete(Path path, long version, List<Diagnostic> latestDiagnostics) {
+        Path normalized = normalize(path);
+        AtomicBoolean applied = new AtomicBoolean();
+        statuses.computeIfPresent(normalized, (_, tracked) -> {
+            if (tracked.status() != FileValidationStatus.CHECKING || tracked.version() != version) {
+                return tracked;
+            }
+            diagnostics.put(normalized, List.copyOf(latestDiagnostics));
+            applied.set(true);
+            return new Tracked(FileValidationStatus.CURRENT, version);
+        });
+        signalSettled();
+        return applied.get();
+    }
+
+    // Gives up a claim after a failed validation, so waiting callers can retry.
+    public void abandon(Path path, long version) {
+        statuses.computeIfPresent(normalize(path),
+                (_, tracked) -> tracked.status() == FileValidationStatus.CHECKING && tracked.version() == version
+                        ? new Tracked(FileValidationStatus.STALE, version) : tracked);
+        signalSettled();
+    }
+
+    // Blocks while another caller is validating the file.
+    public FileValidationStatus awaitSettled(Path path) throws InterruptedException {
+        settleLock.lock();
+        try {
+            FileValidationStatus status = status(path);
+            while (status == FileValidationStatus.CHECKING) {
+                settled.await();
+                status = status(path);
+            }
+            return status;
+        }
+        finally {
+            settleLock.unlock();
+        }
+    }
+
+    // Seeds a renamed or copied file with what is known about its source, once; the
+    // carried diagnostics are shown until the file is revalidated under its new path.
+    public void migrate(Path previous, Path path, boolean keepPrevious) {
+        Path source = normalize(previous);
+        Path target = normalize(path);
+        if (statuses.containsKey(target) || !statuses.containsKey(source)) {
+            return;
+        }
+        List<Diagnostic> known = diagnostics.getOrDefault(source, List.of());
+        diagnostics.put(target, known.stream().map(diagnostic -> diagnostic.withFile(path)).toList());
+        statuses.put(target, new Tracked(FileValidationStatus.STALE, 0));
+        if (!keepPrevious) {
+            statuses.remove(source);
+            diagnostics.remove(source);
+            signalSettled();
+        }
     }
 
     public FileValidationStatus status(Path path) {
-        return statuses.getOrDefault(normalize(path), FileValidationStatus.STALE);
+        Tracked tracked = statuses.get(normalize(path));
+        return tracked == null ? FileValidationStatus.STALE : tracked.status();
     }
 
     public List<Diagnostic> diagnostics(Path path) {
         return diagnostics.getOrDefault(normalize(path), List.of());
     }
 
+    private void signalSettled() {
+        settleLock.lock();
+        try {
+            settled.signalAll();
+        }
+        finally {
+            settleLock.unlock();
+        }
+    }
+
+    private static long version(Tracked tracked) {
+        return tracked == null ? 0 : tracked.version();
+    }
+
     private Path normalize(Path path) {
         return path.toAbsolutePath().normalize();
     }
 
+    private record Tracked(FileValidationStatus status, long version) {
+    }
+
 }
@@ -0,0 +1,34 @@
+package de.zorro909.codecheck.core.watch;
+
+import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
+import de.zorro909.codecheck.core.project.JavaParserService;
+import jakarta.inject.Singleton;
+
+import java.nio.file.Path;
+
+// Moves what is known about the source of a git-detected rename or copy to the new path,
+// so a package move neither reparses unchanged files nor starts from an empty state.
+@Singleton
+public class MovedFileMigration {
+
+    private final JavaParserService javaParserService;
+
+    public MovedFileMigration(JavaParserService javaParserService) {
+        this.javaParserService = javaParserService;
+    }
+
+    public void apply(ChangeSet changeSet, IncrementalValidationState state, DependencyInvalidationGraph graph) {
+        changeSet.moves().forEach(entry -> apply(entry, state, graph));
+    }
+
+    private void apply(ChangeSetEntry entry, IncrementalValidationState state, DependencyInvalidationGraph graph) {
+        Path previous = entry.previousPath().orElseThrow();
+        if (entry.renamed()) {
+            javaParserService.migrate(previous, entry.path());
+            graph.rename(previous, entry.path());
+        }
+        state.migrate(previous, entry.path(), entry.copied());
+    }
+
+}
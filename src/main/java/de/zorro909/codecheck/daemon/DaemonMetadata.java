@@ -3,6 +3,12 @@ package de.zorro909.codecheck.daemon;
 import java.nio.file.Path;
 import java.time.Instant;
 
+// eventsPort serves diagnostic updates over a WebSocket; 0 if the daemon has none.
 public record DaemonMetadata(long pid, Path repoRoot, String transport, String host, int port, String token,
-        Instant startedAt) {
+        Instant startedAt, int eventsPort) {
+
+    public DaemonMetadata(long pid, Path repoRoot, String transport, String host, int port, String token,
+            Instant startedAt) {
+        this(pid, repoRoot, transport, host, port, token, startedAt, 0);
+    }
 }
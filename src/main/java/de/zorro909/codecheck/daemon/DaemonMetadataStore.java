@@ -46,7 +46,8 @@ final class DaemonMetadataStore {
             return Optional
                 .of(new DaemonMetadata(number(values, "pid").longValue(), Path.of(string(values, "repoRoot")),
                         string(values, "transport"), string(values, "host"), number(values, "port").intValue(),
-                        string(values, "token"), Instant.parse(string(values, "startedAt"))));
+                        string(values, "token"), Instant.parse(string(values, "startedAt")),
+                        values.get("eventsPort") instanceof Number eventsPort ? eventsPort.intValue() : 0));
         }
         catch (RuntimeException | IOException e) {
             delete(metadataDirectory);
@@ -65,7 +66,7 @@ final class DaemonMetadataStore {
         }
     }
 
-    private void createOwnerOnlyDirectories(Path directory) throws IOException {
+    void createOwnerOnlyDirectories(Path directory) throws IOException {
         if (!POSIX_PERMISSIONS_SUPPORTED) {
             Files.createDirectories(directory);
             return;
@@ -114,10 +115,12 @@ final class DaemonMetadataStore {
                   "host": "%s",
                   "port": %d,
                   "token": "%s",
-                  "startedAt": "%s"
+                  "startedAt": "%s",
+                  "eventsPort": %d
                 }
                 """.formatted(metadata.pid(), escape(metadata.repoRoot().toString()), escape(metadata.transport()),
-                escape(metadata.host()), metadata.port(), escape(metadata.token()), metadata.startedAt());
+                escape(metadata.host()), metadata.port(), escape(metadata.token()), metadata.startedAt(),
+                metadata.eventsPort());
     }
 
     private String escape(String value) {
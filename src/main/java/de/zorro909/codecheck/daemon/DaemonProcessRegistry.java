@@ -72,8 +72,13 @@ public class DaemonProcessRegistry {
     }
 
     public DaemonMetadata createMetadata() {
-        return new DaemonMetadata(ProcessHandle.current().pid(), repositoryDirectory, TRANSPORT_WEBSOCKET, HOST,
-                randomPort(), randomToken(), Instant.now());
+        int port = randomPort();
+        int eventsPort = randomPort();
+        while (eventsPort == port) {
+            eventsPort = randomPort();
+        }
+        return new DaemonMetadata(ProcessHandle.current().pid(), repositoryDirectory, TRANSPORT_WEBSOCKET, HOST, port,
+                randomToken(), Instant.now(), eventsPort);
     }
 
     public void write(DaemonMetadata metadata) {
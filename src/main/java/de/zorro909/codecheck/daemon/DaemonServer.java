@@ -3,8 +3,16 @@ package de.zorro909.codecheck.daemon;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import de.zorro909.codecheck.legacy.ValidationCheckPipeline;
+import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.core.validation.rule.RuleId;
+import de.zorro909.codecheck.core.watch.DependencyInvalidationGraph;
+import de.zorro909.codecheck.core.watch.FileValidationStatus;
+import de.zorro909.codecheck.core.watch.IncrementalValidationState;
+import de.zorro909.codecheck.core.watch.MovedFileMigration;
 import de.zorro909.codecheck.legacy.selector.FileSelector;
+import de.zorro909.codecheck.legacy.selector.impl.GitDiffSelector;
+import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
@@ -14,14 +22,19 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -33,19 +46,45 @@ import java.util.stream.Stream;
 @Singleton
 public class DaemonServer {
 
+    private static final RuleId PIPELINE_RULE = new RuleId("legacy.pipeline");
+
     private final FileSelector fileSelector;
 
     private final Provider<ValidationCheckPipeline> validationCheckPipeline;
 
-    private final Map<Path, Set<Path>> fileDependencies = new HashMap<>();
+    private final LiveChangeSet liveChangeSet;
+
+    private final MovedFileMigration movedFileMigration;
+
+    private final DiagnosticPushServer diagnosticPush = new DiagnosticPushServer();
+
+    private final IncrementalValidationState validationState = new IncrementalValidationState();
+
+    private final DependencyInvalidationGraph dependencyGraph = new DependencyInvalidationGraph();
 
-    private Path currentFile;
+    private final AtomicLong migratedGeneration = new AtomicLong();
+
+    private final AtomicLong workTreeRevision = new AtomicLong();
+
+    private final SingleFlight<CheckGeneration, String> checks = new SingleFlight<>(this::checkGeneration);
+
+    private volatile boolean workTreeWatched;
 
     private final AtomicReference<Instant> lastActivity = new AtomicReference<>(Instant.now());
 
     public DaemonServer(FileSelector fileSelector, Provider<ValidationCheckPipeline> validationCheckPipeline) {
+        this(fileSelector, validationCheckPipeline, null, null);
+    }
+
+    @Inject
+    public DaemonServer(FileSelector fileSelector, Provider<ValidationCheckPipeline> validationCheckPipeline,
+            LiveChangeSet liveChangeSet, MovedFileMigration movedFileMigration) {
         this.fileSelector = fileSelector;
         this.validationCheckPipeline = validationCheckPipeline;
+        // The live change set replaces the default git selection only; --check-all and
+        // --check-branch keep asking their selector.
+        this.liveChangeSet = fileSelector instanceof GitDiffSelector ? liveChangeSet : null;
+        this.movedFileMigration = movedFileMigration;
     }
 
     /**
@@ -60,6 +99,12 @@ public class DaemonServer {
         CountDownLatch shutdownLatch = new CountDownLatch(1);
         HttpServer server = getHttpServer(metadata, shutdownLatch);
         ScheduledExecutorService idleMonitor = startIdleMonitor(server, shutdownLatch, inactivityTimeout);
+        if (liveChangeSet != null) {
+            liveChangeSet.start();
+        }
+        if (metadata.eventsPort() > 0) {
+            diagnosticPush.start(metadata.host(), metadata.eventsPort(), metadata.token());
+        }
         server.start();
         try {
             shutdownLatch.await();
@@ -67,6 +112,8 @@ public class DaemonServer {
         finally {
             idleMonitor.shutdownNow();
             server.stop(0);
+            diagnosticPush.close();
+            closeLiveChangeSet();
         }
     }
 
@@ -77,6 +124,8 @@ public class DaemonServer {
                 httpExchange -> handleAuthorized(metadata, httpExchange, () -> sendResponse(httpExchange, 204, "")));
         server.createContext("/check",
                 httpExchange -> handleAuthorized(metadata, httpExchange, () -> handleCheck(httpExchange)));
+        server.createContext("/changeset",
+                httpExchange -> handleAuthorized(metadata, httpExchange, () -> handleChangeSet(httpExchange)));
         server.createContext("/shutdown", httpExchange -> handleAuthorized(metadata, httpExchange, () -> {
             sendResponse(httpExchange, 204, "");
             shutdownLatch.countDown();
@@ -88,7 +137,11 @@ public class DaemonServer {
             Duration inactivityTimeout) {
         ScheduledExecutorService idleMonitor = Executors.newSingleThreadScheduledExecutor();
         idleMonitor.scheduleAtFixedRate(() -> {
-            if (Duration.between(lastActivity.get(), Instant.now()).compareTo(inactivityTimeout) >= 0) {
+            // A subscribed client is waiting for updates, so the daemon is still in use.
+            if (diagnosticPush.hasSubscribers()) {
+                refreshActivity();
+            }
+            else if (Duration.between(lastActivity.get(), Instant.now()).compareTo(inactivityTimeout) >= 0) {
                 server.stop(0);
                 shutdownLatch.countDown();
             }
@@ -108,11 +161,30 @@ public class DaemonServer {
     }
 
     private void handleCheck(HttpExchange httpExchange) throws IOException {
-        ValidationCheckPipeline vcp = validationCheckPipeline.get();
-        String validationOutput = getValidationOutput(vcp);
+        String validationOutput = checks.run(() -> getValidationOutput(validationCheckPipeline.get()));
         sendResponse(httpExchange, 200, validationOutput);
     }
 
+    // Without a work tree watch or a live change set a change can go unnoticed, so the
+    // generation is unknown and every request waits for a check that starts after it
+    // arrived.
+    private CheckGeneration checkGeneration() {
+        if (!workTreeWatched || liveChangeSet == null) {
+            return null;
+        }
+        return new CheckGeneration(liveChangeSet.current().generation(), workTreeRevision.get());
+    }
+
+    private void handleChangeSet(HttpExchange httpExchange) throws IOException {
+        long generation = liveChangeSet == null ? 0 : liveChangeSet.current().generation();
+        String paths;
+        try (Stream<Path> changedFiles = changedFiles()) {
+            paths = changedFiles.map(Path::toString).collect(Collectors.joining("\n"));
+        }
+        httpExchange.getResponseHeaders().set("X-CodeCheck-Generation", Long.toString(generation));
+        sendResponse(httpExchange, 200, paths);
+    }
+
     private void sendResponse(HttpExchange httpExchange, int statusCode, String body) throws IOException {
         byte[] response = body.getBytes(StandardCharsets.UTF_8);
         httpExchange.sendResponseHeaders(statusCode, response.length == 0 ? -1 : response.length);
@@ -122,42 +194,208 @@ public class DaemonServer {
     }
 
     private String getValidationOutput(ValidationCheckPipeline vcp) throws IOException {
-        return fileSelector.selectFiles()
-            .map(vcp::checkFile)
-            .reduce(Stream::concat)
-            .orElse(Stream.empty())
-            .map(ValidationError::toString)
-            .collect(Collectors.joining("\n"));
+        try (Stream<Path> changedFiles = changedFiles()) {
+            return changedFiles.map(file -> diagnostics(vcp, file))
+                .flatMap(List::stream)
+                .map(ValidationError::toString)
+                .collect(Collectors.joining("\n"));
+        }
+    }
+
+    // Served from memory while the live change set is watched; the file selector asks git
+    // every time.
+    private Stream<Path> changedFiles() throws IOException {
+        if (liveChangeSet != null) {
+            LiveChangeSet.Snapshot snapshot = liveChangeSet.current();
+            migrateMoves(snapshot);
+            return snapshot.changeSet().paths();
+        }
+        return fileSelector.selectFiles();
+    }
+
+    private void migrateMoves(LiveChangeSet.Snapshot snapshot) {
+        long migrated = migratedGeneration.getAndAccumulate(snapshot.generation(), Math::max);
+        if (movedFileMigration != null && migrated < snapshot.generation()) {
+            movedFileMigration.apply(snapshot.changeSet(), validationState, dependencyGraph);
+        }
+    }
+
+    // While the work tree is watched every change marks its file stale, so current files
+    // are answered from memory. Stale files are validated by the first request that
+    // claims them; the others wait for that result.
+    private List<ValidationError> diagnostics(ValidationCheckPipeline vcp, Path file) {
+        if (!workTreeWatched) {
+            return validate(vcp, file);
+        }
+        try {
+            while (true) {
+                if (validationState.status(file) == FileValidationStatus.CURRENT) {
+                    return validationState.diagnostics(file).stream().map(Diagnostic::toValidationError).toList();
+                }
+                OptionalLong version = validationState.claim(file);
+                if (version.isEmpty()) {
+                    validationState.awaitSettled(file);
+                    continue;
+                }
+                Revalidation revalidation = revalidate(vcp, file, version.getAsLong());
+                if (revalidation.current()) {
+                    return revalidation.diagnostics();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the validation of " + file, e);
+        }
+    }
+
+    private Revalidation revalidate(ValidationCheckPipeline vcp, Path file, long version) {
+        boolean completed = false;
+        try {
+            List<ValidationError> diagnostics = validate(vcp, file);
+            boolean current = complete(file, version, diagnostics);
+            completed = true;
+            if (current) {
+                diagnosticPush.publish(file, diagnostics);
+            }
+            return new Revalidation(diagnostics, current);
+        }
+        finally {
+            // Whatever the validation threw, requests waiting for the file must not wait
+            // for a claim nobody completes.
+            if (!completed) {
+                validationState.abandon(file, version);
+            }
+        }
+    }
+
+    private boolean complete(Path file, long version, List<ValidationError> diagnostics) {
+        return validationState.complete(file, version,
+                diagnostics.stream().map(error -> Diagnostic.fromValidationError(error, PIPELINE_RULE)).toList());
+    }
+
+    // Each validation records the files it reads into a set of its own, so files can be
+    // validated concurrently; the graph is updated once the validation is done.
+    private List<ValidationError> validate(ValidationCheckPipeline vcp, Path file) {
+        Set<Path> dependencies = ConcurrentHashMap.newKeySet();
+        List<ValidationError> diagnostics = vcp.checkFile(file, dependencies::add).toList();
+        dependencyGraph.replaceDependencies(file, dependencies);
+        return diagnostics;
     }
 
     /**
-     * Marks the specified file as a dependency for the currently computed File.
-     * @param path The path of the file to mark.
+     * Called by the file watcher once it reports work tree changes.
      */
-    public void markFile(Path path) {
-        if (currentFile.equals(path)) {
-            return;
+    public void workTreeWatched() {
+        workTreeWatched = true;
+        if (liveChangeSet != null) {
+            liveChangeSet.workTreeWatched();
+        }
+    }
+
+    /**
+     * Forwards a work tree change to the live change set.
+     * @param path the changed file or directory
+     * @param contentOnly whether only the content of an existing file changed
+     */
+    public void workTreeChanged(Path path, boolean contentOnly) {
+        validationState.markStale(path);
+        dependencyGraph.invalidate(path, validationState);
+        if (liveChangeSet != null) {
+            liveChangeSet.workTreeChanged(path, contentOnly);
         }
-        fileDependencies.computeIfAbsent(currentFile, _ -> new HashSet<>()).add(path);
+        workTreeRevision.incrementAndGet();
     }
 
     /**
      * Updates the specified file and its dependencies.
      * @param path The path of the file to update.
      */
-    public synchronized void updateFile(Path path) {
+    public void updateFile(Path path) {
+        updateFiles(List.of(path));
+    }
+
+    /**
+     * Revalidates the changed files together with every file that depends on them,
+     * directly or transitively. Each file is validated once per call, however many
+     * changed files it depends on and even if the dependencies form a cycle. The files
+     * are validated in parallel and their new diagnostics are published together once all
+     * of them are done.
+     * @param paths the changed files
+     */
+    public synchronized void updateFiles(Collection<Path> paths) {
         refreshActivity();
-        if (fileDependencies.containsKey(path)) {
-            fileDependencies.get(path).forEach(this::updateFile);
+        Set<Path> batch = dependencyGraph.closure(paths);
+        batch.forEach(validationState::markStale);
+        // A file another request claimed in the meantime is validated by that request.
+        Map<Path, Long> claims = new LinkedHashMap<>();
+        batch.forEach(file -> validationState.claim(file).ifPresent(version -> claims.put(file, version)));
+        Map<Path, List<ValidationError>> current = new LinkedHashMap<>();
+        try {
+            Map<Path, List<ValidationError>> results = validateBatch(validationCheckPipeline.get(), claims);
+            claims.forEach((file, version) -> {
+                List<ValidationError> diagnostics = results.get(file);
+                if (diagnostics != null && complete(file, version, diagnostics)) {
+                    current.put(file, diagnostics);
+                }
+            });
+        }
+        finally {
+            // Gives up the claims of failed files, and all of them if the batch itself
+            // failed; completed claims are left alone.
+            claims.forEach(validationState::abandon);
+        }
+        diagnosticPush.publish(current);
+        current.values().stream().flatMap(List::stream).map(ValidationError::toString).forEach(System.out::println);
+    }
+
+    private Map<Path, List<ValidationError>> validateBatch(ValidationCheckPipeline vcp, Map<Path, Long> claims) {
+        Map<Path, List<ValidationError>> results = new ConcurrentHashMap<>();
+        int parallelism = Math.min(claims.size(), Runtime.getRuntime().availableProcessors());
+        if (parallelism <= 1) {
+            claims.keySet().forEach(file -> validateInto(vcp, file, results));
+            return results;
+        }
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            pool.submit(() -> claims.keySet().parallelStream().forEach(file -> validateInto(vcp, file, results)))
+                .join();
+        }
+        return results;
+    }
+
+    // A failing file is left out of the results, so its claim is given up while the rest
+    // of the batch is still published.
+    private void validateInto(ValidationCheckPipeline vcp, Path file, Map<Path, List<ValidationError>> results) {
+        try {
+            results.put(file, validate(vcp, file));
+        }
+        catch (RuntimeException e) {
+            System.err.println("Failed to validate " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void closeLiveChangeSet() {
+        if (liveChangeSet == null) {
+            return;
+        }
+        try {
+            liveChangeSet.close();
+        }
+        catch (Exception e) {
+            // The watch dies with the daemon anyway.
         }
-        this.currentFile = path;
-        validationCheckPipeline.get().checkFile(path).map(ValidationError::toString).forEach(System.out::println);
     }
 
     private void refreshActivity() {
         lastActivity.set(Instant.now());
     }
 
+    private record Revalidation(List<ValidationError> diagnostics, boolean current) {
+    }
+
+    private record CheckGeneration(long changeSet, long workTree) {
+    }
+
     @FunctionalInterface
     private interface ThrowingRunnable {
 
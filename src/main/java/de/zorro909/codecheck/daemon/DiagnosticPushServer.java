@@ -0,0 +1,414 @@
+package de.zorro909.codecheck.daemon;
+
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes diagnostic updates of the daemon to WebSocket subscribers. Each message carries
+ * the complete diagnostics of one file and is only sent when they differ from the last
+ * message for that file. A new subscriber first receives the last message of every file
+ * that currently has diagnostics.
+ * <p>
+ * Only the part of RFC 6455 the daemon needs is implemented: the handshake, unfragmented
+ * text frames to the client, and ping and close frames from the client.
+ */
+final class DiagnosticPushServer implements AutoCloseable {
+
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int MAX_HEADER_BYTES = 8192;
+
+    private static final int MAX_CLIENT_PAYLOAD = 125;
+
+    // Subscribers that fall this far behind are dropped rather than buffered.
+    private static final int MAX_PENDING_FRAMES = 1024;
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(1);
+
+    private static final int OPCODE_TEXT = 0x1;
+
+    private static final int OPCODE_CLOSE = 0x8;
+
+    private static final int OPCODE_PING = 0x9;
+
+    private static final int OPCODE_PONG = 0xA;
+
+    private static final int CLOSE_GOING_AWAY = 1001;
+
+    private final Map<Path, String> published = new LinkedHashMap<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private volatile ServerSocket serverSocket;
+
+    private volatile String token = "";
+
+    /**
+     * Starts accepting subscribers in the background.
+     * @param host the address to bind to
+     * @param port the port to bind to, 0 for any free port
+     * @param token the token subscribers have to send in the {@code X-CodeCheck-Token}
+     * header
+     * @throws IOException if the port cannot be bound
+     */
+    void start(String host, int port, String token) throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(host, port));
+        this.token = token;
+        this.serverSocket = socket;
+        Thread.ofVirtual().name("diagnostic-push").start(() -> accept(socket));
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Records the diagnostics of a file and sends them to all subscribers if they
+     * changed.
+     * @param file the validated file
+     * @param diagnostics all diagnostics the file has now
+     */
+    synchronized void publish(Path file, List<ValidationError> diagnostics) {
+        publish(Map.of(file, diagnostics));
+    }
+
+    /**
+     * Publishes the diagnostics of several files at once. Subscribers receive the changed
+     * ones back to back, without other updates in between.
+     * @param diagnosticsByFile all diagnostics each file has now
+     */
+    synchronized void publish(Map<Path, List<ValidationError>> diagnosticsByFile) {
+        diagnosticsByFile.forEach(this::send);
+    }
+
+    private void send(Path file, List<ValidationError> diagnostics) {
+        Path normalized = file.toAbsolutePath().normalize();
+        String message = message(normalized, diagnostics);
+        String previous = diagnostics.isEmpty() ? published.remove(normalized) : published.put(normalized, message);
+        if (message.equals(previous) || (previous == null && diagnostics.isEmpty())) {
+            return;
+        }
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        subscribers.forEach(subscriber -> subscriber.send(OPCODE_TEXT, payload));
+    }
+
+    @Override
+    public void close() {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            }
+            catch (IOException e) {
+                // Nothing left to accept either way.
+            }
+        }
+        subscribers.forEach(subscriber -> {
+            subscriber.sendClose(CLOSE_GOING_AWAY);
+            subscriber.finish();
+        });
+        subscribers.clear();
+    }
+
+    private void accept(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                Socket connection = socket.accept();
+                Thread.ofVirtual().name("diagnostic-push-client").start(() -> serve(connection));
+            }
+            catch (IOException e) {
+                // Closed by close().
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        Subscriber subscriber = null;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            if (!handshake(in, connection.getOutputStream())) {
+                connection.close();
+                return;
+            }
+            subscriber = subscribe(connection);
+            readFrames(in, subscriber);
+        }
+        catch (IOException e) {
+            // The client went away.
+        }
+        finally {
+            if (subscriber != null) {
+                subscribers.remove(subscriber);
+                subscriber.finish();
+            }
+            else {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    // Holds the publish lock so the subscriber sees the current state followed by every
+    // later change, without gaps or reordering. The current state is written before the
+    // queue and does not count against its limit, which only applies to live updates.
+    private synchronized Subscriber subscribe(Socket connection) throws IOException {
+        List<byte[]> snapshot = published.values()
+            .stream()
+            .map(message -> message.getBytes(StandardCharsets.UTF_8))
+            .toList();
+        Subscriber subscriber = new Subscriber(connection, snapshot);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    private boolean handshake(InputStream in, OutputStream out) throws IOException {
+        List<String> lines = readHeader(in);
+        Map<String, String> headers = new HashMap<>();
+        lines.stream().skip(1).forEach(line -> {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                headers.put(line.substring(0, separator).trim().toLowerCase(Locale.ROOT),
+                        line.substring(separator + 1).trim());
+            }
+        });
+        String key = headers.get("sec-websocket-key");
+        if (lines.isEmpty() || !lines.get(0).startsWith("GET ") || key == null
+                || !"websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+            respond(out, "HTTP/1.1 400 Bad Request\r\nConnection: close\r\n\r\n");
+            return false;
+        }
+        if (token.isEmpty() || !token.equals(headers.get("x-codecheck-token"))) {
+            respond(out, "HTTP/1.1 401 Unauthorized\r\nConnection: close\r\n\r\n");
+            return false;
+        }
+        respond(out, "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n");
+        return true;
+    }
+
+    private static List<String> readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int next = in.read();
+            if (next < 0 || header.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Incomplete WebSocket handshake");
+            }
+            header.write(next);
+            matched = next == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : (next == '\r' ? 1 : 0);
+        }
+        return header.toString(StandardCharsets.ISO_8859_1).lines().filter(line -> !line.isEmpty()).toList();
+    }
+
+    private static void respond(OutputStream out, String response) throws IOException {
+        out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is unavailable", e);
+        }
+    }
+
+    // Clients have nothing to tell the daemon, so data frames are read and dropped.
+    private static void readFrames(DataInputStream in, Subscriber subscriber) throws IOException {
+        while (true) {
+            int first = in.readUnsignedByte();
+            int second = in.readUnsignedByte();
+            int opcode = first & 0x0F;
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            }
+            else if (length == 127) {
+                length = in.readLong();
+            }
+            boolean masked = (second & 0x80) != 0;
+            boolean control = (opcode & 0x8) != 0;
+            if (!masked || length < 0 || (control && length > MAX_CLIENT_PAYLOAD)) {
+                throw new IOException("Malformed WebSocket frame");
+            }
+            byte[] mask = new byte[4];
+            in.readFully(mask);
+            if (!control) {
+                in.skipNBytes(length);
+                continue;
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i % 4];
+            }
+            if (opcode == OPCODE_CLOSE) {
+                subscriber.sendClose(payload.length >= 2 ? ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF) : 1000);
+                return;
+            }
+            if (opcode == OPCODE_PING) {
+                subscriber.send(OPCODE_PONG, payload);
+            }
+        }
+    }
+
+    private static String message(Path file, List<ValidationError> diagnostics) {
+        return diagnostics.stream()
+            .map(diagnostic -> "{\"severity\":\"%s\",\"line\":%d,\"column\":%d,\"message\":\"%s\"}".formatted(
+                    diagnostic.severity(), diagnostic.position().line, diagnostic.position().column,
+                    escape(diagnostic.errorMessage())))
+            .collect(Collectors.joining(",", "{\"file\":\"" + escape(file.toString()) + "\",\"diagnostics\":[", "]}"));
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append("\\u%04x".formatted((int) c));
+                    }
+                    else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static void writeFrame(OutputStream out, Frame frame) throws IOException {
+        byte[] payload = frame.payload();
+        out.write(0x80 | frame.opcode());
+        if (payload.length < 126) {
+            out.write(payload.length);
+        }
+        else if (payload.length <= 0xFFFF) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length & 0xFF);
+        }
+        else {
+            out.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (((long) payload.length >>> shift) & 0xFF));
+            }
+        }
+        out.write(payload);
+        out.flush();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // Already gone.
+        }
+    }
+
+    private record Frame(int opcode, byte[] payload) {
+    }
+
+    // Written by a thread of its own, so a slow client never blocks publishing.
+    private static final class Subscriber {
+
+        private static final Frame STOP = new Frame(-1, new byte[0]);
+
+        private final Socket socket;
+
+        private final OutputStream out;
+
+        private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>(MAX_PENDING_FRAMES);
+
+        private final AtomicBoolean closeSent = new AtomicBoolean();
+
+        private final Thread writer;
+
+        private Subscriber(Socket socket, List<byte[]> snapshot) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.writer = Thread.ofVirtual().name("diagnostic-push-writer").start(() -> write(snapshot));
+        }
+
+        private void send(int opcode, byte[] payload) {
+            if (!closeSent.get() && !frames.offer(new Frame(opcode, payload))) {
+                closeQuietly(socket);
+            }
+        }
+
+        private void sendClose(int code) {
+            if (closeSent.compareAndSet(false, true)) {
+                frames.offer(new Frame(OPCODE_CLOSE, new byte[] { (byte) (code >>> 8), (byte) code }));
+            }
+        }
+
+        private void finish() {
+            frames.offer(STOP);
+            try {
+                writer.join(CLOSE_TIMEOUT);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer.interrupt();
+            closeQuietly(socket);
+        }
+
+        private void write(List<byte[]> snapshot) {
+            try {
+                for (byte[] message : snapshot) {
+                    writeFrame(out, new Frame(OPCODE_TEXT, message));
+                }
+                for (Frame frame = frames.take(); frame != STOP; frame = frames.take()) {
+                    writeFrame(out, frame);
+                }
+            }
+            catch (IOException | InterruptedException e) {
+                closeQuietly(socket);
+            }
+        }
+
+    }
+
+}
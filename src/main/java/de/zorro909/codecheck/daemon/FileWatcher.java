@@ -3,6 +3,7 @@ package de.zorro909.codecheck.daemon;
 import de.zorro909.codecheck.core.RepositoryPathProvider;
 import de.zorro909.codecheck.cli.RequiresCliOption;
 import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
+import de.zorro909.codecheck.core.project.JavaParserService;
 import io.micronaut.context.annotation.Requires;
 import jakarta.inject.Singleton;
 
@@ -41,6 +42,8 @@ public class FileWatcher implements Runnable {
 
     private final CodeCheckConfigLoader configLoader;
 
+    private final JavaParserService javaParserService;
+
     private final Map<WatchKey, Path> watchKeys = new HashMap<>();
 
     private final CopyOnWriteArrayList<Path> filesToUpdate = new CopyOnWriteArrayList<>();
@@ -56,10 +59,11 @@ public class FileWatcher implements Runnable {
     private final Executor taskExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public FileWatcher(DaemonServer daemonServer, RepositoryPathProvider repositoryPathProvider,
-            CodeCheckConfigLoader configLoader) {
+            CodeCheckConfigLoader configLoader, JavaParserService javaParserService) {
         this.daemonServer = daemonServer;
         this.repositoryPathProvider = repositoryPathProvider;
         this.configLoader = configLoader;
+        this.javaParserService = javaParserService;
     }
 
     /**
@@ -88,6 +92,7 @@ public class FileWatcher implements Runnable {
             .forEach(this::registerDirectory);
 
         watchThread = Thread.ofVirtual().name("file-watcher").start(this);
+        daemonServer.workTreeWatched();
     }
 
     private void registerDirectory(Path directory) {
@@ -142,6 +147,10 @@ public class FileWatcher implements Runnable {
 
         System.out.println(kind.name() + ": " + fileName);
 
+        // Keeps the source type index current right away, independent of the debounce.
+        javaParserService.invalidate(fileName);
+        daemonServer.workTreeChanged(fileName, kind == ENTRY_MODIFY);
+
         if (Files.isDirectory(fileName)) {
             if (kind == ENTRY_CREATE) {
                 registerDirectory(fileName);
@@ -177,7 +186,7 @@ public class FileWatcher implements Runnable {
 
             List<Path> paths = List.copyOf(filesToUpdate);
             filesToUpdate.clear();
-            paths.stream().distinct().forEach(daemonServer::updateFile);
+            daemonServer.updateFiles(paths.stream().distinct().toList());
         }, taskExecutor);
     }
 
@@ -0,0 +1,198 @@
+package de.zorro909.codecheck.daemon;
+
+import de.zorro909.codecheck.core.RepositoryPathProvider;
+import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetService;
+import de.zorro909.codecheck.core.changeset.RepositoryStateWatcher;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the assistant change set of the daemon in memory. Changes to the index, HEAD, the
+ * refs and the work tree mark it dirty and trigger a refresh in the background, so
+ * readers normally get the current change set without invoking git.
+ */
+@Singleton
+public class LiveChangeSet implements AutoCloseable {
+
+    // Coalesces the burst of events a checkout or a save-all produces into one refresh.
+    private static final Duration REFRESH_DELAY = Duration.ofMillis(100);
+
+    private final ChangeSetService changeSetService;
+
+    private final RepositoryStateWatcher stateWatcher;
+
+    private final Path repositoryDirectory;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    private volatile AutoCloseable stateWatch;
+
+    private volatile boolean workTreeWatched;
+
+    @Inject
+    public LiveChangeSet(ChangeSetService changeSetService, RepositoryStateWatcher stateWatcher,
+            @Named(RepositoryPathProvider.REPOSITORY_DIRECTORY) Path repositoryDirectory) {
+        this.changeSetService = changeSetService;
+        this.stateWatcher = stateWatcher;
+        this.repositoryDirectory = repositoryDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Starts watching the git state and computes the first change set in the background.
+     */
+    public synchronized void start() {
+        try {
+            stateWatch = stateWatcher.watch(this::invalidate, this::stateWatchFailed);
+        }
+        catch (IOException e) {
+            // Without a watch every read recomputes the change set.
+            stateWatch = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * Declares that work tree changes are reported through
+     * {@link #workTreeChanged(Path, boolean)}. Until then the work tree may change
+     * unnoticed, so every read recomputes the change set.
+     */
+    public void workTreeWatched() {
+        workTreeWatched = true;
+    }
+
+    /**
+     * Records a change in the work tree.
+     * @param file the changed file or directory
+     * @param contentOnly whether only the content of an existing file changed
+     */
+    public void workTreeChanged(Path file, boolean contentOnly) {
+        // Editing a file the change set already lists as changed in the work tree keeps
+        // it listed, so repeated saves of the same file do not cost a git call. A save
+        // that happens to restore the committed content is picked up by the next
+        // refresh.
+        if (contentOnly && listedAsWorkTreeChange(file)) {
+            return;
+        }
+        invalidate();
+    }
+
+    /**
+     * @return the current change set and its generation, which changes whenever the
+     * change set does.
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && trusted()) {
+            return current;
+        }
+        return refresh();
+    }
+
+    @Override
+    public void close() throws Exception {
+        AutoCloseable watch = stateWatch;
+        stateWatch = null;
+        workTreeWatched = false;
+        if (watch != null) {
+            watch.close();
+        }
+    }
+
+    // Shares the lock with start, so a watch breaking right away is not stored after.
+    private synchronized void stateWatchFailed() {
+        AutoCloseable watch = stateWatch;
+        stateWatch = null;
+        if (watch != null) {
+            try {
+                watch.close();
+            }
+            catch (Exception e) {
+                // The broken watch is dropped either way.
+            }
+        }
+        invalidate();
+    }
+
+    private boolean trusted() {
+        return !dirty.get() && stateWatch != null && workTreeWatched;
+    }
+
+    private synchronized Snapshot refresh() {
+        Snapshot current = snapshot;
+        if (current != null && trusted()) {
+            return current;
+        }
+        dirty.set(false);
+        ChangeSet changeSet;
+        try {
+            changeSet = changeSetService.currentAssistantChangeSet();
+        }
+        catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+        if (current == null || !current.changeSet().equals(changeSet)) {
+            current = new Snapshot(changeSet, current == null ? 1 : current.generation() + 1);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private void invalidate() {
+        dirty.set(true);
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("changeset-refresh").start(() -> {
+            try {
+                Thread.sleep(REFRESH_DELAY);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            refreshScheduled.set(false);
+            try {
+                current();
+            }
+            catch (RuntimeException e) {
+                // The next read retries and reports the failure.
+            }
+        });
+    }
+
+    private boolean listedAsWorkTreeChange(Path file) {
+        Snapshot current = snapshot;
+        Path absolute = file.toAbsolutePath().normalize();
+        if (current == null || !absolute.startsWith(repositoryDirectory) || !Files.isRegularFile(absolute)) {
+            return false;
+        }
+        Path relative = repositoryDirectory.relativize(absolute);
+        return current.changeSet()
+            .entries()
+            .stream()
+            .anyMatch(entry -> entry.path().equals(relative) && !entry.deleted()
+                    && (entry.unstaged() || entry.untracked()));
+    }
+
+    /**
+     * A change set together with a counter that increases whenever it changes.
+     *
+     * @param changeSet the change set
+     * @param generation the generation of the change set
+     */
+    public record Snapshot(ChangeSet changeSet, long generation) {
+    }
+
+}
@@ -0,0 +1,375 @@
+package de.zorro909.codecheck.daemon;
+
+import de.zorro909.codecheck.core.config.CodeCheckConfig;
+import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
+import de.zorro909.codecheck.core.diagnostic.Diagnostic;
+import de.zorro909.codecheck.core.diagnostic.DiagnosticKind;
+import de.zorro909.codecheck.core.diagnostic.SourcePosition;
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.core.project.JavaParserService;
+import de.zorro909.codecheck.core.project.SourceOverlay;
+import de.zorro909.codecheck.core.project.SourceVersion;
+import de.zorro909.codecheck.core.validation.DiagnosticCache;
+import de.zorro909.codecheck.core.validation.ValidationContext;
+import de.zorro909.codecheck.core.validation.rule.Rule;
+import de.zorro909.codecheck.core.validation.rule.RuleId;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Singleton
+public class PersistentDiagnosticCache implements DiagnosticCache {
+
+    private static final int FORMAT_VERSION = 3;
+
+    private static final int GENERATIONS = 4;
+
+    private static final int VERSIONS_PER_ENTRY = 4;
+
+    private static final String ABSENT = "absent";
+
+    private final Path cacheDirectory;
+
+    private final CodeCheckConfigLoader configLoader;
+
+    private final String toolVersion;
+
+    private final Supplier<SourceOverlay> overlay;
+
+    private final DaemonMetadataStore metadataStore = new DaemonMetadataStore();
+
+    @Inject
+    public PersistentDiagnosticCache(DaemonProcessRegistry registry, CodeCheckConfigLoader configLoader,
+            JavaParserService javaParserService) {
+        this(registry.metadataDirectory().resolve("diagnostics"), configLoader, toolVersion(),
+                javaParserService::currentOverlay);
+    }
+
+    PersistentDiagnosticCache(Path cacheDirectory, CodeCheckConfigLoader configLoader, String toolVersion,
+            Supplier<SourceOverlay> overlay) {
+        this.cacheDirectory = cacheDirectory;
+        this.configLoader = configLoader;
+        this.toolVersion = toolVersion;
+        this.overlay = overlay;
+    }
+
+    @Override
+    public Scope open() {
+        CodeCheckConfig config = configLoader.load();
+        if (!config.validation().diagnosticCache()) {
+            return Scope.DISABLED;
+        }
+        // Everything that changes the output of all rules at once selects a generation
+        // directory. The most recently used generations are kept, so switching back and
+        // forth between branches or tool versions still finds warm entries.
+        String generation = hash(FORMAT_VERSION + "\n" + toolVersion + "\n"
+                + config.withValidation(CodeCheckConfig.defaults().validation()));
+        Path generationDirectory = cacheDirectory.resolve(generation);
+        try {
+            metadataStore.createOwnerOnlyDirectories(generationDirectory);
+            Files.setLastModifiedTime(generationDirectory, FileTime.from(Instant.now()));
+            deleteLeastRecentlyUsedGenerations();
+        }
+        catch (IOException | RuntimeException e) {
+            return Scope.DISABLED;
+        }
+        return new FileScope(generationDirectory, overlay.get());
+    }
+
+    private void deleteLeastRecentlyUsedGenerations() throws IOException {
+        List<Path> generations;
+        try (Stream<Path> directories = Files.list(cacheDirectory)) {
+            generations = directories.sorted(Comparator.comparing(PersistentDiagnosticCache::lastUsed).reversed())
+                .toList();
+        }
+        generations.stream().skip(GENERATIONS).forEach(metadataStore::delete);
+    }
+
+    private static FileTime lastUsed(Path generation) {
+        try {
+            return Files.getLastModifiedTime(generation);
+        }
+        catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String hash(String value) {
+        return SourceVersion.hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Release builds carry an implementation version. Development builds and native
+    // images use the location and content of the running code.
+    private static String toolVersion() {
+        String implementationVersion = PersistentDiagnosticCache.class.getPackage().getImplementationVersion();
+        if (implementationVersion != null) {
+            return implementationVersion;
+        }
+        try {
+            CodeSource codeSource = PersistentDiagnosticCache.class.getProtectionDomain().getCodeSource();
+            Optional<Path> location = codeSource == null ? ProcessHandle.current().info().command().map(Path::of)
+                    : Optional.of(Path.of(codeSource.getLocation().toURI()));
+            if (location.isPresent()) {
+                return location.get() + "@" + codeHash(location.get());
+            }
+        }
+        catch (IOException | URISyntaxException | NoSuchAlgorithmException | RuntimeException e) {
+            // Fall through to a version that never matches a previous run.
+        }
+        return "unknown@" + ProcessHandle.current().pid();
+    }
+
+    // A rebuild rewrites class files without touching the timestamp of their directory,
+    // so the code itself is hashed.
+    static String codeHash(Path location) throws IOException, NoSuchAlgorithmException {
+        List<Path> files;
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> tree = Files.walk(location)) {
+                files = tree.filter(Files::isRegularFile).sorted().toList();
+            }
+        }
+        else {
+            files = List.of(location);
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (Path file : files) {
+            digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static final class FileScope implements Scope {
+
+        private final Path directory;
+
+        private final SourceOverlay overlay;
+
+        private final ConcurrentMap<Path, Optional<String>> contentHashes = new ConcurrentHashMap<>();
+
+        private FileScope(Path directory, SourceOverlay overlay) {
+            this.directory = directory;
+            this.overlay = overlay;
+        }
+
+        @Override
+        public Optional<Entry> lookup(ValidationContext context, Path file, Rule rule) {
+            Optional<Path> entry = entry(context, file, rule);
+            if (entry.isEmpty() || !Files.isRegularFile(entry.get())) {
+                return Optional.empty();
+            }
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(entry.get()))) {
+                Map<Path, String> dependencies = readDependencies(in);
+                if (!dependencies.entrySet()
+                    .stream()
+                    .allMatch(dependency -> dependency.getValue().equals(dependencyHash(dependency.getKey())))) {
+                    return Optional.empty();
+                }
+                Entry cached = new Entry(read(in), Set.copyOf(dependencies.keySet()));
+                markUsed(entry.get());
+                return Optional.of(cached);
+            }
+            catch (IOException | RuntimeException e) {
+                deleteQuietly(entry.get());
+                return Optional.empty();
+            }
+        }
+
+        // Only rules that read other files keep their dependencies. The entry stays valid
+        // until one of them changes, appears or disappears.
+        @Override
+        public void store(ValidationContext context, Path file, Rule rule, List<Diagnostic> diagnostics,
+                Set<Path> dependencies) {
+            Optional<Path> entry = entry(context, file, rule);
+            if (entry.isEmpty()) {
+                return;
+            }
+            Path target = entry.get();
+            Set<Path> read = rule.metadata().fileLocal() ? Set.of() : dependencies;
+            try {
+                Files.createDirectories(target.getParent());
+                Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+                    writeDependencies(out, read);
+                    write(out, diagnostics);
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                deleteLeastRecentlyUsedVersions(target);
+            }
+            catch (IOException | RuntimeException e) {
+                // The cache is an optimization; a failed write only costs a revalidation.
+            }
+        }
+
+        // Every edit of a file stores a new version of its entries. A few are kept, so
+        // switching back and forth between branches still finds warm entries, the rest
+        // are dropped by last use.
+        private static void deleteLeastRecentlyUsedVersions(Path stored) throws IOException {
+            List<Path> versions;
+            try (Stream<Path> siblings = Files.list(stored.getParent())) {
+                versions = siblings.filter(version -> !version.equals(stored))
+                    .filter(version -> !version.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(PersistentDiagnosticCache::lastUsed).reversed())
+                    .toList();
+            }
+            versions.stream().skip(VERSIONS_PER_ENTRY - 1).forEach(FileScope::deleteQuietly);
+        }
+
+        // All versions of one rule's entry for one file share a directory, one file per
+        // content hash.
+        private Optional<Path> entry(ValidationContext context, Path file, Rule rule) {
+            Path absolute = file.toAbsolutePath().normalize();
+            return contentHashes.computeIfAbsent(absolute, this::contentHash).map(contentHash -> {
+                String key = hash(String.join("\n", context.mode().name(), absolute.toString(), rule.id().value(),
+                        rule.metadata().version()));
+                return directory.resolve(key.substring(0, 2)).resolve(key).resolve(hash(contentHash));
+            });
+        }
+
+        private String dependencyHash(Path dependency) {
+            return contentHashes.computeIfAbsent(dependency.toAbsolutePath().normalize(), this::contentHash)
+                .orElse(ABSENT);
+        }
+
+        private void writeDependencies(DataOutputStream out, Set<Path> dependencies) throws IOException {
+            List<Path> sorted = dependencies.stream().sorted().toList();
+            out.writeInt(sorted.size());
+            for (Path dependency : sorted) {
+                writeString(out, dependency.toString());
+                writeString(out, dependencyHash(dependency));
+            }
+        }
+
+        private static Map<Path, String> readDependencies(DataInputStream in) throws IOException {
+            int count = nonNegative(in.readInt());
+            Map<Path, String> dependencies = new LinkedHashMap<>();
+            for (int index = 0; index < count; index++) {
+                dependencies.put(Path.of(readString(in)), readString(in));
+            }
+            return dependencies;
+        }
+
+        // Files served by the overlay are validated from it, e.g. the staged blob during
+        // pre-commit, so they are keyed by its content id instead of the working tree.
+        // Package directories recorded by type resolution are keyed by their listing.
+        private Optional<String> contentHash(Path file) {
+            try {
+                Optional<SourceOverlay.Source> source = overlay.source(file);
+                if (source.isPresent()) {
+                    return Optional.of("overlay:" + source.get().contentId());
+                }
+                if (Files.isDirectory(file)) {
+                    return Optional.of("directory:" + hash(listing(file)));
+                }
+                return Optional.of(SourceVersion.hash(Files.readAllBytes(file)));
+            }
+            catch (IOException | RuntimeException e) {
+                return Optional.empty();
+            }
+        }
+
+        private static String listing(Path directory) throws IOException {
+            try (Stream<Path> entries = Files.list(directory)) {
+                return entries.map(entry -> entry.getFileName().toString()).sorted().collect(Collectors.joining("\n"));
+            }
+        }
+
+        private static List<Diagnostic> read(DataInputStream in) throws IOException {
+            int count = nonNegative(in.readInt());
+            List<Diagnostic> diagnostics = new ArrayList<>();
+            for (int index = 0; index < count; index++) {
+                Path file = Path.of(readString(in));
+                String message = readString(in);
+                SourcePosition position = new SourcePosition(in.readInt(), in.readInt());
+                ValidationError.Severity severity = ValidationError.Severity.valueOf(readString(in));
+                DiagnosticKind kind = DiagnosticKind.valueOf(readString(in));
+                RuleId ruleId = new RuleId(readString(in));
+                diagnostics.add(new Diagnostic(file, message, position, severity, kind, ruleId));
+            }
+            return List.copyOf(diagnostics);
+        }
+
+        private static void write(DataOutputStream out, List<Diagnostic> diagnostics) throws IOException {
+            out.writeInt(diagnostics.size());
+            for (Diagnostic diagnostic : diagnostics) {
+                writeString(out, diagnostic.file().toString());
+                writeString(out, diagnostic.message());
+                out.writeInt(diagnostic.position().line());
+                out.writeInt(diagnostic.position().column());
+                writeString(out, diagnostic.severity().name());
+                writeString(out, diagnostic.kind().name());
+                writeString(out, diagnostic.ruleId().value());
+            }
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[nonNegative(in.readInt())];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static int nonNegative(int value) throws IOException {
+            if (value < 0) {
+                throw new IOException("Corrupt diagnostic cache entry");
+            }
+            return value;
+        }
+
+        private static void markUsed(Path entry) {
+            try {
+                Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+            }
+            catch (IOException e) {
+                // The entry is only dropped a little earlier than it would be.
+            }
+        }
+
+        private static void deleteQuietly(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                // A broken entry that cannot be removed is simply overwritten later.
+            }
+        }
+
+    }
+
+}
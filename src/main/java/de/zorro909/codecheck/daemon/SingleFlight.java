@@ -0,0 +1,158 @@
+package de.zorro909.codecheck.daemon;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent requests share one computation. A request joins the computation in
+ * progress if that was started for the same generation. Otherwise it is answered by the
+ * next computation, which starts once the running one is done and is shared by every
+ * request that arrives in the meantime. A {@code null} generation is unknown and never
+ * matches the running computation.
+ *
+ * @param <G> the generation the result depends on
+ * @param <T> the result type
+ */
+final class SingleFlight<G, T> {
+
+    private final Supplier<G> generation;
+
+    // Not a monitor: the lookup may ask git, and virtual threads waiting on a monitor
+    // pin their carriers meanwhile.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Flight<G, T> running;
+
+    private CompletableFuture<T> next;
+
+    /**
+     * @param generation looks up the current generation; called while no other request
+     * can start or join a computation
+     */
+    SingleFlight(Supplier<G> generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Returns the result of a computation covering the current generation, computing it
+     * on the calling thread if no suitable one is running or queued.
+     * @param computation computes a fresh result
+     * @return the shared result
+     * @throws IOException if the shared computation failed with one
+     */
+    T run(Computation<T> computation) throws IOException {
+        CompletableFuture<T> result;
+        CompletableFuture<T> previous = null;
+        boolean compute = false;
+        lock.lock();
+        try {
+            G current = generation.get();
+            if (running == null) {
+                running = new Flight<>(current, new CompletableFuture<>());
+                result = running.result();
+                compute = true;
+            }
+            else if (current != null && current.equals(running.generation())) {
+                result = running.result();
+            }
+            else if (next != null) {
+                result = next;
+            }
+            else {
+                next = new CompletableFuture<>();
+                result = next;
+                previous = running.result();
+                compute = true;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if (compute) {
+            if (previous != null) {
+                previous.exceptionally(_ -> null).join();
+            }
+            compute(result, computation);
+        }
+        return await(result);
+    }
+
+    // The queued computation takes over before the result is handed out, so a request
+    // arriving in between cannot start a third one. Both happen whatever the computation
+    // throws; otherwise every later request would wait forever.
+    private void compute(CompletableFuture<T> result, Computation<T> computation) {
+        T value = null;
+        Throwable failure = null;
+        try {
+            value = computation.compute();
+        }
+        catch (Throwable e) {
+            failure = e;
+        }
+        finally {
+            try {
+                handOver();
+            }
+            finally {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                }
+                else {
+                    result.complete(value);
+                }
+            }
+        }
+    }
+
+    private void handOver() {
+        lock.lock();
+        try {
+            running = next == null ? null : new Flight<>(generationOrUnknown(), next);
+            next = null;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private G generationOrUnknown() {
+        try {
+            return generation.get();
+        }
+        catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result) throws IOException {
+        try {
+            return result.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    interface Computation<T> {
+
+        T compute() throws IOException;
+
+    }
+
+    private record Flight<G, T>(G generation, CompletableFuture<T> result) {
+    }
+
+}
@@ -0,0 +1,24 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.config.CodeCheckConfig;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Where the current branch stands relative to the configured main branches. It stays valid
+// while the git config section and the stamps of HEAD and the involved refs are unchanged;
+// without stamps it is never reused.
+record BranchModel(CodeCheckConfig.Git config, Pattern releasePattern, String branch, List<String> refStamps,
+        Optional<String> baseBranch, Optional<String> mergeBase) {
+
+    boolean validFor(CodeCheckConfig.Git currentConfig, String currentBranch, List<String> currentStamps) {
+        return refStamps != null && config.equals(currentConfig) && branch.equals(currentBranch)
+                && refStamps.equals(currentStamps);
+    }
+
+    boolean mainLike() {
+        return baseBranch.isEmpty();
+    }
+
+}
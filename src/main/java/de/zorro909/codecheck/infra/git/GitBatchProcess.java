@@ -0,0 +1,113 @@
+package de.zorro909.codecheck.infra.git;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+// A long-running "git cat-file --batch" style helper. Queries are written one per line to
+// its stdin and answered on its stdout, so a lookup costs a pipe round-trip instead of a
+// fork. The process is started lazily and restarted once when a query fails. A failed
+// query may leave part of its answer unread, so the helper is never reused after one.
+final class GitBatchProcess implements AutoCloseable {
+
+    private final Path repositoryDirectory;
+
+    private final List<String> command;
+
+    private Process process;
+
+    private OutputStream requests;
+
+    private InputStream responses;
+
+    GitBatchProcess(Path repositoryDirectory, List<String> command) {
+        this.repositoryDirectory = repositoryDirectory;
+        this.command = List.copyOf(command);
+    }
+
+    synchronized <T> T query(String request, ResponseReader<T> reader) {
+        try {
+            return attempt(request, reader);
+        }
+        catch (IOException | RuntimeException first) {
+            close();
+            try {
+                return attempt(request, reader);
+            }
+            catch (IOException | RuntimeException second) {
+                close();
+                second.addSuppressed(first);
+                throw new GitCommandException(
+                        "git " + String.join(" ", command.subList(1, command.size())) + " failed for " + request,
+                        second);
+            }
+        }
+    }
+
+    private <T> T attempt(String request, ResponseReader<T> reader) throws IOException {
+        if (process == null || !process.isAlive()) {
+            start();
+        }
+        requests.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+        requests.flush();
+        return reader.read(this);
+    }
+
+    private void start() throws IOException {
+        close();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(repositoryDirectory.toFile());
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        process = builder.start();
+        requests = process.getOutputStream();
+        responses = new BufferedInputStream(process.getInputStream());
+    }
+
+    String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(96);
+        int next;
+        while ((next = responses.read()) != '\n') {
+            if (next < 0) {
+                throw new EOFException("git " + command.get(1) + " closed its output");
+            }
+            line.write(next);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes(int length) throws IOException {
+        byte[] bytes = responses.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("git " + command.get(1) + " closed its output");
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (process != null) {
+            try {
+                requests.close();
+            }
+            catch (IOException ignored) {
+                // The helper is destroyed below either way.
+            }
+            process.destroy();
+            process = null;
+        }
+    }
+
+    @FunctionalInterface
+    interface ResponseReader<T> {
+
+        T read(GitBatchProcess process) throws IOException;
+
+    }
+
+}
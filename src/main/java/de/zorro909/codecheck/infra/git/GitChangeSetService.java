@@ -7,16 +7,21 @@ import de.zorro909.codecheck.core.changeset.ChangeSet;
 import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
 import de.zorro909.codecheck.core.changeset.ChangeSetService;
 import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import de.zorro909.codecheck.core.project.SourceOverlay;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Singleton
@@ -28,6 +33,10 @@ public class GitChangeSetService implements ChangeSetService {
 
     private final GitCommandRunner git;
 
+    private volatile Optional<GitRepository> repository;
+
+    private volatile BranchModel branchModel;
+
     @Inject
     public GitChangeSetService(@Named(RepositoryPathProvider.REPOSITORY_DIRECTORY) Path repositoryDirectory,
             CodeCheckConfigLoader configLoader) {
@@ -40,22 +49,80 @@ public class GitChangeSetService implements ChangeSetService {
         this.git = git;
     }
 
+    // Stops the long-running git helpers with the application context.
+    @PreDestroy
+    public void close() {
+        git.close();
+    }
+
     @Override
     public ChangeSet currentAssistantChangeSet() {
-        List<ChangeSetEntry> entries = new ArrayList<>(branchAwareChangeSet().entries());
-        entries.addAll(untrackedJavaEntries());
+        BranchModel model = branchModel();
+        PorcelainStatus status = status(true);
+        List<ChangeSetEntry> entries = new ArrayList<>(
+                model.mainLike() ? mainBranchChangeSet(status).entries() : featureBranchChangeSet(model).entries());
+        entries.addAll(untrackedJavaEntries(status));
         return deduplicate(entries);
     }
 
     @Override
     public ChangeSet currentInteractiveCheckChangeSet() {
-        return branchAwareChangeSet();
+        BranchModel model = branchModel();
+        return model.mainLike() ? mainBranchChangeSet(status(false)) : featureBranchChangeSet(model);
+    }
+
+    // Hands paths over while git is still reporting, so validation of the first file
+    // overlaps with the rest of the status or diff.
+    @Override
+    public void streamInteractiveCheckChangeSet(Consumer<ChangeSetEntry> sink) {
+        BranchModel model = branchModel();
+        if (model.mainLike()) {
+            status(false, sink);
+        }
+        else {
+            featureBranchChanges(model, sink);
+        }
+    }
+
+    @Override
+    public void streamPreCommitChangeSet(Consumer<ChangeSetEntry> sink) {
+        nativePreCommitChangeSet().ifPresentOrElse(changeSet -> changeSet.entries().forEach(sink),
+                () -> nameStatus(sink, true, false, "pre-commit staged path", "diff", "--cached", "--name-status", "-z",
+                        "--relative"));
     }
 
     @Override
     public ChangeSet preCommitChangeSet() {
-        return parseNameStatus(git.run("diff", "--cached", "--name-status", "--relative"), true, false,
-                "pre-commit staged path");
+        return nativePreCommitChangeSet().orElseGet(() -> nameStatus(true, false, "pre-commit staged path", "diff",
+                "--cached", "--name-status", "-z", "--relative"));
+    }
+
+    // Pre-commit validates the staged content, which differs from disk for partially
+    // staged files.
+    @Override
+    public SourceOverlay preCommitSources() {
+        Path workTree = repository().map(GitRepository::workTree)
+            .orElseGet(() -> Path.of(git.run("rev-parse", "--show-toplevel").get(0)));
+        return new StagedSourceOverlay(git, workTree);
+    }
+
+    // Reads .git/index and the HEAD tree in-process so the hook does not have to start
+    // git.
+    private Optional<ChangeSet> nativePreCommitChangeSet() {
+        return repository().flatMap(repository -> StagedChangesReader.read(repository, System.getenv()).map(changes -> {
+            String prefix = repository.prefix(repositoryDirectory);
+            return deduplicate(changes.entrySet()
+                .stream()
+                .filter(change -> change.getKey().startsWith(prefix))
+                .filter(change -> change.getValue().status() != GitFileStatus.DELETED)
+                .map(change -> new ChangeSetEntry(Path.of(change.getKey().substring(prefix.length())),
+                        change.getValue().status(), true, false, false, false, "pre-commit staged path",
+                        change.getValue()
+                            .previousPath()
+                            .filter(previous -> previous.startsWith(prefix))
+                            .map(previous -> Path.of(previous.substring(prefix.length())))))
+                .toList());
+        }));
     }
 
     @Override
@@ -74,87 +141,145 @@ public class GitChangeSetService implements ChangeSetService {
         return repositoryDirectory.relativize(normalized);
     }
 
-    private ChangeSet branchAwareChangeSet() {
+    // Reused across queries until HEAD, a main branch or the git config section moves;
+    // checking that costs a few stat calls instead of rev-parse and merge-base forks.
+    private BranchModel branchModel() {
         CodeCheckConfig.Git gitConfig = configLoader.load().git();
-        String currentBranch = currentBranch();
-        if (isMainLikeBranch(currentBranch, gitConfig)) {
-            return mainBranchChangeSet();
+        BranchModel cached = branchModel;
+        Optional<GitRepository> repository = repository().filter(candidate -> !candidate.usesReftable());
+        if (repository.isPresent()) {
+            try {
+                String branch = repository.get().currentBranch();
+                List<String> refNames = new ArrayList<>(gitConfig.mainBranches());
+                refNames.add(branch);
+                List<String> stamps = repository.get().refStamps(refNames);
+                if (cached != null && cached.validFor(gitConfig, branch, stamps)) {
+                    return cached;
+                }
+                BranchModel model = buildBranchModel(gitConfig, branch, stamps, cached);
+                branchModel = model;
+                return model;
+            }
+            catch (IOException e) {
+                // Fall through to asking git.
+            }
+        }
+        List<String> branch = git.run("branch", "--show-current");
+        return buildBranchModel(gitConfig, branch.isEmpty() ? "" : branch.get(0), null, cached);
+    }
+
+    private BranchModel buildBranchModel(CodeCheckConfig.Git gitConfig, String branch, List<String> stamps,
+            BranchModel previous) {
+        Pattern releasePattern = releasePattern(gitConfig, previous);
+        if (gitConfig.mainBranches().contains(branch) || releasePattern.matcher(branch).matches()) {
+            return new BranchModel(gitConfig, releasePattern, branch, stamps, Optional.empty(), Optional.empty());
+        }
+        Optional<String> baseBranch = firstExistingMainBranch(gitConfig.mainBranches());
+        return new BranchModel(gitConfig, releasePattern, branch, stamps, baseBranch, baseBranch.map(this::mergeBase));
+    }
+
+    private Pattern releasePattern(CodeCheckConfig.Git gitConfig, BranchModel previous) {
+        if (previous != null && previous.config().releaseBranchPattern().equals(gitConfig.releaseBranchPattern())) {
+            return previous.releasePattern();
         }
+        return Pattern.compile(gitConfig.releaseBranchPattern());
+    }
+
+    // Without a common ancestor the branch tip itself is the only sensible base.
+    private String mergeBase(String baseBranch) {
+        try {
+            List<String> mergeBase = git.run("merge-base", "HEAD", baseBranch);
+            return mergeBase.isEmpty() ? baseBranch : mergeBase.get(0);
+        }
+        catch (GitCommandException e) {
+            return baseBranch;
+        }
+    }
+
+    // One status call yields both sides of the index and the untracked files for the
+    // assistant. The "." pathspec limits it to the repository directory like --relative.
+    private PorcelainStatus status(boolean untracked) {
+        return status(untracked, _ -> {
+        });
+    }
 
-        return firstExistingMainBranch(gitConfig.mainBranches()).map(this::featureBranchChangeSet)
-            .orElseGet(this::mainBranchChangeSet);
+    private PorcelainStatus status(boolean untracked, Consumer<ChangeSetEntry> listener) {
+        PorcelainStatus.Collector collector = new PorcelainStatus.Collector(prefix(), path -> path.endsWith(".java"),
+                listener);
+        git.forEachRecord(collector, "status", "--porcelain=v2", "-z",
+                untracked ? "--untracked-files=all" : "--untracked-files=no", "--", ".");
+        return collector.result();
     }
 
-    private ChangeSet mainBranchChangeSet() {
+    private ChangeSet mainBranchChangeSet(PorcelainStatus status) {
         List<ChangeSetEntry> entries = new ArrayList<>();
-        entries.addAll(parseNameStatus(git.run("diff", "--name-status", "--relative"), false, true, "unstaged change")
-            .entries());
-        entries.addAll(parseNameStatus(git.run("diff", "--cached", "--name-status", "--relative"), true, false,
-                "staged change")
-            .entries());
+        entries.addAll(withoutDeleted(status.unstaged()));
+        entries.addAll(withoutDeleted(status.staged()));
         return deduplicate(entries);
     }
 
-    private ChangeSet featureBranchChangeSet(String baseBranch) {
-        return parseNameStatus(git.run("diff", "--name-status", "--relative", baseBranch), false, true,
-                "direct diff against " + baseBranch);
+    // Diffing against the merge-base keeps upstream work on the main branch out of the
+    // change set of a long-lived feature branch.
+    private ChangeSet featureBranchChangeSet(BranchModel model) {
+        List<ChangeSetEntry> entries = new ArrayList<>();
+        featureBranchChanges(model, entries::add);
+        return deduplicate(entries);
+    }
+
+    private void featureBranchChanges(BranchModel model, Consumer<ChangeSetEntry> sink) {
+        String baseBranch = model.baseBranch().orElseThrow();
+        nameStatus(sink, false, true, "diff against merge-base with " + baseBranch, "diff", "--name-status", "-z",
+                "--relative", model.mergeBase().orElse(baseBranch));
     }
 
-    private List<ChangeSetEntry> untrackedJavaEntries() {
-        return git.run("ls-files", "--others", "--exclude-standard")
+    private List<ChangeSetEntry> untrackedJavaEntries(PorcelainStatus status) {
+        return status.untracked()
             .stream()
-            .filter(path -> path.endsWith(".java"))
-            .map(path -> new ChangeSetEntry(Path.of(path), GitFileStatus.UNTRACKED, false, false, true, false,
+            .map(path -> new ChangeSetEntry(path, GitFileStatus.UNTRACKED, false, false, true, false,
                     "untracked java file"))
             .toList();
     }
 
-    private String currentBranch() {
-        List<String> branches = git.run("branch", "--show-current");
-        return branches.isEmpty() ? "" : branches.get(0);
+    private Optional<String> firstExistingMainBranch(List<String> mainBranches) {
+        return mainBranches.stream().filter(this::refExists).findFirst();
     }
 
-    private boolean isMainLikeBranch(String currentBranch, CodeCheckConfig.Git gitConfig) {
-        Pattern releasePattern = Pattern.compile(gitConfig.releaseBranchPattern());
-        return gitConfig.mainBranches().contains(currentBranch) || releasePattern.matcher(currentBranch).matches();
+    private boolean refExists(String name) {
+        return repository().flatMap(repository -> repository.refExists(name))
+            .orElseGet(() -> git.resolve(name).isPresent());
     }
 
-    private java.util.Optional<String> firstExistingMainBranch(List<String> mainBranches) {
-        return mainBranches.stream()
-            .filter(branch -> git.succeeds("rev-parse", "--verify", "--quiet", branch))
-            .findFirst();
+    private String prefix() {
+        return repository().map(repository -> repository.prefix(repositoryDirectory)).orElseGet(() -> {
+            List<String> prefix = git.run("rev-parse", "--show-prefix");
+            return prefix.isEmpty() ? "" : prefix.get(0);
+        });
     }
 
-    private ChangeSet parseNameStatus(List<String> lines, boolean staged, boolean unstaged, String originReason) {
-        return deduplicate(lines.stream()
-            .map(line -> parseNameStatusLine(line, staged, unstaged, originReason))
-            .filter(entry -> !entry.deleted())
-            .toList());
+    private Optional<GitRepository> repository() {
+        Optional<GitRepository> current = repository;
+        if (current == null) {
+            current = GitRepository.discover(repositoryDirectory);
+            repository = current;
+        }
+        return current;
     }
 
-    private ChangeSetEntry parseNameStatusLine(String line, boolean staged, boolean unstaged, String originReason) {
-        String[] parts = line.split("\t");
-        if (parts.length < 2) {
-            throw new GitCommandException("Unexpected git name-status output: " + line);
-        }
-        GitFileStatus status = status(parts[0]);
-        Path path = Path.of(parts.length >= 3 && (status == GitFileStatus.RENAMED || status == GitFileStatus.COPIED)
-                ? parts[2] : parts[1]);
-        boolean deleted = status == GitFileStatus.DELETED;
-        return new ChangeSetEntry(path, status, staged, unstaged, false, deleted, originReason);
-    }
-
-    private GitFileStatus status(String statusText) {
-        return switch (statusText.charAt(0)) {
-            case 'A' -> GitFileStatus.ADDED;
-            case 'C' -> GitFileStatus.COPIED;
-            case 'D' -> GitFileStatus.DELETED;
-            case 'M' -> GitFileStatus.MODIFIED;
-            case 'R' -> GitFileStatus.RENAMED;
-            case 'T' -> GitFileStatus.TYPE_CHANGED;
-            case 'U' -> GitFileStatus.UNMERGED;
-            default -> GitFileStatus.UNKNOWN;
-        };
+    private ChangeSet nameStatus(boolean staged, boolean unstaged, String originReason, String... args) {
+        List<ChangeSetEntry> entries = new ArrayList<>();
+        nameStatus(entries::add, staged, unstaged, originReason, args);
+        return deduplicate(entries);
+    }
+
+    private void nameStatus(Consumer<ChangeSetEntry> sink, boolean staged, boolean unstaged, String originReason,
+            String... args) {
+        NameStatusCollector collector = new NameStatusCollector(staged, unstaged, originReason, sink);
+        git.forEachRecord(collector, args);
+        collector.finish();
+    }
+
+    private List<ChangeSetEntry> withoutDeleted(List<ChangeSetEntry> entries) {
+        return entries.stream().filter(entry -> !entry.deleted()).toList();
     }
 
     private ChangeSet deduplicate(List<ChangeSetEntry> entries) {
@@ -168,7 +293,64 @@ public class GitChangeSetService implements ChangeSetService {
     private ChangeSetEntry merge(ChangeSetEntry left, ChangeSetEntry right) {
         return new ChangeSetEntry(left.path(), right.status(), left.staged() || right.staged(),
                 left.unstaged() || right.unstaged(), left.untracked() || right.untracked(),
-                left.deleted() && right.deleted(), left.originReason() + ", " + right.originReason());
+                left.deleted() && right.deleted(), left.originReason() + ", " + right.originReason(),
+                right.previousPath().or(left::previousPath));
+    }
+
+    // "diff --name-status -z" output is a status record followed by one path record,
+    // or by source and destination records for renames and copies.
+    private static final class NameStatusCollector implements GitCommandRunner.RecordConsumer {
+
+        private final boolean staged;
+
+        private final boolean unstaged;
+
+        private final String originReason;
+
+        private final Consumer<ChangeSetEntry> sink;
+
+        private GitFileStatus pendingStatus;
+
+        private int pendingPaths;
+
+        private Path pendingSource;
+
+        private NameStatusCollector(boolean staged, boolean unstaged, String originReason,
+                Consumer<ChangeSetEntry> sink) {
+            this.staged = staged;
+            this.unstaged = unstaged;
+            this.originReason = originReason;
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(byte[] record, int length) {
+            if (pendingStatus == null) {
+                pendingStatus = PorcelainStatus.status((char) record[0]);
+                pendingPaths = pendingStatus == GitFileStatus.RENAMED || pendingStatus == GitFileStatus.COPIED ? 2 : 1;
+                return;
+            }
+            Path path = Path.of(PorcelainStatus.decode(record, 0, length));
+            // The last path, the destination of a rename or copy, becomes the entry; the
+            // source is kept as its previous path.
+            if (--pendingPaths > 0) {
+                pendingSource = path;
+                return;
+            }
+            if (pendingStatus != GitFileStatus.DELETED) {
+                sink.accept(new ChangeSetEntry(path, pendingStatus, staged, unstaged, false, false, originReason,
+                        Optional.ofNullable(pendingSource)));
+            }
+            pendingStatus = null;
+            pendingSource = null;
+        }
+
+        private void finish() {
+            if (pendingStatus != null) {
+                throw new GitCommandException("Unexpected git name-status output: missing path after " + pendingStatus);
+            }
+        }
+
     }
 
 }
@@ -1,31 +1,107 @@
 package de.zorro909.codecheck.infra.git;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-public class GitCommandRunner {
+public class GitCommandRunner implements AutoCloseable {
+
+    private static final Pattern OBJECT_HEADER = Pattern.compile("([0-9a-f]{40,64}) (?:blob|tree|commit|tag) (\\d+)");
+
+    private static final byte NUL = 0;
+
+    private static final byte NEWLINE = '\n';
+
+    private static final int CHUNK_SIZE = 8192;
 
     private final Path repositoryDirectory;
 
+    private final GitBatchProcess objectInfo;
+
+    private final GitBatchProcess objectContents;
+
     public GitCommandRunner(Path repositoryDirectory) {
         this.repositoryDirectory = repositoryDirectory.toAbsolutePath().normalize();
+        this.objectInfo = new GitBatchProcess(this.repositoryDirectory, command("cat-file", "--batch-check"));
+        this.objectContents = new GitBatchProcess(this.repositoryDirectory, command("cat-file", "--batch"));
     }
 
     public List<String> run(String... args) {
+        List<String> lines = new ArrayList<>();
+        forEachRecord(NEWLINE, (record, length) -> {
+            String line = new String(record, 0, length, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }, args);
+        return lines;
+    }
+
+    // Raw stdout for output that has to be taken as a whole, such as object contents.
+    public byte[] runBytes(String... args) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        execute(args, (chunk, length) -> stdout.write(chunk, 0, length), true);
+        return stdout.toByteArray();
+    }
+
+    // Hands each NUL-terminated record of "-z" output to the consumer while git is still
+    // writing, so memory stays bounded by the longest record instead of the whole output.
+    public void forEachRecord(RecordConsumer consumer, String... args) {
+        forEachRecord(NUL, consumer, args);
+    }
+
+    public boolean succeeds(String... args) {
+        return execute(args, (_, _) -> {
+        }, false) == 0;
+    }
+
+    private void forEachRecord(byte delimiter, RecordConsumer consumer, String... args) {
+        RecordSplitter splitter = new RecordSplitter(delimiter, consumer);
+        execute(args, splitter::accept, true);
+        splitter.finish();
+    }
+
+    // Stderr is drained on a virtual thread so a chatty command cannot block on a full
+    // pipe while stdout is being read.
+    private int execute(String[] args, ChunkConsumer stdoutChunks, boolean requireSuccess) {
         ProcessBuilder builder = new ProcessBuilder(command(args));
         builder.directory(repositoryDirectory.toFile());
+        Process process = null;
         try {
-            Process process = builder.start();
-            String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            String stderr = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+            process = builder.start();
+            Process started = process;
+            AtomicReference<byte[]> stderrBytes = new AtomicReference<>(new byte[0]);
+            Thread stderrReader = Thread.ofVirtual().start(() -> {
+                try {
+                    stderrBytes.set(started.getErrorStream().readAllBytes());
+                }
+                catch (IOException ignored) {
+                    // The process ended without a readable stderr stream.
+                }
+            });
+            try (InputStream stdout = process.getInputStream()) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int read;
+                while ((read = stdout.read(chunk)) >= 0) {
+                    stdoutChunks.accept(chunk, read);
+                }
+            }
+            stderrReader.join();
             int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new GitCommandException(
-                        "git " + String.join(" ", args) + " failed with exit code " + exitCode + ": " + stderr.strip());
+            if (requireSuccess && exitCode != 0) {
+                throw new GitCommandException("git " + String.join(" ", args) + " failed with exit code " + exitCode
+                        + ": " + new String(stderrBytes.get(), StandardCharsets.UTF_8).strip());
             }
-            return stdout.lines().filter(line -> !line.isBlank()).toList();
+            return exitCode;
         }
         catch (IOException e) {
             throw new GitCommandException("Failed to execute git " + String.join(" ", args), e);
@@ -34,28 +110,114 @@ public class GitCommandRunner {
             Thread.currentThread().interrupt();
             throw new GitCommandException("Interrupted while executing git " + String.join(" ", args), e);
         }
+        finally {
+            if (process != null && process.isAlive()) {
+                process.destroy();
+            }
+        }
     }
 
-    public boolean succeeds(String... args) {
-        ProcessBuilder builder = new ProcessBuilder(command(args));
-        builder.directory(repositoryDirectory.toFile());
-        try {
-            Process process = builder.start();
-            process.getInputStream().readAllBytes();
-            process.getErrorStream().readAllBytes();
-            return process.waitFor() == 0;
+    // Object id for a revision such as "HEAD", "develop" or "HEAD:src/Foo.java", as
+    // answered by the long-running batch-check helper.
+    public Optional<String> resolve(String revision) {
+        if (revision.indexOf('\n') >= 0) {
+            // The batch protocol is line based; such names take the forking path.
+            try {
+                return run("rev-parse", "--verify", "--quiet", revision).stream().findFirst();
+            }
+            catch (GitCommandException e) {
+                return Optional.empty();
+            }
         }
-        catch (IOException e) {
-            throw new GitCommandException("Failed to execute git " + String.join(" ", args), e);
+        return objectInfo.query(revision, batch -> header(batch.readLine()).map(header -> header.group(1)));
+    }
+
+    // Raw object content, e.g. a blob at "HEAD:src/Foo.java" or ":src/Foo.java" for the
+    // index.
+    public Optional<byte[]> readObject(String revision) {
+        if (revision.indexOf('\n') >= 0) {
+            return resolve(revision).map(id -> runBytes("cat-file", "-p", id));
         }
-        catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new GitCommandException("Interrupted while executing git " + String.join(" ", args), e);
+        return objectContents.query(revision, batch -> {
+            Optional<Matcher> header = header(batch.readLine());
+            if (header.isEmpty()) {
+                return Optional.empty();
+            }
+            byte[] content = batch.readBytes(Integer.parseInt(header.get().group(2)));
+            batch.readLine();
+            return Optional.of(content);
+        });
+    }
+
+    // Anything but "<id> <type> <size>" is a "missing" or "ambiguous" answer.
+    private Optional<Matcher> header(String line) {
+        Matcher matcher = OBJECT_HEADER.matcher(line);
+        return matcher.matches() ? Optional.of(matcher) : Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        objectInfo.close();
+        objectContents.close();
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        // The array is reused for the next record; only the first length bytes are valid.
+        void accept(byte[] record, int length);
+
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+
+        void accept(byte[] chunk, int length);
+
+    }
+
+    private static final class RecordSplitter {
+
+        private final byte delimiter;
+
+        private final RecordConsumer consumer;
+
+        private byte[] record = new byte[256];
+
+        private int length;
+
+        private RecordSplitter(byte delimiter, RecordConsumer consumer) {
+            this.delimiter = delimiter;
+            this.consumer = consumer;
         }
+
+        private void accept(byte[] chunk, int chunkLength) {
+            for (int i = 0; i < chunkLength; i++) {
+                byte next = chunk[i];
+                if (next == delimiter) {
+                    consumer.accept(record, length);
+                    length = 0;
+                }
+                else {
+                    if (length == record.length) {
+                        record = Arrays.copyOf(record, length * 2);
+                    }
+                    record[length++] = next;
+                }
+            }
+        }
+
+        private void finish() {
+            if (length > 0) {
+                consumer.accept(record, length);
+                length = 0;
+            }
+        }
+
     }
 
     private List<String> command(String... args) {
-        List<String> command = new java.util.ArrayList<>();
+        List<String> command = new ArrayList<>();
         command.add("git");
         command.addAll(List.of(args));
         return command;
@@ -0,0 +1,285 @@
+package de.zorro909.codecheck.infra.git;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Reader for the .git/index file format, versions 2 to 4, including a split index (the
+// "link" extension) and the cache-tree ("TREE") extension. Other optional extensions such
+// as the untracked cache are skipped; anything this reader cannot interpret faithfully,
+// e.g. a sparse index, fails with an IOException so callers can ask git instead.
+final class GitIndex {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+
+    private static final int OBJECT_ID_LENGTH = 20;
+
+    private static final int EXTENDED_FLAG = 0x4000;
+
+    private static final int INTENT_TO_ADD_FLAG = 0x2000;
+
+    private static final int NAME_MASK = 0xFFF;
+
+    private static final int DIRECTORY_MODE = 0x4000;
+
+    private static final int MODE_TYPE_MASK = 0xF000;
+
+    private static final int HIGHEST_STAGE = 3;
+
+    // git sorts entries by the bytes of their path, then by stage.
+    private static final Comparator<Entry> INDEX_ORDER = Comparator
+        .<Entry, byte[]>comparing(entry -> entry.path().getBytes(StandardCharsets.UTF_8), Arrays::compareUnsigned)
+        .thenComparingInt(Entry::stage);
+
+    private final List<Entry> entries;
+
+    private final Map<String, String> cacheTree;
+
+    private GitIndex(List<Entry> entries, Map<String, String> cacheTree) {
+        this.entries = entries;
+        this.cacheTree = cacheTree;
+    }
+
+    static GitIndex read(Path indexFile) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return new GitIndex(List.of(), Map.of());
+        }
+        return read(indexFile, ByteBuffer.wrap(Files.readAllBytes(indexFile)));
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    // Directory path ("" for the root) to the tree id the index would write for it; only
+    // directories whose cached tree is still valid are present.
+    Map<String, String> cacheTree() {
+        return cacheTree;
+    }
+
+    private static GitIndex read(Path indexFile, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 12 + OBJECT_ID_LENGTH || buffer.getInt() != SIGNATURE) {
+            throw new IOException("Not a git index: " + indexFile);
+        }
+        int version = buffer.getInt();
+        if (version < 2 || version > 4) {
+            throw new IOException("Unsupported git index version " + version + ": " + indexFile);
+        }
+        int count = buffer.getInt();
+        List<Entry> entries = new ArrayList<>(count);
+        byte[] previousPath = new byte[0];
+        for (int i = 0; i < count; i++) {
+            Entry entry = readEntry(buffer, version, previousPath);
+            previousPath = entry.path().getBytes(StandardCharsets.UTF_8);
+            entries.add(entry);
+        }
+        Map<String, String> cacheTree = Map.of();
+        int end = buffer.limit() - OBJECT_ID_LENGTH;
+        while (buffer.position() < end) {
+            byte[] signature = new byte[4];
+            buffer.get(signature);
+            int size = buffer.getInt();
+            ByteBuffer extension = buffer.slice(buffer.position(), size);
+            buffer.position(buffer.position() + size);
+            switch (new String(signature, StandardCharsets.US_ASCII)) {
+                case "TREE" -> cacheTree = readCacheTree(extension);
+                case "link" -> entries = mergeSharedIndex(indexFile, extension, entries);
+                default -> {
+                    // Upper-case extensions are optional and may be ignored.
+                    if (signature[0] < 'A' || signature[0] > 'Z') {
+                        throw new IOException("Unsupported git index extension "
+                                + new String(signature, StandardCharsets.US_ASCII) + ": " + indexFile);
+                    }
+                }
+            }
+        }
+        for (Entry entry : entries) {
+            if ((entry.mode() & MODE_TYPE_MASK) == DIRECTORY_MODE) {
+                throw new IOException("Sparse git index is not supported: " + indexFile);
+            }
+        }
+        return new GitIndex(entries, cacheTree);
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, int version, byte[] previousPath) throws IOException {
+        int start = buffer.position();
+        buffer.position(start + 24);
+        int mode = buffer.getInt();
+        buffer.position(start + 40);
+        byte[] objectId = new byte[OBJECT_ID_LENGTH];
+        buffer.get(objectId);
+        int flags = Short.toUnsignedInt(buffer.getShort());
+        boolean intentToAdd = false;
+        if ((flags & EXTENDED_FLAG) != 0) {
+            if (version < 3) {
+                throw new IOException("Extended index entry flags in index version " + version);
+            }
+            intentToAdd = (Short.toUnsignedInt(buffer.getShort()) & INTENT_TO_ADD_FLAG) != 0;
+        }
+        byte[] path;
+        if (version == 4) {
+            int strip = readOffsetVarint(buffer);
+            byte[] suffix = readNulTerminated(buffer);
+            path = new byte[previousPath.length - strip + suffix.length];
+            System.arraycopy(previousPath, 0, path, 0, previousPath.length - strip);
+            System.arraycopy(suffix, 0, path, previousPath.length - strip, suffix.length);
+        }
+        else {
+            path = readNulTerminated(buffer);
+            // Entries are NUL-padded to a multiple of eight bytes.
+            int length = buffer.position() - start;
+            buffer.position(start + ((length + 7) & ~7));
+        }
+        int stage = (flags >> 12) & 0x3;
+        if ((flags & NAME_MASK) != NAME_MASK && (flags & NAME_MASK) != path.length) {
+            throw new IOException("Corrupt git index entry " + new String(path, StandardCharsets.UTF_8));
+        }
+        return new Entry(new String(path, StandardCharsets.UTF_8), mode, HexFormat.of().formatHex(objectId), stage,
+                intentToAdd);
+    }
+
+    private static Map<String, String> readCacheTree(ByteBuffer extension) {
+        Map<String, String> cacheTree = new LinkedHashMap<>();
+        readCacheTreeNode(extension, "", cacheTree);
+        return cacheTree;
+    }
+
+    private static void readCacheTreeNode(ByteBuffer extension, String parent, Map<String, String> cacheTree) {
+        String name = new String(readNulTerminated(extension), StandardCharsets.UTF_8);
+        String path = parent.isEmpty() ? name : parent + "/" + name;
+        int entryCount = Integer.parseInt(readUntil(extension, (byte) ' '));
+        int subtreeCount = Integer.parseInt(readUntil(extension, (byte) '\n'));
+        if (entryCount >= 0) {
+            byte[] objectId = new byte[OBJECT_ID_LENGTH];
+            extension.get(objectId);
+            cacheTree.put(path, HexFormat.of().formatHex(objectId));
+        }
+        for (int i = 0; i < subtreeCount; i++) {
+            readCacheTreeNode(extension, path, cacheTree);
+        }
+    }
+
+    // A split index stores only changes against a shared base index. Base entries marked
+    // in the replace bitmap take the next nameless entry of this file, those marked in
+    // the delete bitmap are dropped, and the remaining entries of this file are inserted
+    // in index order like git does, replacing a base entry of the same path and stage. A
+    // merged (stage 0) entry replaces every stage of its path.
+    private static List<Entry> mergeSharedIndex(Path indexFile, ByteBuffer extension, List<Entry> entries)
+            throws IOException {
+        byte[] sharedId = new byte[OBJECT_ID_LENGTH];
+        extension.get(sharedId);
+        if (!extension.hasRemaining()) {
+            return entries;
+        }
+        BitSet deleted = readEwahBitmap(extension);
+        BitSet replaced = readEwahBitmap(extension);
+        Path sharedIndex = indexFile.resolveSibling("sharedindex." + HexFormat.of().formatHex(sharedId));
+        if (!Files.exists(sharedIndex)) {
+            throw new IOException("Missing shared git index " + sharedIndex);
+        }
+        List<Entry> base = read(sharedIndex).entries();
+        NavigableSet<Entry> merged = new TreeSet<>(INDEX_ORDER);
+        int next = 0;
+        for (int i = 0; i < base.size(); i++) {
+            if (replaced.get(i)) {
+                Entry replacement = entries.get(next++);
+                merged.add(new Entry(base.get(i).path(), replacement.mode(), replacement.objectId(),
+                        replacement.stage(), replacement.intentToAdd()));
+            }
+            else if (!deleted.get(i)) {
+                merged.add(base.get(i));
+            }
+        }
+        for (Entry entry : entries.subList(next, entries.size())) {
+            if (entry.stage() == 0) {
+                merged.subSet(withStage(entry, 0), true, withStage(entry, HIGHEST_STAGE), true).clear();
+            }
+            merged.remove(entry);
+            merged.add(entry);
+        }
+        return List.copyOf(merged);
+    }
+
+    private static Entry withStage(Entry entry, int stage) {
+        return new Entry(entry.path(), entry.mode(), entry.objectId(), stage, entry.intentToAdd());
+    }
+
+    private static BitSet readEwahBitmap(ByteBuffer buffer) {
+        buffer.getInt();
+        int wordCount = buffer.getInt();
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = buffer.getLong();
+        }
+        buffer.getInt();
+        BitSet bits = new BitSet();
+        int position = 0;
+        int word = 0;
+        while (word < wordCount) {
+            long marker = words[word++];
+            int runLength = (int) ((marker >>> 1) & 0xFFFFFFFFL) * Long.SIZE;
+            if ((marker & 1) != 0) {
+                bits.set(position, position + runLength);
+            }
+            position += runLength;
+            int literals = (int) (marker >>> 33);
+            for (int i = 0; i < literals; i++) {
+                long literal = words[word++];
+                for (int bit = 0; bit < Long.SIZE; bit++) {
+                    if ((literal & (1L << bit)) != 0) {
+                        bits.set(position + bit);
+                    }
+                }
+                position += Long.SIZE;
+            }
+        }
+        return bits;
+    }
+
+    // The variable-length offset encoding git uses for index v4 path prefixes and pack
+    // deltas.
+    static int readOffsetVarint(ByteBuffer buffer) {
+        int next = Byte.toUnsignedInt(buffer.get());
+        int value = next & 0x7F;
+        while ((next & 0x80) != 0) {
+            next = Byte.toUnsignedInt(buffer.get());
+            value = ((value + 1) << 7) | (next & 0x7F);
+        }
+        return value;
+    }
+
+    private static byte[] readNulTerminated(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // Scan to the terminator.
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return bytes;
+    }
+
+    private static String readUntil(ByteBuffer buffer, byte terminator) {
+        StringBuilder text = new StringBuilder();
+        byte next;
+        while ((next = buffer.get()) != terminator) {
+            text.append((char) next);
+        }
+        return text.toString();
+    }
+
+    record Entry(String path, int mode, String objectId, int stage, boolean intentToAdd) {
+    }
+
+}
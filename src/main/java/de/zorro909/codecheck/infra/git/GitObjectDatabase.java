@@ -0,0 +1,272 @@
+package de.zorro909.codecheck.infra.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Read-only access to loose objects and version 2 pack files of a SHA-1 repository. Objects
+// it cannot find, e.g. ones that live in an alternate object store, raise an IOException.
+final class GitObjectDatabase implements AutoCloseable {
+
+    private static final int OBJECT_ID_LENGTH = 20;
+
+    private static final int PACK_INDEX_SIGNATURE = 0xFF744F63;
+
+    private static final int OFS_DELTA = 6;
+
+    private static final int REF_DELTA = 7;
+
+    private static final String[] TYPES = { null, "commit", "tree", "blob", "tag" };
+
+    private final Path objectsDirectory;
+
+    private List<Pack> packs;
+
+    GitObjectDatabase(Path objectsDirectory) {
+        this.objectsDirectory = objectsDirectory;
+    }
+
+    GitObject read(String objectId) throws IOException {
+        Path loose = objectsDirectory.resolve(objectId.substring(0, 2)).resolve(objectId.substring(2));
+        if (Files.isRegularFile(loose)) {
+            return readLoose(loose);
+        }
+        byte[] id = HexFormat.of().parseHex(objectId);
+        for (Pack pack : packs()) {
+            long offset = pack.offset(id);
+            if (offset >= 0) {
+                return pack.read(offset);
+            }
+        }
+        throw new IOException("Object " + objectId + " not found in " + objectsDirectory);
+    }
+
+    private GitObject readLoose(Path file) throws IOException {
+        byte[] raw;
+        try (InputStream input = new InflaterInputStream(Files.newInputStream(file))) {
+            raw = input.readAllBytes();
+        }
+        int space = indexOf(raw, (byte) ' ', 0);
+        int nul = indexOf(raw, (byte) 0, space);
+        if (space < 0 || nul < 0) {
+            throw new IOException("Corrupt loose object " + file);
+        }
+        return new GitObject(new String(raw, 0, space, StandardCharsets.US_ASCII),
+                Arrays.copyOfRange(raw, nul + 1, raw.length));
+    }
+
+    private List<Pack> packs() throws IOException {
+        if (packs == null) {
+            List<Pack> opened = new ArrayList<>();
+            Path packDirectory = objectsDirectory.resolve("pack");
+            if (Files.isDirectory(packDirectory)) {
+                try (Stream<Path> files = Files.list(packDirectory)) {
+                    for (Path index : files.filter(file -> file.toString().endsWith(".idx")).toList()) {
+                        opened.add(Pack.open(index, this));
+                    }
+                }
+            }
+            packs = opened;
+        }
+        return packs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (packs != null) {
+            for (Pack pack : packs) {
+                pack.data().close();
+            }
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = Math.max(from, 0); i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    record GitObject(String type, byte[] content) {
+    }
+
+    private record Pack(MappedByteBuffer index, FileChannel data, int count, GitObjectDatabase database) {
+
+        static Pack open(Path indexFile, GitObjectDatabase database) throws IOException {
+            MappedByteBuffer index;
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (index.getInt(0) != PACK_INDEX_SIGNATURE || index.getInt(4) != 2) {
+                throw new IOException("Unsupported pack index " + indexFile);
+            }
+            String name = indexFile.getFileName().toString();
+            Path packFile = indexFile.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+            return new Pack(index, FileChannel.open(packFile, StandardOpenOption.READ), index.getInt(8 + 255 * 4),
+                    database);
+        }
+
+        long offset(byte[] id) {
+            int first = Byte.toUnsignedInt(id[0]);
+            int low = first == 0 ? 0 : index.getInt(8 + (first - 1) * 4);
+            int high = index.getInt(8 + first * 4) - 1;
+            int ids = 8 + 256 * 4;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                byte[] candidate = new byte[OBJECT_ID_LENGTH];
+                index.get(ids + middle * OBJECT_ID_LENGTH, candidate);
+                int comparison = Arrays.compareUnsigned(candidate, id);
+                if (comparison < 0) {
+                    low = middle + 1;
+                }
+                else if (comparison > 0) {
+                    high = middle - 1;
+                }
+                else {
+                    return entryOffset(middle);
+                }
+            }
+            return -1;
+        }
+
+        private long entryOffset(int position) {
+            int offsets = 8 + 256 * 4 + count * (OBJECT_ID_LENGTH + 4);
+            int offset = index.getInt(offsets + position * 4);
+            if (offset >= 0) {
+                return offset;
+            }
+            // The high bit points into the table of 64-bit offsets for packs above 2 GiB.
+            return index.getLong(offsets + count * 4 + (offset & 0x7FFFFFFF) * 8);
+        }
+
+        GitObject read(long offset) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(32);
+            data.read(header, offset);
+            header.flip();
+            int next = Byte.toUnsignedInt(header.get());
+            int type = (next >> 4) & 0x7;
+            long size = next & 0x0F;
+            int shift = 4;
+            while ((next & 0x80) != 0) {
+                next = Byte.toUnsignedInt(header.get());
+                size |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            }
+            GitObject base = null;
+            if (type == OFS_DELTA) {
+                base = read(offset - GitIndex.readOffsetVarint(header));
+            }
+            else if (type == REF_DELTA) {
+                byte[] baseId = new byte[OBJECT_ID_LENGTH];
+                header.get(baseId);
+                base = database.read(HexFormat.of().formatHex(baseId));
+            }
+            else if (type < 1 || type >= TYPES.length) {
+                throw new IOException("Unsupported pack object type " + type);
+            }
+            byte[] content = inflate(offset + header.position(), Math.toIntExact(size));
+            return base == null ? new GitObject(TYPES[type], content)
+                    : new GitObject(base.type(), applyDelta(base.content(), content));
+        }
+
+        private byte[] inflate(long position, int size) throws IOException {
+            byte[] output = new byte[size];
+            Inflater inflater = new Inflater();
+            try {
+                ByteBuffer input = ByteBuffer.allocate(8192);
+                long next = position;
+                int produced = 0;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        input.clear();
+                        int read = data.read(input, next);
+                        if (read <= 0) {
+                            throw new IOException("Truncated pack entry at " + position);
+                        }
+                        next += read;
+                        input.flip();
+                        inflater.setInput(input);
+                    }
+                    produced += inflater.inflate(output, produced, size - produced);
+                }
+                if (produced != size) {
+                    throw new IOException("Pack entry at " + position + " has an unexpected size");
+                }
+                return output;
+            }
+            catch (DataFormatException e) {
+                throw new IOException("Corrupt pack entry at " + position, e);
+            }
+            finally {
+                inflater.end();
+            }
+        }
+
+        private static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+            int[] position = { 0 };
+            readSize(delta, position);
+            byte[] result = new byte[Math.toIntExact(readSize(delta, position))];
+            int written = 0;
+            while (position[0] < delta.length) {
+                int op = Byte.toUnsignedInt(delta[position[0]++]);
+                if ((op & 0x80) != 0) {
+                    int copyOffset = 0;
+                    int copySize = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if ((op & (1 << i)) != 0) {
+                            copyOffset |= Byte.toUnsignedInt(delta[position[0]++]) << (8 * i);
+                        }
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        if ((op & (0x10 << i)) != 0) {
+                            copySize |= Byte.toUnsignedInt(delta[position[0]++]) << (8 * i);
+                        }
+                    }
+                    copySize = copySize == 0 ? 0x10000 : copySize;
+                    System.arraycopy(base, copyOffset, result, written, copySize);
+                    written += copySize;
+                }
+                else if (op != 0) {
+                    System.arraycopy(delta, position[0], result, written, op);
+                    position[0] += op;
+                    written += op;
+                }
+                else {
+                    throw new IOException("Corrupt pack delta");
+                }
+            }
+            return result;
+        }
+
+        private static long readSize(byte[] delta, int[] position) {
+            long size = 0;
+            int shift = 0;
+            int next;
+            do {
+                next = Byte.toUnsignedInt(delta[position[0]++]);
+                size |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            }
+            while ((next & 0x80) != 0);
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package de.zorro909.codecheck.infra.git;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Repository layout resolved from the file system, so the work tree prefix and the
+// existence of a ref do not need a git process.
+record GitRepository(Path workTree, Path gitDirectory, Path commonDirectory) {
+
+    private static final String DOT_GIT = ".git";
+
+    private static final String GITDIR_PREFIX = "gitdir:";
+
+    private static final String SYMBOLIC_REF_PREFIX = "ref:";
+
+    private static final String BRANCH_PREFIX = "refs/heads/";
+
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+
+    static Optional<GitRepository> discover(Path directory) {
+        for (Path current = directory.toAbsolutePath().normalize(); current != null; current = current.getParent()) {
+            Path dotGit = current.resolve(DOT_GIT);
+            if (Files.isDirectory(dotGit)) {
+                return Optional.of(of(current, dotGit));
+            }
+            if (Files.isRegularFile(dotGit)) {
+                Path workTree = current;
+                return readFirstLine(dotGit).filter(line -> line.startsWith(GITDIR_PREFIX))
+                    .map(line -> workTree.resolve(line.substring(GITDIR_PREFIX.length()).strip()).normalize())
+                    .map(gitDirectory -> of(workTree, gitDirectory));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static GitRepository of(Path workTree, Path gitDirectory) {
+        Path commonDirectory = readFirstLine(gitDirectory.resolve("commondir"))
+            .map(common -> gitDirectory.resolve(common.strip()).normalize())
+            .orElse(gitDirectory);
+        return new GitRepository(workTree, gitDirectory, commonDirectory);
+    }
+
+    // Same shape as the prefix of "git rev-parse --show-prefix": empty or ending in '/'.
+    String prefix(Path directory) {
+        Path relative = workTree.relativize(directory.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty()) {
+            return "";
+        }
+        return relative.toString().replace(relative.getFileSystem().getSeparator(), "/") + "/";
+    }
+
+    // Mirrors the lookup order of "git rev-parse --verify" for a short name. Empty when
+    // the refs are not stored as files, e.g. in a reftable repository.
+    Optional<Boolean> refExists(String name) {
+        if (usesReftable()) {
+            return Optional.empty();
+        }
+        List<String> candidates = refCandidates(name);
+        if (candidates.stream().anyMatch(ref -> Files.isRegularFile(commonDirectory.resolve(ref)))) {
+            return Optional.of(true);
+        }
+        Path packedRefs = commonDirectory.resolve("packed-refs");
+        if (!Files.isRegularFile(packedRefs)) {
+            return Optional.of(false);
+        }
+        try (Stream<String> lines = Files.lines(packedRefs, StandardCharsets.UTF_8)) {
+            return Optional.of(lines.filter(line -> !line.startsWith("#") && !line.startsWith("^"))
+                .map(line -> line.substring(line.indexOf(' ') + 1))
+                .anyMatch(candidates::contains));
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Branch HEAD points to, or "" when it is detached.
+    String currentBranch() throws IOException {
+        if (usesReftable()) {
+            throw new IOException("HEAD of a reftable repository cannot be read directly");
+        }
+        String head = readFirstLine(gitDirectory.resolve("HEAD"))
+            .orElseThrow(() -> new IOException("Missing HEAD in " + gitDirectory))
+            .strip();
+        if (!head.startsWith(SYMBOLIC_REF_PREFIX)) {
+            return "";
+        }
+        String ref = head.substring(SYMBOLIC_REF_PREFIX.length()).strip();
+        return ref.startsWith(BRANCH_PREFIX) ? ref.substring(BRANCH_PREFIX.length()) : "";
+    }
+
+    // Stamps of HEAD, packed-refs and every file the given refs may be stored in. Git
+    // replaces ref files by renaming a lock file over them, so equal stamps mean that
+    // none of these refs moved.
+    List<String> refStamps(Collection<String> names) {
+        List<Path> files = new ArrayList<>();
+        files.add(gitDirectory.resolve("HEAD"));
+        files.add(commonDirectory.resolve("packed-refs"));
+        names.forEach(name -> refCandidates(name).forEach(ref -> files.add(commonDirectory.resolve(ref))));
+        return files.stream().map(GitRepository::stamp).toList();
+    }
+
+    boolean usesReftable() {
+        return Files.exists(commonDirectory.resolve("reftable"));
+    }
+
+    private static List<String> refCandidates(String name) {
+        return List.of(name, "refs/" + name, "refs/tags/" + name, BRANCH_PREFIX + name, "refs/remotes/" + name,
+                "refs/remotes/" + name + "/HEAD");
+    }
+
+    private static String stamp(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return file + "@" + attributes.lastModifiedTime() + "/" + attributes.size() + "/" + attributes.fileKey();
+        }
+        catch (IOException e) {
+            return file + "@absent";
+        }
+    }
+
+    // Object id HEAD points to, or empty on an unborn branch.
+    Optional<String> head() throws IOException {
+        return resolveRef("HEAD", 0);
+    }
+
+    private Optional<String> resolveRef(String ref, int depth) throws IOException {
+        if (depth > MAX_SYMBOLIC_REF_DEPTH || usesReftable()) {
+            throw new IOException("Cannot resolve " + ref + " in " + gitDirectory);
+        }
+        // HEAD and other per-worktree refs live in the git directory, shared refs in the
+        // common directory.
+        Optional<String> loose = readFirstLine(gitDirectory.resolve(ref))
+            .or(() -> readFirstLine(commonDirectory.resolve(ref)));
+        if (loose.isPresent()) {
+            String value = loose.get().strip();
+            return value.startsWith(SYMBOLIC_REF_PREFIX)
+                    ? resolveRef(value.substring(SYMBOLIC_REF_PREFIX.length()).strip(), depth + 1) : Optional.of(value);
+        }
+        Path packedRefs = commonDirectory.resolve("packed-refs");
+        if (!Files.isRegularFile(packedRefs)) {
+            return Optional.empty();
+        }
+        try (Stream<String> lines = Files.lines(packedRefs, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> line.endsWith(" " + ref) && !line.startsWith("#"))
+                .map(line -> line.substring(0, line.indexOf(' ')))
+                .findFirst();
+        }
+    }
+
+    private static Optional<String> readFirstLine(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.findFirst();
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.RepositoryPathProvider;
+import de.zorro909.codecheck.core.changeset.RepositoryStateWatcher;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Git replaces the index, HEAD and refs by renaming a lock file over them, which shows up
+// as a create or modify event for the final name. Only those names are reported; the
+// rest of the git directory churns on every command.
+@Singleton
+public class GitStateWatcher implements RepositoryStateWatcher {
+
+    private static final Set<String> STATE_FILES = Set.of("index", "HEAD", "packed-refs");
+
+    private static final Set<String> REF_DIRECTORIES = Set.of("refs", "reftable");
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final Path repositoryDirectory;
+
+    @Inject
+    public GitStateWatcher(@Named(RepositoryPathProvider.REPOSITORY_DIRECTORY) Path repositoryDirectory) {
+        this.repositoryDirectory = repositoryDirectory;
+    }
+
+    @Override
+    public AutoCloseable watch(Runnable onChange, Runnable onFailure) throws IOException {
+        GitRepository repository = GitRepository.discover(repositoryDirectory)
+            .orElseThrow(() -> new IOException("No git repository found for " + repositoryDirectory));
+        WatchService watchService = repository.gitDirectory().getFileSystem().newWatchService();
+        Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+        try {
+            register(watchService, directories, repository.gitDirectory());
+            register(watchService, directories, repository.commonDirectory());
+            for (String refDirectory : REF_DIRECTORIES) {
+                registerTree(watchService, directories, repository.commonDirectory().resolve(refDirectory));
+            }
+        }
+        catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        Thread.ofVirtual()
+            .name("git-state-watcher")
+            .start(() -> dispatch(watchService, directories, repository, onChange, onFailure));
+        return watchService;
+    }
+
+    private void dispatch(WatchService watchService, Map<WatchKey, Path> directories, GitRepository repository,
+            Runnable onChange, Runnable onFailure) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed = true;
+                    }
+                    else if (directory != null) {
+                        Path file = directory.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                            registerTree(watchService, directories, file);
+                        }
+                        changed |= isState(repository, file);
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+                if (changed) {
+                    onChange.run();
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed by the owner of the watch.
+        }
+        catch (IOException | RuntimeException e) {
+            // Without a complete watch the state can no longer be trusted.
+            closeQuietly(watchService);
+            onFailure.run();
+        }
+    }
+
+    private static void closeQuietly(WatchService watchService) {
+        try {
+            watchService.close();
+        }
+        catch (IOException e) {
+            // The watch is given up either way.
+        }
+    }
+
+    private static boolean isState(GitRepository repository, Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(LOCK_SUFFIX)) {
+            return false;
+        }
+        Path parent = file.getParent();
+        if (parent.equals(repository.gitDirectory()) || parent.equals(repository.commonDirectory())) {
+            return STATE_FILES.contains(name);
+        }
+        return REF_DIRECTORIES.stream().map(repository.commonDirectory()::resolve).anyMatch(file::startsWith);
+    }
+
+    private static void registerTree(WatchService watchService, Map<WatchKey, Path> directories, Path root)
+            throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                    throws IOException {
+                register(watchService, directories, directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+
+        });
+    }
+
+    // Ref directories come and go with branch deletion and pack-refs; one that is gone
+    // before it is registered has nothing left to watch.
+    private static void register(WatchService watchService, Map<WatchKey, Path> directories, Path directory)
+            throws IOException {
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            directories.put(key, directory);
+        }
+        catch (NoSuchFileException e) {
+            // Removed in the meantime.
+        }
+    }
+
+}
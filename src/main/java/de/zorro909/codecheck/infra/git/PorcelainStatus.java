@@ -0,0 +1,159 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Parsed "git status --porcelain=v2 -z" output. Paths are decoded straight from the
+// NUL-delimited records and made relative to the prefix the status was limited to.
+record PorcelainStatus(List<ChangeSetEntry> staged, List<ChangeSetEntry> unstaged, List<Path> untracked) {
+
+    private static final byte SPACE = ' ';
+
+    private static final char UNCHANGED = '.';
+
+    // Space-separated fields in front of the path of ordinary, renamed and unmerged
+    // records.
+    private static final int ORDINARY_FIELDS = 8;
+
+    private static final int RENAMED_FIELDS = 9;
+
+    private static final int UNMERGED_FIELDS = 10;
+
+    // Collects the records while git streams them; untracked paths the filter rejects
+    // are dropped right away so a large untracked tree does not pile up. Tracked
+    // changes are also handed to the listener as soon as their record arrives.
+    static final class Collector implements GitCommandRunner.RecordConsumer {
+
+        private final String prefix;
+
+        private final Predicate<String> untrackedFilter;
+
+        private final Consumer<ChangeSetEntry> listener;
+
+        private final List<ChangeSetEntry> staged = new ArrayList<>();
+
+        private final List<ChangeSetEntry> unstaged = new ArrayList<>();
+
+        private final List<Path> untracked = new ArrayList<>();
+
+        // Entries of a rename or copy record, held back until its original path arrives.
+        private List<ChangeSetEntry> pendingMove;
+
+        Collector(String prefix, Predicate<String> untrackedFilter) {
+            this(prefix, untrackedFilter, _ -> {
+            });
+        }
+
+        Collector(String prefix, Predicate<String> untrackedFilter, Consumer<ChangeSetEntry> listener) {
+            this.prefix = prefix;
+            this.untrackedFilter = untrackedFilter;
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(byte[] record, int length) {
+            if (pendingMove != null) {
+                // The original path of a rename or copy follows as its own record.
+                String original = decode(record, 0, length);
+                Optional<Path> previousPath = original.startsWith(prefix) ? Optional.of(relative(original, prefix))
+                        : Optional.empty();
+                List<ChangeSetEntry> move = pendingMove;
+                pendingMove = null;
+                move.forEach(
+                        entry -> add(entry.status() == GitFileStatus.RENAMED || entry.status() == GitFileStatus.COPIED
+                                ? withPreviousPath(entry, previousPath) : entry));
+                return;
+            }
+            switch ((char) record[0]) {
+                case '1' -> parse(record, length, ORDINARY_FIELDS).forEach(this::add);
+                case '2' -> pendingMove = parse(record, length, RENAMED_FIELDS);
+                case 'u' -> parse(record, length, UNMERGED_FIELDS).forEach(this::add);
+                case '?' -> {
+                    String path = decode(record, 2, length);
+                    if (untrackedFilter.test(path)) {
+                        untracked.add(relative(path, prefix));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        PorcelainStatus result() {
+            return new PorcelainStatus(staged, unstaged, untracked);
+        }
+
+        private List<ChangeSetEntry> parse(byte[] record, int length, int fields) {
+            char kind = (char) record[0];
+            char index = (char) record[2];
+            char workTree = (char) record[3];
+            int pathStart = 0;
+            for (int field = 0; field < fields; field++) {
+                pathStart = indexOf(record, SPACE, pathStart, length) + 1;
+            }
+            Path path = relative(decode(record, pathStart, length), prefix);
+            List<ChangeSetEntry> entries = new ArrayList<>(2);
+            if (index != UNCHANGED) {
+                GitFileStatus status = kind == 'u' ? GitFileStatus.UNMERGED : status(index);
+                entries.add(new ChangeSetEntry(path, status, true, false, false, status == GitFileStatus.DELETED,
+                        "staged change"));
+            }
+            if (workTree != UNCHANGED) {
+                GitFileStatus status = kind == 'u' ? GitFileStatus.UNMERGED : status(workTree);
+                entries.add(new ChangeSetEntry(path, status, false, true, false, status == GitFileStatus.DELETED,
+                        "unstaged change"));
+            }
+            return entries;
+        }
+
+        private void add(ChangeSetEntry entry) {
+            (entry.staged() ? staged : unstaged).add(entry);
+            listener.accept(entry);
+        }
+
+        private static ChangeSetEntry withPreviousPath(ChangeSetEntry entry, Optional<Path> previousPath) {
+            return new ChangeSetEntry(entry.path(), entry.status(), entry.staged(), entry.unstaged(), entry.untracked(),
+                    entry.deleted(), entry.originReason(), previousPath);
+        }
+
+    }
+
+    static GitFileStatus status(char status) {
+        return switch (status) {
+            case 'A' -> GitFileStatus.ADDED;
+            case 'C' -> GitFileStatus.COPIED;
+            case 'D' -> GitFileStatus.DELETED;
+            case 'M' -> GitFileStatus.MODIFIED;
+            case 'R' -> GitFileStatus.RENAMED;
+            case 'T' -> GitFileStatus.TYPE_CHANGED;
+            case 'U' -> GitFileStatus.UNMERGED;
+            default -> GitFileStatus.UNKNOWN;
+        };
+    }
+
+    static Path relative(String path, String prefix) {
+        return Path.of(path.startsWith(prefix) ? path.substring(prefix.length()) : path);
+    }
+
+    static int indexOf(byte[] output, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (output[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    static String decode(byte[] output, int start, int end) {
+        return new String(output, start, end - start, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,205 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+// In-process equivalent of "git diff --cached --name-status" for the pre-commit hook: the
+// HEAD tree is compared against .git/index, skipping every directory whose cache-tree entry
+// still matches HEAD. Only exact renames are detected. Repositories this reader does not
+// understand yield an empty result so the caller can run git instead.
+final class StagedChangesReader {
+
+    // Variables that point git at another index or object store than the discovered one.
+    private static final List<String> OBJECT_STORE_VARIABLES = List.of("GIT_OBJECT_DIRECTORY",
+            "GIT_ALTERNATE_OBJECT_DIRECTORIES", "GIT_COMMON_DIR");
+
+    private static final int MODE_TYPE_MASK = 0xF000;
+
+    private static final int TREE_MODE = 0x4000;
+
+    private static final int OBJECT_ID_LENGTH = 20;
+
+    // Like git, empty files are never paired up as renames.
+    private static final String EMPTY_BLOB = "e69de29bb2d1d6434b8b29ae775ad8c2e48c5391";
+
+    private final GitObjectDatabase objects;
+
+    // Kept in index order, which is path order, so of several added copies of a removed
+    // file the first one by path is reported as the rename, as git does.
+    private final Map<String, GitIndex.Entry> stagedEntries = new LinkedHashMap<>();
+
+    private final Set<String> unmergedPaths = new HashSet<>();
+
+    private final Map<String, String> cacheTree;
+
+    private final Set<String> seenPaths = new HashSet<>();
+
+    private final Set<String> unchangedDirectories = new HashSet<>();
+
+    // Object id to the first removed path holding it, for exact rename detection.
+    private final Map<String, String> removedPaths = new HashMap<>();
+
+    private final Map<String, StagedChange> changes = new TreeMap<>();
+
+    private StagedChangesReader(GitObjectDatabase objects, GitIndex index) {
+        this.objects = objects;
+        this.cacheTree = index.cacheTree();
+        for (GitIndex.Entry entry : index.entries()) {
+            if (entry.stage() != 0) {
+                unmergedPaths.add(entry.path());
+            }
+            else if (!entry.intentToAdd()) {
+                stagedEntries.put(entry.path(), entry);
+            }
+        }
+    }
+
+    // Repository-root relative paths of staged changes, deletions included, by path.
+    static Optional<Map<String, StagedChange>> read(GitRepository repository, Map<String, String> environment) {
+        if (OBJECT_STORE_VARIABLES.stream().anyMatch(environment::containsKey)
+                || !sameDirectory(repository.workTree(), environment.get("GIT_DIR"), repository.gitDirectory())) {
+            return Optional.empty();
+        }
+        Path indexFile = Optional.ofNullable(environment.get("GIT_INDEX_FILE"))
+            .map(file -> repository.workTree().resolve(file))
+            .orElse(repository.gitDirectory().resolve("index"));
+        try (GitObjectDatabase objects = new GitObjectDatabase(repository.commonDirectory().resolve("objects"))) {
+            if (usesSha256(repository)) {
+                return Optional.empty();
+            }
+            Optional<String> head = repository.head();
+            StagedChangesReader reader = new StagedChangesReader(objects, GitIndex.read(indexFile));
+            return Optional.of(reader.compare(head));
+        }
+        catch (IOException | RuntimeException e) {
+            // Best effort: unreadable or unexpected repository data falls back to git.
+            return Optional.empty();
+        }
+    }
+
+    private Map<String, StagedChange> compare(Optional<String> head) throws IOException {
+        if (head.isPresent()) {
+            compareTree("", commitTree(head.get()));
+        }
+        for (GitIndex.Entry entry : stagedEntries.values()) {
+            if (!seenPaths.contains(entry.path()) && !inUnchangedDirectory(entry.path())) {
+                String renamedFrom = EMPTY_BLOB.equals(entry.objectId()) ? null : removedPaths.remove(entry.objectId());
+                if (renamedFrom != null) {
+                    changes.remove(renamedFrom);
+                }
+                changes.put(entry.path(), renamedFrom == null ? StagedChange.of(GitFileStatus.ADDED)
+                        : new StagedChange(GitFileStatus.RENAMED, Optional.of(renamedFrom)));
+            }
+        }
+        unmergedPaths.forEach(path -> changes.put(path, StagedChange.of(GitFileStatus.UNMERGED)));
+        return changes;
+    }
+
+    private void compareTree(String directory, String treeId) throws IOException {
+        if (treeId.equals(cacheTree.get(directory))) {
+            unchangedDirectories.add(directory);
+            return;
+        }
+        byte[] tree = objects.read(treeId).content();
+        int position = 0;
+        while (position < tree.length) {
+            int space = indexOf(tree, (byte) ' ', position);
+            int nul = indexOf(tree, (byte) 0, space);
+            int mode = Integer.parseInt(new String(tree, position, space - position, StandardCharsets.US_ASCII), 8);
+            String name = new String(tree, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+            String objectId = HexFormat.of().formatHex(tree, nul + 1, nul + 1 + OBJECT_ID_LENGTH);
+            position = nul + 1 + OBJECT_ID_LENGTH;
+            String path = directory.isEmpty() ? name : directory + "/" + name;
+            if ((mode & MODE_TYPE_MASK) == TREE_MODE) {
+                compareTree(path, objectId);
+            }
+            else {
+                compareFile(path, mode, objectId);
+            }
+        }
+    }
+
+    private void compareFile(String path, int mode, String objectId) {
+        seenPaths.add(path);
+        if (unmergedPaths.contains(path)) {
+            return;
+        }
+        GitIndex.Entry entry = stagedEntries.get(path);
+        if (entry == null) {
+            removedPaths.putIfAbsent(objectId, path);
+            changes.put(path, StagedChange.of(GitFileStatus.DELETED));
+        }
+        else if ((entry.mode() & MODE_TYPE_MASK) != (mode & MODE_TYPE_MASK)) {
+            changes.put(path, StagedChange.of(GitFileStatus.TYPE_CHANGED));
+        }
+        else if (entry.mode() != mode || !entry.objectId().equals(objectId)) {
+            changes.put(path, StagedChange.of(GitFileStatus.MODIFIED));
+        }
+    }
+
+    private boolean inUnchangedDirectory(String path) {
+        if (unchangedDirectories.contains("")) {
+            return true;
+        }
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (unchangedDirectories.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String commitTree(String commitId) throws IOException {
+        GitObjectDatabase.GitObject commit = objects.read(commitId);
+        String text = new String(commit.content(), StandardCharsets.UTF_8);
+        if (!"commit".equals(commit.type()) || !text.startsWith("tree ")) {
+            throw new IOException("HEAD does not point to a commit: " + commitId);
+        }
+        return text.substring("tree ".length(), "tree ".length() + 2 * OBJECT_ID_LENGTH);
+    }
+
+    private static boolean usesSha256(GitRepository repository) throws IOException {
+        Path config = repository.commonDirectory().resolve("config");
+        return Files.isRegularFile(config)
+                && Files.readAllLines(config, StandardCharsets.UTF_8).stream().anyMatch(line -> {
+                    String setting = line.strip().toLowerCase();
+                    return setting.startsWith("objectformat") && setting.contains("sha256");
+                });
+    }
+
+    private static boolean sameDirectory(Path workTree, String configured, Path expected) {
+        return configured == null || workTree.resolve(configured).normalize().equals(expected.normalize());
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Corrupt git tree object");
+    }
+
+    // previousPath is the repository-root relative source of a rename.
+    record StagedChange(GitFileStatus status, Optional<String> previousPath) {
+
+        static StagedChange of(GitFileStatus status) {
+            return new StagedChange(status, Optional.empty());
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.project.SourceOverlay;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Serves the staged blob of a file, looked up and streamed through the long-running
+// cat-file helpers. Files without an index entry are left to the working tree.
+final class StagedSourceOverlay implements SourceOverlay {
+
+    private final GitCommandRunner git;
+
+    private final Path workTree;
+
+    StagedSourceOverlay(GitCommandRunner git, Path workTree) {
+        this.git = git;
+        this.workTree = workTree.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Optional<Source> source(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        if (!absolute.startsWith(workTree)) {
+            return Optional.empty();
+        }
+        String path = workTree.relativize(absolute).toString().replace(absolute.getFileSystem().getSeparator(), "/");
+        return git.resolve(":" + path)
+            .map(blobId -> new Source(blobId, () -> git.readObject(blobId)
+                .orElseThrow(() -> new GitCommandException("Staged blob " + blobId + " of " + path + " is missing"))));
+    }
+
+}
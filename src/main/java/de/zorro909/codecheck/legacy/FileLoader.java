@@ -1,29 +1,25 @@
 package de.zorro909.codecheck.legacy;
 
-import de.zorro909.codecheck.daemon.DaemonServer;
+import de.zorro909.codecheck.core.validation.DependencyScope;
 import jakarta.inject.Singleton;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Optional;
 
 @Singleton
 public class FileLoader {
 
-    private final Optional<DaemonServer> daemonServer;
-
     private final Path rootDirectory;
 
-    public FileLoader(Path rootDirectory, Optional<DaemonServer> daemonServer) {
-        this.daemonServer = daemonServer;
+    public FileLoader(Path rootDirectory) {
         this.rootDirectory = rootDirectory;
     }
 
     public Path getPath(String filePath) {
         Path path = rootDirectory.resolve(filePath);
-        daemonServer.ifPresent(daemonServer -> daemonServer.markFile(path));
+        markFile(path);
         return path;
     }
 
@@ -40,11 +36,11 @@ public class FileLoader {
     }
 
     public void markFile(Path path) {
-        daemonServer.ifPresent(daemonServer -> daemonServer.markFile(path));
+        DependencyScope.record(path);
     }
 
     public boolean fileExists(Path path) {
-        daemonServer.ifPresent(daemonServer -> daemonServer.markFile(path));
+        markFile(path);
         return Files.exists(path);
     }
 
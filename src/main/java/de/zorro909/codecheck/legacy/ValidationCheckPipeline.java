@@ -11,6 +11,7 @@ import de.zorro909.codecheck.legacy.editor.EditorExecutor;
 import de.zorro909.codecheck.legacy.selector.FileSelector;
 import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 import de.zorro909.codecheck.core.validation.DefaultValidationEngine;
+import de.zorro909.codecheck.core.validation.DependencyRecorder;
 import de.zorro909.codecheck.core.validation.rule.RuleRegistry;
 import de.zorro909.codecheck.core.validation.ValidationEngine;
 import de.zorro909.codecheck.core.validation.ValidationMode;
@@ -113,7 +114,17 @@ public class ValidationCheckPipeline {
     }
 
     public Stream<ValidationError> checkFile(Path file) {
-        return validationEngine().validateFile(file, ValidationMode.INTERACTIVE)
+        return checkFile(file, DependencyRecorder.NONE);
+    }
+
+    /**
+     * Validates a single file.
+     * @param file the file to validate
+     * @param dependencies receives every other file the checks read
+     * @return the errors found in the file
+     */
+    public Stream<ValidationError> checkFile(Path file, DependencyRecorder dependencies) {
+        return validationEngine().validateFile(file, ValidationMode.INTERACTIVE, dependencies)
             .diagnostics()
             .stream()
             .map(Diagnostic::toValidationError);
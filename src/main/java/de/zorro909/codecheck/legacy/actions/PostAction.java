@@ -7,4 +7,13 @@ public interface PostAction {
 
     boolean perform(Set<Path> files);
 
+    /**
+     * Runs after a fixer rewrote files that passed their recheck.
+     * @param files files the fix changed
+     * @return whether the action succeeded for all files
+     */
+    default boolean performAfterFix(Set<Path> files) {
+        return perform(files);
+    }
+
 }
@@ -6,16 +6,36 @@ import io.micronaut.context.annotation.Requires;
 import io.micronaut.core.annotation.Order;
 import jakarta.inject.Singleton;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Restages files after they were fixed. All paths go to a single git process through
+ * stdin, so restaging hundreds of files costs one fork and one index lock.
+ */
 @Order(99)
 @Singleton
 @Requires(bean = GitDiffSelector.class)
 public class GitStageAction implements PostAction {
 
+    // The paths are file names, not patterns, so "Foo[1].java" never stages Foo1.java.
+    private static final List<String> ADD_COMMAND = List.of("git", "--literal-pathspecs", "add", "--ignore-errors",
+            "--pathspec-from-file=-", "--pathspec-file-nul");
+
+    private static final List<String> UPDATE_INDEX_COMMAND = List.of("git", "update-index", "--add", "--remove", "-z",
+            "--stdin");
+
     private final Path repositoryPath;
 
     public GitStageAction(Path repositoryPath) {
@@ -24,37 +44,162 @@ public class GitStageAction implements PostAction {
 
     @Override
     public boolean perform(Set<Path> files) {
-        int startIndex = 0;
-        int filesPerBatch = 10; // number of files to process at a time
+        return report(stage(files));
+    }
+
+    /**
+     * Uses update-index after a fix: the files are known paths, so pathspec matching and
+     * ignore rules are not needed.
+     */
+    @Override
+    public boolean performAfterFix(Set<Path> files) {
+        return report(updateIndex(files));
+    }
 
-        while (startIndex < files.size()) {
+    /**
+     * Stages the files with {@code git add}.
+     * @param files files to stage, absolute or relative to the repository
+     * @return which files were staged and why the others were not
+     */
+    public StageResult stage(Set<Path> files) {
+        return restage(files, ADD_COMMAND);
+    }
+
+    /**
+     * Writes the current content of the files into the index with
+     * {@code git update-index}; files that no longer exist are removed from it.
+     * @param files files to stage, absolute or relative to the repository
+     * @return which files were staged and why the others were not
+     */
+    public StageResult updateIndex(Set<Path> files) {
+        return restage(files, UPDATE_INDEX_COMMAND);
+    }
+
+    private StageResult restage(Set<Path> files, List<String> command) {
+        Map<String, Path> pending = new LinkedHashMap<>();
+        files.forEach(file -> pending.put(pathspec(file), file));
+        Map<Path, String> failures = new LinkedHashMap<>();
+        while (!pending.isEmpty()) {
+            Invocation invocation;
             try {
-                List<String> commandList = new ArrayList<>();
-                commandList.add("git");
-                commandList.add("add");
-
-                // Constructing the command list
-                files.stream().skip(startIndex).limit(filesPerBatch).map(Path::toString).forEach(commandList::add);
-
-                ProcessBuilder builder = new ProcessBuilder(commandList);
-                builder.directory(repositoryPath.toAbsolutePath().toFile());
-                Process process = builder.start();
-                process.waitFor();
-                startIndex += filesPerBatch;
-            }
-            catch (Exception ex) {
-                if (filesPerBatch > 1) {
-                    filesPerBatch /= 2; // decrease the number of files to process at a
-                                        // time
+                invocation = invoke(command, pending.keySet());
+            }
+            catch (IOException ex) {
+                pending.values().forEach(file -> failures.put(file, String.valueOf(ex.getMessage())));
+                pending.clear();
+                break;
+            }
+            if (invocation.exitCode() == 0) {
+                break;
+            }
+            Map<String, String> rejected = rejectedPathspecs(invocation.stderr(), pending.keySet());
+            if (rejected.isEmpty()) {
+                String reason = invocation.stderr().isEmpty() ? "git exited with " + invocation.exitCode()
+                        : invocation.stderr().get(0);
+                pending.values().forEach(file -> failures.put(file, reason));
+                pending.clear();
+                break;
+            }
+            rejected.forEach((pathspec, reason) -> failures.put(pending.remove(pathspec), reason));
+            // A fatal error rolls back the whole index update, so the remaining files
+            // have to be staged again; plain errors only skip the rejected files.
+            if (!invocation.aborted()) {
+                break;
+            }
+        }
+        Set<Path> staged = new LinkedHashSet<>(files);
+        staged.removeAll(failures.keySet());
+        return new StageResult(staged, failures);
+    }
+
+    private Invocation invoke(List<String> command, Collection<String> pathspecs) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(repositoryPath.toAbsolutePath().toFile());
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process process = builder.start();
+        try {
+            // Drained concurrently so git cannot block on a full stderr pipe while we
+            // are still writing paths.
+            CompletableFuture<List<String>> stderr = CompletableFuture
+                .supplyAsync(() -> readLines(process.getErrorStream()), Thread::startVirtualThread);
+            try (OutputStream stdin = process.getOutputStream()) {
+                for (String pathspec : pathspecs) {
+                    stdin.write(pathspec.getBytes(StandardCharsets.UTF_8));
+                    stdin.write(0);
                 }
-                else {
-                    System.err.println("Failed to add file");
-                    ex.printStackTrace();
-                    return false;
+            }
+            catch (IOException ex) {
+                // git exited early; its stderr says why.
+            }
+            int exitCode = process.waitFor();
+            return new Invocation(exitCode, stderr.join());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while staging files", ex);
+        }
+        finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> readLines(InputStream stream) {
+        try (stream) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8).lines()
+                .filter(line -> !line.isBlank())
+                .toList();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Map<String, String> rejectedPathspecs(List<String> stderr, Collection<String> pathspecs) {
+        Map<String, String> rejected = new LinkedHashMap<>();
+        for (String line : stderr) {
+            for (String pathspec : pathspecs) {
+                if (!rejected.containsKey(pathspec) && mentions(line, pathspec)) {
+                    rejected.put(pathspec, line);
                 }
             }
         }
-        return true;
+        return rejected;
+    }
+
+    private static boolean mentions(String line, String pathspec) {
+        return line.equals(pathspec) || line.contains("'" + pathspec + "'") || line.contains(" " + pathspec + ":")
+                || line.endsWith(" " + pathspec);
+    }
+
+    private String pathspec(Path file) {
+        Path repository = repositoryPath.toAbsolutePath().normalize();
+        Path normalized = file.toAbsolutePath().normalize();
+        Path relative = normalized.startsWith(repository) ? repository.relativize(normalized) : file;
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static boolean report(StageResult result) {
+        result.failures().forEach((file, reason) -> System.err.println("Failed to stage " + file + ": " + reason));
+        return result.failures().isEmpty();
+    }
+
+    /**
+     * Outcome of restaging a set of files.
+     *
+     * @param staged files that are now staged
+     * @param failures files that could not be staged, with git's reason
+     */
+    public record StageResult(Set<Path> staged, Map<Path, String> failures) {
+    }
+
+    private record Invocation(int exitCode, List<String> stderr) {
+
+        private boolean aborted() {
+            return stderr.stream().anyMatch(line -> line.startsWith("fatal:"));
+        }
+
     }
 
 }
@@ -41,7 +41,6 @@ public final class CodeCheckRuleAdapter implements Rule {
 
     @Override
     public List<Diagnostic> check(ValidationContext context, Path file) {
-        codeCheck.resetCache(file);
         if (!codeCheck.isResponsible(file)) {
             return List.of();
         }
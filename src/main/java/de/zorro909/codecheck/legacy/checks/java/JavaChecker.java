@@ -4,9 +4,12 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 
 import de.zorro909.codecheck.legacy.FileLoader;
@@ -35,12 +38,29 @@ public abstract class JavaChecker implements CodeCheck {
     private final JavaParserService javaParserService;
 
     protected JavaChecker(FileLoader fileLoader) {
-        this(fileLoader, new DefaultJavaParserService(new MavenProjectModelService(Path.of(""))));
+        this(fileLoader, Set.of());
+    }
+
+    protected JavaChecker(FileLoader fileLoader, Set<Class<?>> nodeTypes) {
+        this(fileLoader, new DefaultJavaParserService(new MavenProjectModelService(Path.of(""))), nodeTypes);
     }
 
     protected JavaChecker(FileLoader fileLoader, JavaParserService javaParserService) {
+        this(fileLoader, javaParserService, Set.of());
+    }
+
+    /**
+     * Creates a checker that reads nodes from the shared {@link JavaNodeIndex}.
+     * @param fileLoader The FileLoader used to record the files this checker reads.
+     * @param javaParserService The parser service shared by all checkers.
+     * @param nodeTypes The node classes or node interfaces this checker looks up. They
+     * are registered before any file is indexed and collected in the single traversal
+     * shared by all checkers of a file.
+     */
+    protected JavaChecker(FileLoader fileLoader, JavaParserService javaParserService, Set<Class<?>> nodeTypes) {
         this.fileLoader = fileLoader;
         this.javaParserService = javaParserService;
+        JavaNodeIndex.register(nodeTypes);
     }
 
     /**
@@ -69,10 +89,11 @@ public abstract class JavaChecker implements CodeCheck {
     @Override
     public List<ValidationError> check(Path path) {
         ParseOutcome parseOutcome = load(path);
-        List<ValidationError> parserDiagnostics = parseOutcome.diagnostics()
-            .stream()
-            .map(Diagnostic::toValidationError)
-            .toList();
+        List<Diagnostic> diagnostics = ruleMetadata().symbolResolution()
+                ? Stream.concat(parseOutcome.diagnostics().stream(), javaParserService.symbolDiagnostics(path).stream())
+                    .toList()
+                : parseOutcome.diagnostics();
+        List<ValidationError> parserDiagnostics = diagnostics.stream().map(Diagnostic::toValidationError).toList();
         if (parseOutcome.compilationUnit().isEmpty()) {
             return parserDiagnostics;
         }
@@ -96,16 +117,37 @@ public abstract class JavaChecker implements CodeCheck {
         javaParserService.invalidate(path);
     }
 
+    /**
+     * Resolves symbols of a loaded CompilationUnit without racing other validations that
+     * share the same type solver.
+     * @param javaUnit The CompilationUnit whose symbols are resolved.
+     * @param resolution The resolution to run.
+     * @return The result of the resolution.
+     */
+    protected <T> T resolveSymbols(CompilationUnit javaUnit, Supplier<T> resolution) {
+        return javaParserService.withSymbolResolution(getPath(javaUnit), resolution);
+    }
+
     protected Path getPath(CompilationUnit javaUnit) {
         Optional<Path> pathOpt = javaUnit.getStorage().map(CompilationUnit.Storage::getPath);
         return pathOpt.orElseThrow(() -> new IllegalArgumentException(COMP_UNIT_NO_STORAGE));
     }
 
-    protected Stream<ClassOrInterfaceDeclaration> filterGeneratedClasses(CompilationUnit javaUnit) {
-        return javaUnit
-            .findAll(ClassOrInterfaceDeclaration.class,
-                    clazz -> clazz.getAnnotationByName(GENERATED_ANNOTATION).isEmpty())
-            .stream();
+    /**
+     * Returns the nodes of a type from the shared index of the CompilationUnit.
+     * @param javaUnit The CompilationUnit to look up nodes in.
+     * @param type The node class or node interface to look up.
+     * @return The matching nodes in document order.
+     */
+    protected <N> Stream<N> nodes(CompilationUnit javaUnit, Class<N> type) {
+        return JavaNodeIndex.of(javaUnit).nodes(type).stream();
+    }
+
+    protected boolean isInNonGeneratedClass(Node node) {
+        return node
+            .findAncestor(clazz -> clazz.getAnnotationByName(GENERATED_ANNOTATION).isEmpty(),
+                    ClassOrInterfaceDeclaration.class)
+            .isPresent();
     }
 
 }
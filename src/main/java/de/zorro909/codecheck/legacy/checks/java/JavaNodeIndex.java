@@ -0,0 +1,98 @@
+package de.zorro909.codecheck.legacy.checks.java;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+
+/**
+ * Groups the nodes of a CompilationUnit by the node types that JavaChecker rules
+ * registered interest in. The tree is walked once per parsed CompilationUnit, and every
+ * rule checking the same file reads from the same index.
+ */
+public final class JavaNodeIndex {
+
+    private static final DataKey<JavaNodeIndex> INDEX_KEY = new DataKey<>() {
+    };
+
+    private static final Set<Class<?>> REGISTERED_TYPES = ConcurrentHashMap.newKeySet();
+
+    private final CompilationUnit compilationUnit;
+
+    private final Map<Class<?>, List<?>> nodesByType = new ConcurrentHashMap<>();
+
+    private JavaNodeIndex(CompilationUnit compilationUnit, Set<Class<?>> nodeTypes) {
+        this.compilationUnit = compilationUnit;
+        Map<Class<?>, List<Object>> buckets = new HashMap<>();
+        nodeTypes.forEach(type -> buckets.put(type, new ArrayList<>()));
+        // Each concrete node class is matched against the registered types only once.
+        Map<Class<?>, List<List<Object>>> dispatch = new HashMap<>();
+        if (!buckets.isEmpty()) {
+            compilationUnit.walk(node -> dispatch.computeIfAbsent(node.getClass(), type -> matching(type, buckets))
+                .forEach(bucket -> bucket.add(node)));
+        }
+        buckets.forEach((type, nodes) -> nodesByType.put(type, List.copyOf(nodes)));
+    }
+
+    private static List<List<Object>> matching(Class<?> nodeClass, Map<Class<?>, List<Object>> buckets) {
+        return buckets.entrySet()
+            .stream()
+            .filter(bucket -> bucket.getKey().isAssignableFrom(nodeClass))
+            .map(Map.Entry::getValue)
+            .toList();
+    }
+
+    /**
+     * Registers node types to collect in the traversal of every CompilationUnit indexed
+     * from now on.
+     * @param nodeTypes The node classes or node interfaces of interest.
+     */
+    public static void register(Collection<Class<?>> nodeTypes) {
+        REGISTERED_TYPES.addAll(nodeTypes);
+    }
+
+    static boolean registered(Class<?> nodeType) {
+        return REGISTERED_TYPES.contains(nodeType);
+    }
+
+    // Registrations last for the whole JVM, so tests start from an empty registry.
+    static void clearRegistrations() {
+        REGISTERED_TYPES.clear();
+    }
+
+    /**
+     * Returns the index of a CompilationUnit, walking the tree on first access.
+     * @param compilationUnit The CompilationUnit to index.
+     * @return The shared index of the CompilationUnit.
+     */
+    public static JavaNodeIndex of(CompilationUnit compilationUnit) {
+        synchronized (compilationUnit) {
+            if (compilationUnit.containsData(INDEX_KEY)) {
+                return compilationUnit.getData(INDEX_KEY);
+            }
+            JavaNodeIndex index = new JavaNodeIndex(compilationUnit, Set.copyOf(REGISTERED_TYPES));
+            compilationUnit.setData(INDEX_KEY, index);
+            return index;
+        }
+    }
+
+    /**
+     * Returns all nodes of the given type in document order. Types that were not
+     * registered before the index was built are looked up with a separate traversal.
+     * @param type The node class or node interface to look up.
+     * @return The matching nodes in document order.
+     */
+    @SuppressWarnings("unchecked")
+    public <N> List<N> nodes(Class<N> type) {
+        return (List<N>) nodesByType.computeIfAbsent(type,
+                _ -> compilationUnit.findAll(Node.class, type::isInstance).stream().map(type::cast).toList());
+    }
+
+}
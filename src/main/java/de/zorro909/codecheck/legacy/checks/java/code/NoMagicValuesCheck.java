@@ -19,6 +19,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The NoMagicValuesCheck class is responsible for checking Java code files for the
@@ -32,13 +33,15 @@ public class NoMagicValuesCheck extends JavaChecker {
 
     private static final String MAIN_FOLDER = "src" + File.separatorChar + "main" + File.separatorChar + "java";
 
+    private static final Set<Class<?>> NODE_TYPES = Set.of(NodeWithArguments.class);
+
     public NoMagicValuesCheck(FileLoader fileLoader) {
-        super(fileLoader);
+        super(fileLoader, NODE_TYPES);
     }
 
     @Inject
     public NoMagicValuesCheck(FileLoader fileLoader, JavaParserService javaParserService) {
-        super(fileLoader, javaParserService);
+        super(fileLoader, javaParserService, NODE_TYPES);
     }
 
     @Override
@@ -49,7 +52,7 @@ public class NoMagicValuesCheck extends JavaChecker {
     @Override
     public RuleMetadata ruleMetadata() {
         return new RuleMetadata("No magic values",
-                "Rejects literal method and constructor arguments in main Java sources.");
+                "Rejects literal method and constructor arguments in main Java sources.", "1", true, false);
     }
 
     @Override
@@ -66,9 +69,10 @@ public class NoMagicValuesCheck extends JavaChecker {
     public List<ValidationError> check(CompilationUnit javaUnit) {
         List<ValidationError> errors = new ArrayList<>();
 
-        filterGeneratedClasses(javaUnit).flatMap(Node::stream)
+        nodes(javaUnit, NodeWithArguments.class)
             .filter(node -> node instanceof MethodCallExpr || node instanceof ExplicitConstructorInvocationStmt
                     || node instanceof ObjectCreationExpr)
+            .filter(node -> isInNonGeneratedClass((Node) node))
             .map(obj -> (NodeWithArguments<?>) obj)
             .filter(this::filterOutExceptions)
             .flatMap(call -> call.getArguments().stream())
@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import com.github.javaparser.ast.AccessSpecifier;
 import com.github.javaparser.ast.CompilationUnit;
@@ -32,6 +33,7 @@ import de.zorro909.codecheck.legacy.FileLoader;
 import de.zorro909.codecheck.core.diagnostic.ValidationError;
 import de.zorro909.codecheck.legacy.checks.java.JavaChecker;
 import de.zorro909.codecheck.core.project.JavaParserService;
+import de.zorro909.codecheck.core.validation.rule.RuleMetadata;
 import de.zorro909.codecheck.legacy.utils.MethodDeclarationExtensions;
 
 /**
@@ -58,13 +60,20 @@ public final class JavaDocCheck extends JavaChecker {
 
     public static final String EXCLUSION_OVERRIDE_ANNOTAION = "Override";
 
+    private static final Set<Class<?>> NODE_TYPES = Set.of(TypeDeclaration.class, MethodDeclaration.class);
+
     public JavaDocCheck(FileLoader fileLoader) {
-        super(fileLoader);
+        super(fileLoader, NODE_TYPES);
     }
 
     @Inject
     public JavaDocCheck(FileLoader fileLoader, JavaParserService javaParserService) {
-        super(fileLoader, javaParserService);
+        super(fileLoader, javaParserService, NODE_TYPES);
+    }
+
+    @Override
+    public RuleMetadata ruleMetadata() {
+        return new RuleMetadata(getClass().getSimpleName(), "Legacy validation check", "1", false, true);
     }
 
     @Override
@@ -77,8 +86,7 @@ public final class JavaDocCheck extends JavaChecker {
     public List<ValidationError> check(CompilationUnit javaUnit) {
         List<ValidationError> errors = new LinkedList<>();
 
-        javaUnit.findAll(TypeDeclaration.class, decl -> decl.getAccessSpecifier() == AccessSpecifier.PUBLIC)
-            .stream()
+        nodes(javaUnit, TypeDeclaration.class).filter(decl -> decl.getAccessSpecifier() == AccessSpecifier.PUBLIC)
             .filter(this::hasNoJavaDoc)
             .filter(coi -> hasNoImplements(javaUnit, coi))
             .map(Node::getBegin)
@@ -86,13 +94,8 @@ public final class JavaDocCheck extends JavaChecker {
                     ValidationError.Severity.MEDIUM))
             .forEach(errors::add);
 
-        javaUnit
-            .findAll(ClassOrInterfaceDeclaration.class,
-                    decl -> decl.getAccessSpecifier() == AccessSpecifier.PUBLIC && decl.isInterface())
-            .stream()
-            .filter(decl -> !decl.getNameAsString().endsWith(EXCLUSIION_MAPPER_CLASS_SUFFIX))
-            .flatMap(decl -> decl.findAll(MethodDeclaration.class).stream())
-            .filter(method -> method.getAccessSpecifier() == AccessSpecifier.NONE)
+        nodes(javaUnit, MethodDeclaration.class).filter(method -> method.getAccessSpecifier() == AccessSpecifier.NONE)
+            .filter(this::isInDocumentedInterface)
             .filter(this::hasNoJavaDoc)
             .filter(method -> method.getAnnotationByName(EXCLUSION_OVERRIDE_ANNOTAION).isEmpty())
             .filter(MethodDeclarationExtensions::isSimpleGetterOrSetter)
@@ -101,8 +104,7 @@ public final class JavaDocCheck extends JavaChecker {
                     ValidationError.Severity.MEDIUM))
             .forEach(errors::add);
 
-        javaUnit.findAll(MethodDeclaration.class, method -> method.getAccessSpecifier() == AccessSpecifier.PUBLIC)
-            .stream()
+        nodes(javaUnit, MethodDeclaration.class).filter(method -> method.getAccessSpecifier() == AccessSpecifier.PUBLIC)
             .filter(this::hasNoJavaDoc)
             .filter(method -> method.getAnnotationByName(EXCLUSION_OVERRIDE_ANNOTAION).isEmpty())
             .filter(method -> !MethodDeclarationExtensions.isSimpleGetterOrSetter(method))
@@ -111,8 +113,7 @@ public final class JavaDocCheck extends JavaChecker {
                     ValidationError.Severity.MEDIUM))
             .forEach(errors::add);
 
-        javaUnit.findAll(MethodDeclaration.class, method -> method.getAnnotationByName("Test").isPresent())
-            .stream()
+        nodes(javaUnit, MethodDeclaration.class).filter(method -> method.getAnnotationByName("Test").isPresent())
             .filter(node -> hasNoJavaDoc(node, true))
             .map(Node::getBegin)
             .map(pos -> new ValidationError(getPath(javaUnit), ERROR_MESSAGE_TEST_METHOD, pos,
@@ -122,6 +123,15 @@ public final class JavaDocCheck extends JavaChecker {
         return errors;
     }
 
+    private boolean isInDocumentedInterface(MethodDeclaration method) {
+        return method
+            .findAncestor(
+                    decl -> decl.getAccessSpecifier() == AccessSpecifier.PUBLIC && decl.isInterface()
+                            && !decl.getNameAsString().endsWith(EXCLUSIION_MAPPER_CLASS_SUFFIX),
+                    ClassOrInterfaceDeclaration.class)
+            .isPresent();
+    }
+
     private boolean hasNoImplements(CompilationUnit unit, TypeDeclaration typeDeclaration) {
         if (!(typeDeclaration instanceof ClassOrInterfaceDeclaration classOrInterfaceDeclaration)) {
             return true;
@@ -141,7 +151,7 @@ public final class JavaDocCheck extends JavaChecker {
             return false;
         }
 
-        return implementedTypes.stream().noneMatch(coi -> {
+        return resolveSymbols(unit, () -> implementedTypes.stream().noneMatch(coi -> {
             try {
                 String qualifiedName = coi.resolve().asReferenceType().getQualifiedName();
                 String[] packages = qualifiedName.split("\\.");
@@ -155,7 +165,7 @@ public final class JavaDocCheck extends JavaChecker {
             catch (UnsolvedSymbolException use) {
                 return false;
             }
-        });
+        }));
     }
 
     boolean hasNoJavaDoc(NodeWithJavadoc<?> node) {
@@ -3,7 +3,6 @@ package de.zorro909.codecheck.legacy.checks.java.test;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -55,7 +54,7 @@ public class PublicMethodsAreTestedCheck extends JavaChecker {
         Path filePath = getPath(javaUnit);
         filePath = Path.of(filePath.toString().replace("main", "test").replace("Impl.java", "ImplTest.java"));
 
-        if (!Files.exists(filePath)) {
+        if (!fileLoader.fileExists(filePath)) {
             return new ArrayList<>();
         }
 
@@ -1,10 +1,12 @@
 package de.zorro909.codecheck.legacy.checks.java.test;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import de.zorro909.codecheck.legacy.FileLoader;
 import de.zorro909.codecheck.core.diagnostic.ValidationError;
 import de.zorro909.codecheck.legacy.checks.java.JavaChecker;
 import de.zorro909.codecheck.core.project.JavaParserService;
+import de.zorro909.codecheck.core.validation.rule.RuleMetadata;
 import de.zorro909.codecheck.legacy.utils.CompilationUnitExtensions;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -13,6 +15,8 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * The TestClassCheck class is responsible for checking Java test classes for specific
@@ -33,13 +37,21 @@ public class TestClassCheck extends JavaChecker {
 
     public static final String ERROR_TEST_CLASS_TESTS_ANNOTATION = "Test Class should contain a @Tests annotation.";
 
+    private static final Set<Class<?>> NODE_TYPES = Set.of(ClassOrInterfaceDeclaration.class);
+
     public TestClassCheck(FileLoader fileLoader) {
-        super(fileLoader);
+        super(fileLoader, NODE_TYPES);
     }
 
     @Inject
     public TestClassCheck(FileLoader fileLoader, JavaParserService javaParserService) {
-        super(fileLoader, javaParserService);
+        super(fileLoader, javaParserService, NODE_TYPES);
+    }
+
+    @Override
+    public RuleMetadata ruleMetadata() {
+        return new RuleMetadata("Test class conventions",
+                "Requires test classes to extend a base class and carry a @Tests annotation.", "1", true, false);
     }
 
     @Override
@@ -60,16 +72,14 @@ public class TestClassCheck extends JavaChecker {
         // Creates a HIGH severity Validation Erroor for Test Classes that do not extend
         // another
         // Class
-        CompilationUnitExtensions.findAllClassesWithEnds(javaUnit, TEST_CLASS_SUFFIX)
-            .filter(type -> type.getExtendedTypes().isEmpty())
+        testClasses(javaUnit).filter(type -> type.getExtendedTypes().isEmpty())
             .map(type -> CompilationUnitExtensions.validationError(javaUnit, type, ValidationError.Severity.HIGH,
                     ERROR_TEST_CLASS_SHOULD_EXTEND))
             .forEach(errors::add);
 
         // Creates a HIGH severity Validation Error for Test Classes without the @Tests
         // annotation
-        CompilationUnitExtensions.findAllClassesWithEnds(javaUnit, TEST_CLASS_SUFFIX)
-            .filter(type -> type.getAnnotationByName(TESTS_ANNOTATION_NAME).isEmpty())
+        testClasses(javaUnit).filter(type -> type.getAnnotationByName(TESTS_ANNOTATION_NAME).isEmpty())
             .map(type -> CompilationUnitExtensions.validationError(javaUnit, type, ValidationError.Severity.HIGH,
                     ERROR_TEST_CLASS_TESTS_ANNOTATION))
             .forEach(errors::add);
@@ -77,4 +87,9 @@ public class TestClassCheck extends JavaChecker {
         return errors;
     }
 
+    private Stream<ClassOrInterfaceDeclaration> testClasses(CompilationUnit javaUnit) {
+        return nodes(javaUnit, ClassOrInterfaceDeclaration.class)
+            .filter(decl -> decl.getNameAsString().endsWith(TEST_CLASS_SUFFIX));
+    }
+
 }
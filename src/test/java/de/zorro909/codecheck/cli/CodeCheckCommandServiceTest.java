@@ -17,6 +17,9 @@ import de.zorro909.codecheck.core.config.ConfigOverrides;
 import de.zorro909.codecheck.legacy.selector.FileSelector;
 import de.zorro909.codecheck.core.diagnostic.Diagnostic;
 import de.zorro909.codecheck.core.diagnostic.DiagnosticKind;
+import de.zorro909.codecheck.core.profiling.ProfileEntry;
+import de.zorro909.codecheck.core.profiling.ProfilePhase;
+import de.zorro909.codecheck.core.profiling.ProfileReport;
 import de.zorro909.codecheck.core.validation.FileValidationResult;
 import de.zorro909.codecheck.core.validation.rule.RuleId;
 import de.zorro909.codecheck.core.diagnostic.SourcePosition;
@@ -270,6 +273,20 @@ class CodeCheckCommandServiceTest {
         assertThat(postActionInvoked).isTrue();
     }
 
+    @Test
+    void profileIsPrintedToTheCommandStreams(@TempDir Path tempDir) throws Exception {
+        CodeCheckCommandService service = createService(Stream::empty);
+        ProfileReport report = new ProfileReport(
+                List.of(new ProfileEntry(ProfilePhase.RULE, "java.rule", 1, 2_000_000, 1_000_000, 1024)), List.of());
+        Path blocked = Files.writeString(tempDir.resolve("blocked"), "");
+
+        service.printProfile(report, 10, tempDir.resolve("profile.json"));
+        service.printProfile(report, 10, blocked.resolve("profile.json"));
+
+        assertThat(output()).contains("java.rule").contains("Profile report written to");
+        assertThat(errorOutput()).contains("Failed to write profile report");
+    }
+
     private CodeCheckCommandService createService(FileSelector fileSelector) {
         return createService(fileSelector, CodeCheckConfigLoader.defaultsOnly());
     }
@@ -2,9 +2,15 @@ package de.zorro909.codecheck.cli;
 
 import de.zorro909.codecheck.cli.CodeCheckCommandService;
 import de.zorro909.codecheck.cli.CommandOutcome;
+import de.zorro909.codecheck.core.config.ConfigOverrides;
+import de.zorro909.codecheck.core.profiling.ValidationProfiler;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import picocli.CommandLine;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class GitCommitCodeCheckCommandTest {
@@ -49,6 +55,38 @@ class GitCommitCodeCheckCommandTest {
         assertThat(service.calledMode).isEqualTo("pre-commit");
     }
 
+    @Test
+    void parallelismOptionIsPassedAsConfigOverride() {
+        RecordingCommandService service = new RecordingCommandService();
+
+        int exitCode = commandLine(service).execute("--parallelism", "6", "check", "--batch");
+
+        assertThat(exitCode).isZero();
+        assertThat(service.calledMode).isEqualTo("batch");
+        assertThat(service.overrides.parallelism()).isEqualTo(6);
+    }
+
+    @Test
+    void profileOptionWritesJsonReport(@TempDir Path tempDir) throws Exception {
+        RecordingCommandService service = new RecordingCommandService();
+        Path report = tempDir.resolve("profile.json");
+
+        int exitCode = commandLine(service).execute("--profile", report.toString(), "pre-commit");
+
+        assertThat(exitCode).isZero();
+        assertThat(service.calledMode).isEqualTo("pre-commit");
+        assertThat(Files.readString(report)).contains("\"bySubject\"").contains("\"byFile\"");
+    }
+
+    @Test
+    void profileOptionWithoutReportPathLeavesSubcommandAlone() {
+        GitCommitCodeCheckCommand command = new GitCommitCodeCheckCommand();
+
+        new CommandLine(command).parseArgs("--profile", "check", "--batch");
+
+        assertThat(command.profileReport).isEqualTo(Path.of("codecheck-profile.json"));
+    }
+
     @Test
     void statusCommandRoutesToStatus() {
         RecordingCommandService service = new RecordingCommandService();
@@ -72,6 +110,7 @@ class GitCommitCodeCheckCommandTest {
     private CommandLine commandLine(RecordingCommandService service) {
         GitCommitCodeCheckCommand command = new GitCommitCodeCheckCommand();
         command.commandService = service;
+        command.profiler = new ValidationProfiler();
         return new CommandLine(command);
     }
 
@@ -79,6 +118,8 @@ class GitCommitCodeCheckCommandTest {
 
         private String calledMode;
 
+        private ConfigOverrides overrides;
+
         private RecordingCommandService() {
             super(null, null, null);
         }
@@ -90,20 +131,23 @@ class GitCommitCodeCheckCommandTest {
         }
 
         @Override
-        public CommandOutcome runInteractiveCheck(boolean noExitCode) {
+        public CommandOutcome runInteractiveCheck(boolean noExitCode, ConfigOverrides overrides) {
             calledMode = "interactive";
+            this.overrides = overrides;
             return CommandOutcome.success();
         }
 
         @Override
-        public CommandOutcome runBatchCheck() {
+        public CommandOutcome runBatchCheck(ConfigOverrides overrides) {
             calledMode = "batch";
+            this.overrides = overrides;
             return CommandOutcome.success();
         }
 
         @Override
-        public CommandOutcome runPreCommit() {
+        public CommandOutcome runPreCommit(ConfigOverrides overrides) {
             calledMode = "pre-commit";
+            this.overrides = overrides;
             return CommandOutcome.success();
         }
 
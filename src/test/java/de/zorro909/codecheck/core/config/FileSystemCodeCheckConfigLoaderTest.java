@@ -97,12 +97,43 @@ class FileSystemCodeCheckConfigLoaderTest {
                 """);
 
         CodeCheckConfig config = loader(repo)
-            .load(new ConfigOverrides(List.of("release-main"), null, Duration.ofMillis(250)));
+            .load(new ConfigOverrides(List.of("release-main"), null, Duration.ofMillis(250), null));
 
         assertThat(config.git().mainBranches()).containsExactly("release-main");
         assertThat(config.daemon().saveDebounce()).isEqualTo(Duration.ofMillis(250));
     }
 
+    @Test
+    void validationParallelismFromRepoConfigCanBeOverriddenFromCli(@TempDir Path tempDir) throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve(".codecheck.yaml"), """
+                validation:
+                  parallelism: 4
+                """);
+
+        CodeCheckConfig fileConfig = loader(repo).load();
+        CodeCheckConfig cliConfig = loader(repo).load(new ConfigOverrides(null, null, null, 8));
+
+        assertThat(CodeCheckConfig.defaults().validation().parallelism()).isEqualTo(1);
+        assertThat(fileConfig.validation().parallelism()).isEqualTo(4);
+        assertThat(cliConfig.validation().parallelism()).isEqualTo(8);
+    }
+
+    @Test
+    void negativeValidationParallelismFailsWithFieldPath(@TempDir Path tempDir) throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve(".codecheck.yaml"), """
+                validation:
+                  parallelism: -2
+                """);
+
+        assertThatThrownBy(() -> loader(repo).load()).isInstanceOf(ConfigException.class)
+            .hasMessageContaining("validation.parallelism")
+            .hasMessageContaining("must not be negative");
+    }
+
     @Test
     void invalidConfigFailsWithActionableFieldPath(@TempDir Path tempDir) throws Exception {
         Path repo = tempDir.resolve("repo");
@@ -0,0 +1,99 @@
+package de.zorro909.codecheck.core.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ValidationProfilerTest {
+
+    @Test
+    void disabledProfilerRecordsNothing() {
+        ValidationProfiler profiler = new ValidationProfiler();
+
+        String result = profiler.measure(ProfilePhase.RULE, "rule", Path.of("A.java"), () -> "done");
+
+        assertThat(result).isEqualTo("done");
+        assertThat(profiler.report().bySubject()).isEmpty();
+        assertThat(profiler.report().byFile()).isEmpty();
+    }
+
+    @Test
+    void measurementsAreAggregatedPerSubjectAndFile() {
+        ValidationProfiler profiler = new ValidationProfiler();
+        profiler.enable();
+
+        profiler.measure(ProfilePhase.RULE, "java.rule", Path.of("A.java"), () -> new byte[4096]);
+        profiler.measure(ProfilePhase.RULE, "java.rule", Path.of("B.java"), () -> null);
+        profiler.measure(ProfilePhase.PARSE, "java.parser", Path.of("A.java"), () -> null);
+
+        ProfileReport report = profiler.report();
+        assertThat(report.bySubject()).extracting(ProfileEntry::subject, ProfileEntry::calls)
+            .containsExactlyInAnyOrder(tuple("java.rule", 2L), tuple("java.parser", 1L));
+        assertThat(report.byFile()).hasSize(3);
+        assertThat(report.bySubject())
+            .isSortedAccordingTo((left, right) -> Long.compare(right.wallNanos(), left.wallNanos()));
+    }
+
+    @Test
+    void nestedMeasurementsAreOnlyCountedForTheirOwnSubject() {
+        ValidationProfiler profiler = new ValidationProfiler();
+        profiler.enable();
+
+        profiler.measure(ProfilePhase.RULE, "java.rule", Path.of("A.java"),
+                () -> profiler.measure(ProfilePhase.PARSE, "java.parser", Path.of("A.java"), () -> {
+                    sleep(50);
+                    return null;
+                }));
+
+        ProfileReport report = profiler.report();
+        ProfileEntry rule = entry(report, "java.rule");
+        ProfileEntry parser = entry(report, "java.parser");
+        assertThat(parser.wallNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(rule.wallNanos()).isLessThan(parser.wallNanos());
+    }
+
+    @Test
+    void jsonEscapesControlCharactersInSubjects() {
+        ValidationProfiler profiler = new ValidationProfiler();
+        profiler.enable();
+        profiler.measure(ProfilePhase.RULE, "line\nbreak\u0001", Path.of("A.java"), () -> null);
+
+        assertThat(profiler.report().toJson()).contains("\"line\\nbreak\\u0001\"").doesNotContain("\u0001");
+    }
+
+    @Test
+    void summaryIsLimitedToTopEntriesAndJsonEscapesSubjects() {
+        ValidationProfiler profiler = new ValidationProfiler();
+        profiler.enable();
+        profiler.measure(ProfilePhase.RULE, "first", Path.of("C:\\src\\A.java"), () -> null);
+        profiler.measure(ProfilePhase.RULE, "second", Path.of("B.java"), () -> null);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ProfileReport report = profiler.report();
+        report.printSummary(new PrintStream(output, true, StandardCharsets.UTF_8), 1);
+
+        assertThat(output.toString(StandardCharsets.UTF_8).lines().filter(line -> line.contains(" x  "))).hasSize(2);
+        assertThat(report.toJson()).contains("\"calls\": 1").doesNotContain("C:\\s");
+    }
+
+    private static ProfileEntry entry(ProfileReport report, String subject) {
+        return report.bySubject().stream().filter(entry -> entry.subject().equals(subject)).findFirst().orElseThrow();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
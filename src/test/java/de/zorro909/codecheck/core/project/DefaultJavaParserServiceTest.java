@@ -1,13 +1,25 @@
 package de.zorro909.codecheck.core.project;
 
+import com.github.javaparser.ast.CompilationUnit;
+import de.zorro909.codecheck.core.config.CodeCheckConfig;
 import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
+import de.zorro909.codecheck.core.config.ConfigOverrides;
 import de.zorro909.codecheck.core.diagnostic.DiagnosticKind;
+import de.zorro909.codecheck.core.validation.DependencyScope;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.stream.Collectors.joining;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class DefaultJavaParserServiceTest {
@@ -45,7 +57,7 @@ class DefaultJavaParserServiceTest {
         ParseOutcome outcome = parserService.parse(test);
 
         assertThat(outcome.compilationUnit()).isPresent();
-        assertThat(outcome.diagnostics()).noneMatch(diagnostic -> diagnostic.kind() == DiagnosticKind.SYMBOL_WARNING);
+        assertThat(parserService.symbolDiagnostics(test)).isEmpty();
     }
 
     @Test
@@ -83,7 +95,7 @@ class DefaultJavaParserServiceTest {
     }
 
     @Test
-    void unresolvedSymbolBecomesMediumSymbolWarning(@TempDir Path repo) throws Exception {
+    void unresolvedSymbolBecomesLazyMediumSymbolWarning(@TempDir Path repo) throws Exception {
         writeRootPom(repo, "service");
         Path source = write(repo, "service/src/main/java/com/example/NeedsMissingType.java", """
                 package com.example;
@@ -96,7 +108,8 @@ class DefaultJavaParserServiceTest {
         ParseOutcome outcome = parserService.parse(source);
 
         assertThat(outcome.compilationUnit()).isPresent();
-        assertThat(outcome.diagnostics()).anySatisfy(diagnostic -> {
+        assertThat(outcome.diagnostics()).isEmpty();
+        assertThat(parserService.symbolDiagnostics(source)).anySatisfy(diagnostic -> {
             assertThat(diagnostic.kind()).isEqualTo(DiagnosticKind.SYMBOL_WARNING);
             assertThat(diagnostic.severity())
                 .isEqualTo(de.zorro909.codecheck.core.diagnostic.ValidationError.Severity.MEDIUM);
@@ -120,11 +133,248 @@ class DefaultJavaParserServiceTest {
         assertThat(second).isNotSameAs(first);
     }
 
+    @Test
+    void renamedFileWithSameContentKeepsItsParse(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/Moved.java", """
+                package com.example;
+                public class Moved {}
+                """);
+        Path target = repo.resolve("service/src/main/java/com/example/Renamed.java");
+        JavaParserService parserService = parserService(repo);
+        CompilationUnit parsed = parserService.parse(source).compilationUnit().orElseThrow();
+
+        Files.move(source, target);
+        parserService.invalidate(source);
+        parserService.migrate(source, target);
+        ParseOutcome moved = parserService.parse(target);
+
+        assertThat(moved.compilationUnit()).containsSame(parsed);
+        assertThat(moved.file()).isEqualTo(target.toAbsolutePath().normalize());
+        assertThat(parsed.getStorage().orElseThrow().getPath()).isEqualTo(target.toAbsolutePath().normalize());
+    }
+
+    @Test
+    void touchedFileWithSameContentReusesParseOutcome(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/Touched.java", """
+                package com.example;
+                public class Touched {}
+                """);
+        JavaParserService parserService = parserService(repo);
+        ParseOutcome first = parserService.parse(source);
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+        ParseOutcome second = parserService.parse(source);
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void changedContentIsReparsedWithoutExplicitInvalidation(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/Edited.java", """
+                package com.example;
+                public class Edited {}
+                """);
+        JavaParserService parserService = parserService(repo);
+        ParseOutcome first = parserService.parse(source);
+
+        Files.writeString(source, """
+                package com.example;
+                public class Edited {
+                    int count;
+                }
+                """);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5000));
+        ParseOutcome second = parserService.parse(source);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.compilationUnit().orElseThrow().toString()).contains("int count;");
+        assertThat(second.compilationUnit().orElseThrow().getStorage()).isPresent();
+    }
+
+    @Test
+    void cacheStatsCountHitsMissesAndEvictions(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        String padding = "// padding\n".repeat(2000);
+        Path first = write(repo, "service/src/main/java/com/example/First.java",
+                "package com.example;\npublic class First {}\n" + padding);
+        Path second = write(repo, "service/src/main/java/com/example/Second.java",
+                "package com.example;\npublic class Second {}\n" + padding);
+        CodeCheckConfig config = CodeCheckConfig.defaults()
+            .withJavaProject(
+                    new CodeCheckConfig.JavaProject(25, CodeCheckConfig.GeneratedSourceDetection.MAVEN_DEFAULTS, 1));
+        CodeCheckConfigLoader loader = new CodeCheckConfigLoader() {
+            @Override
+            public CodeCheckConfig load() {
+                return config;
+            }
+
+            @Override
+            public CodeCheckConfig load(ConfigOverrides overrides) {
+                return overrides.apply(config);
+            }
+        };
+        DefaultJavaParserService parserService = new DefaultJavaParserService(
+                new MavenProjectModelService(repo, loader), loader);
+
+        parserService.parse(first);
+        parserService.parse(first);
+        parserService.parse(second);
+
+        ParseCacheStats stats = parserService.cacheStats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(2);
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(1);
+        assertThat(stats.estimatedBytes()).isLessThanOrEqualTo(1024L * 1024L);
+    }
+
+    @Test
+    void sourceFileResolvesTypesFromSiblingModule(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "api", "service");
+        write(repo, "api/src/main/java/com/example/api/Order.java", """
+                package com.example.api;
+                public class Order {}
+                """);
+        Path source = write(repo, "service/src/main/java/com/example/OrderService.java", """
+                package com.example;
+                import com.example.api.Order;
+                public class OrderService {
+                    Order order;
+                }
+                """);
+        JavaParserService parserService = parserService(repo);
+
+        assertThat(parserService.symbolDiagnostics(source)).isEmpty();
+    }
+
+    @Test
+    void symbolResolutionRecordsTheFilesItReadAlsoWhenReused(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "api", "service");
+        Path order = write(repo, "api/src/main/java/com/example/api/Order.java", """
+                package com.example.api;
+                public class Order {}
+                """);
+        Path source = write(repo, "service/src/main/java/com/example/OrderService.java", """
+                package com.example;
+                import com.example.api.Order;
+                public class OrderService {
+                    Order order;
+                    Missing missing;
+                }
+                """);
+        JavaParserService parserService = parserService(repo);
+        Set<Path> first = new HashSet<>();
+        Set<Path> reused = new HashSet<>();
+
+        DependencyScope.recording(first::add, () -> parserService.symbolDiagnostics(source));
+        DependencyScope.recording(reused::add, () -> parserService.symbolDiagnostics(source));
+
+        assertThat(first).contains(order, repo.resolve("service/src/main/java/com/example/Missing.java"));
+        assertThat(reused).isEqualTo(first);
+    }
+
+    @Test
+    void invalidateLetsPreviouslyMissingTypeResolve(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/UsesLater.java", """
+                package com.example;
+                public class UsesLater {
+                    Later later;
+                }
+                """);
+        JavaParserService parserService = parserService(repo);
+        assertThat(parserService.symbolDiagnostics(source)).isNotEmpty();
+
+        Path added = write(repo, "service/src/main/java/com/example/Later.java", """
+                package com.example;
+                public class Later {}
+                """);
+        parserService.invalidate(added);
+        parserService.invalidate(source);
+
+        assertThat(parserService.symbolDiagnostics(source)).isEmpty();
+    }
+
+    @Test
+    void addedTypeDropsTheSymbolResultsOfFilesThatLookedItUp(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/UsesLater.java", """
+                package com.example;
+                public class UsesLater {
+                    Later later;
+                }
+                """);
+        JavaParserService parserService = parserService(repo);
+        assertThat(parserService.symbolDiagnostics(source)).isNotEmpty();
+
+        Path added = write(repo, "service/src/main/java/com/example/Later.java", """
+                package com.example;
+                public class Later {}
+                """);
+        parserService.invalidate(added);
+
+        assertThat(parserService.symbolDiagnostics(source)).isEmpty();
+    }
+
+    @Test
+    void overlaySourceIsParsedInsteadOfDiskAndCachedByContentId(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "service");
+        Path source = write(repo, "service/src/main/java/com/example/Staged.java", """
+                package com.example;
+                public class Staged {
+                    int unstaged;
+                }
+                """);
+        AtomicInteger reads = new AtomicInteger();
+        JavaParserService parserService = parserService(repo);
+        parserService.overlay(_ -> Optional.of(new SourceOverlay.Source("blob-1", () -> {
+            reads.incrementAndGet();
+            return "package com.example;\npublic class Staged {}\n".getBytes(StandardCharsets.UTF_8);
+        })));
+
+        ParseOutcome staged = parserService.parse(source);
+        Files.writeString(source, "package com.example;\npublic class Staged { long edited; }\n");
+
+        assertThat(parserService.parse(source)).isSameAs(staged);
+        assertThat(staged.compilationUnit().orElseThrow().toString()).doesNotContain("unstaged");
+        assertThat(reads).hasValue(1);
+
+        parserService.overlay(SourceOverlay.NONE);
+
+        assertThat(parserService.parse(source).compilationUnit().orElseThrow().toString()).contains("long edited;");
+    }
+
+    @Test
+    void resolvedTypesAreReadFromTheOverlayLikeTheValidatedFiles(@TempDir Path repo) throws Exception {
+        writeRootPom(repo, "api", "service");
+        Path order = write(repo, "api/src/main/java/com/example/api/Order.java", """
+                package com.example.api;
+                class Unstaged {}
+                """);
+        Path source = write(repo, "service/src/main/java/com/example/OrderService.java", """
+                package com.example;
+                import com.example.api.Order;
+                public class OrderService {
+                    Order order;
+                }
+                """);
+        JavaParserService parserService = parserService(repo);
+        parserService.overlay(file -> file.equals(order)
+                ? Optional.of(new SourceOverlay.Source("blob-1",
+                        () -> "package com.example.api;\npublic class Order {}\n".getBytes(StandardCharsets.UTF_8)))
+                : Optional.empty());
+
+        assertThat(parserService.symbolDiagnostics(source)).isEmpty();
+    }
+
     private JavaParserService parserService(Path repo) {
         return new DefaultJavaParserService(new MavenProjectModelService(repo, CodeCheckConfigLoader.defaultsOnly()));
     }
 
-    private void writeRootPom(Path repo, String module) throws Exception {
+    private void writeRootPom(Path repo, String... modules) throws Exception {
         Files.writeString(repo.resolve("pom.xml"), """
                 <project>
                   <modelVersion>4.0.0</modelVersion>
@@ -132,13 +382,16 @@ class DefaultJavaParserServiceTest {
                   <artifactId>root</artifactId>
                   <version>1</version>
                   <modules>
-                    <module>%s</module>
+                    %s
                   </modules>
                 </project>
-                """.formatted(module));
-        Files.createDirectories(repo.resolve(module));
-        Files.writeString(repo.resolve(module).resolve("pom.xml"),
-                "<project><modelVersion>4.0.0</modelVersion></project>");
+                """
+            .formatted(Arrays.stream(modules).map(module -> "<module>" + module + "</module>").collect(joining())));
+        for (String module : modules) {
+            Files.createDirectories(repo.resolve(module));
+            Files.writeString(repo.resolve(module).resolve("pom.xml"),
+                    "<project><modelVersion>4.0.0</modelVersion></project>");
+        }
     }
 
     private Path write(Path repo, String relativePath, String content) throws Exception {
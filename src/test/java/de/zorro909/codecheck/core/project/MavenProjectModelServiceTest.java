@@ -66,7 +66,7 @@ class MavenProjectModelServiceTest {
     private CodeCheckConfigLoader loader(int languageLevel) {
         CodeCheckConfig config = CodeCheckConfig.defaults()
             .withJavaProject(new CodeCheckConfig.JavaProject(languageLevel,
-                    CodeCheckConfig.GeneratedSourceDetection.MAVEN_DEFAULTS));
+                    CodeCheckConfig.GeneratedSourceDetection.MAVEN_DEFAULTS, 256));
         return new CodeCheckConfigLoader() {
             @Override
             public CodeCheckConfig load() {
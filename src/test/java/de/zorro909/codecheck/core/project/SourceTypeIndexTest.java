@@ -0,0 +1,85 @@
+package de.zorro909.codecheck.core.project;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SourceTypeIndexTest {
+
+    @Test
+    void refreshIndexesTypesOfAllModuleRoots(@TempDir Path repo) throws Exception {
+        writePom(repo);
+        Path main = write(repo, "src/main/java/com/example/User.java", "package com.example; class User {}");
+        Path test = write(repo, "src/test/java/com/example/UserTest.java", "package com.example; class UserTest {}");
+
+        SourceTypeIndex index = new MavenProjectModelService(repo).typeIndex();
+
+        assertThat(index.sourceFiles("com.example.User")).containsExactly(main.toAbsolutePath().normalize());
+        assertThat(index.sourceFiles("com.example.UserTest")).containsExactly(test.toAbsolutePath().normalize());
+        assertThat(index.packageFiles("com.example")).hasSize(2);
+        assertThat(index.sourceFiles("com.example.Missing")).isEmpty();
+    }
+
+    @Test
+    void updateAddsAndRemovesSingleFiles(@TempDir Path repo) throws Exception {
+        writePom(repo);
+        SourceTypeIndex index = new MavenProjectModelService(repo).typeIndex();
+        Path added = write(repo, "src/main/java/com/example/Added.java", "package com.example; class Added {}");
+
+        index.update(added);
+        assertThat(index.sourceFiles("com.example.Added")).hasSize(1);
+
+        Files.delete(added);
+        index.update(added);
+        assertThat(index.sourceFiles("com.example.Added")).isEmpty();
+        assertThat(index.packageFiles("com.example")).isEmpty();
+    }
+
+    @Test
+    void updateOfDirectoryReindexesFilesBelowIt(@TempDir Path repo) throws Exception {
+        writePom(repo);
+        Path kept = write(repo, "src/main/java/com/example/Kept.java", "package com.example; class Kept {}");
+        Path moved = write(repo, "src/main/java/com/example/old/Moved.java", "package com.example.old; class Moved {}");
+        SourceTypeIndex index = new MavenProjectModelService(repo).typeIndex();
+
+        Path target = repo.resolve("src/main/java/com/example/fresh");
+        Files.move(moved.getParent(), target);
+        index.update(moved.getParent());
+        index.update(target);
+
+        assertThat(index.sourceFiles("com.example.old.Moved")).isEmpty();
+        assertThat(index.sourceFiles("com.example.fresh.Moved")).hasSize(1);
+        assertThat(index.sourceFiles("com.example.Kept")).containsExactly(kept.toAbsolutePath().normalize());
+    }
+
+    @Test
+    void typeIndexIsBuiltOnFirstUseAfterARefresh(@TempDir Path repo) throws Exception {
+        writePom(repo);
+        MavenProjectModelService projectModelService = new MavenProjectModelService(repo);
+        projectModelService.refresh();
+        Path late = write(repo, "src/main/java/com/example/Late.java", "package com.example; class Late {}");
+
+        SourceTypeIndex index = projectModelService.typeIndex();
+
+        assertThat(index.sourceFiles("com.example.Late")).containsExactly(late.toAbsolutePath().normalize());
+        assertThat(projectModelService.typeIndex()).isSameAs(index);
+        projectModelService.refresh();
+        assertThat(projectModelService.typeIndex()).isNotSameAs(index);
+    }
+
+    private void writePom(Path repo) throws Exception {
+        Files.writeString(repo.resolve("pom.xml"), "<project><modelVersion>4.0.0</modelVersion></project>");
+    }
+
+    private Path write(Path repo, String relativePath, String content) throws Exception {
+        Path file = repo.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.zorro909.codecheck.core.project;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedLruCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesOnceBudgetIsExceeded() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+
+        cache.put("c", "cccc");
+
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("cccc");
+        assertThat(cache.weight()).isEqualTo(8);
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsNewestEntryEvenWhenItExceedsTheBudget() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>(3, String::length);
+        cache.put("a", "aa");
+
+        cache.put("b", "bbbbbb");
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("b")).isEqualTo("bbbbbb");
+    }
+
+    @Test
+    void replacingAndRemovingEntriesKeepsWeightConsistent() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>(100, String::length);
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+        cache.put("b", "bbb");
+
+        cache.removeIf("b"::equals);
+
+        assertThat(cache.weight()).isEqualTo(2);
+        assertThat(cache.evictions()).isZero();
+    }
+
+    @Test
+    void removingByValueReportsWhetherAnythingWasRemoved() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>(100, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbb");
+
+        assertThat(cache.removeValuesIf("bbb"::equals)).isTrue();
+        assertThat(cache.removeValuesIf("bbb"::equals)).isFalse();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(4);
+    }
+
+}
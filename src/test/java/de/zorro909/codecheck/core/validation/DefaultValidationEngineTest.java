@@ -17,8 +17,11 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DefaultValidationEngineTest {
 
@@ -64,6 +67,96 @@ class DefaultValidationEngineTest {
         });
     }
 
+    @Test
+    void parallelValidationKeepsChangeSetOrder() {
+        RuleRegistry registry = registry(List.of(new CodeCheck() {
+            @Override
+            public boolean isResponsible(Path checkedFile) {
+                return true;
+            }
+
+            @Override
+            public List<ValidationError> check(Path checkedFile) {
+                return List
+                    .of(new ValidationError(checkedFile, "checked", new Position(1, 1), ValidationError.Severity.LOW));
+            }
+
+            @Override
+            public void resetCache(Path checkedFile) {
+            }
+        }), List.of());
+        ValidationEngine engine = new DefaultValidationEngine(registry);
+        ChangeSet changeSet = new ChangeSet(java.util.stream.IntStream.range(0, 200)
+            .mapToObj(index -> new ChangeSetEntry(Path.of("src/main/java/File" + index + ".java"),
+                    GitFileStatus.UNKNOWN, false, false, false, false, "test"))
+            .toList());
+
+        ValidationResult sequential = engine.validate(changeSet, ValidationMode.BATCH, 1);
+        ValidationResult parallel = engine.validate(changeSet, ValidationMode.BATCH, 8);
+
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(parallel.fileResults()).extracting(FileValidationResult::file)
+            .containsExactlyElementsOf(changeSet.paths().toList());
+    }
+
+    @Test
+    void streamingValidationPublishesEveryFileResultInChangeSetOrder() {
+        CountingCheck check = new CountingCheck();
+        ValidationEngine engine = new DefaultValidationEngine(registry(List.of(check), List.of()));
+        ChangeSet changeSet = new ChangeSet(java.util.stream.IntStream.range(0, 50)
+            .mapToObj(index -> new ChangeSetEntry(Path.of("src/main/java/File" + index + ".java"),
+                    GitFileStatus.UNKNOWN, false, false, false, false, "test"))
+            .toList());
+        List<Path> published = new java.util.ArrayList<>();
+
+        engine.validate(changeSet, ValidationMode.BATCH, 4, result -> published.add(result.file()));
+
+        assertThat(published).containsExactlyElementsOf(changeSet.paths().toList());
+    }
+
+    @Test
+    void producedFilesAreValidatedWhileProducerIsStillRunning() throws Exception {
+        CountDownLatch firstChecked = new CountDownLatch(1);
+        ValidationEngine engine = new DefaultValidationEngine(registry(List.of(new CountingCheck() {
+            @Override
+            public List<ValidationError> check(Path file) {
+                firstChecked.countDown();
+                return List.of();
+            }
+        }), List.of()));
+        Path first = Path.of("src/main/java/First.java");
+        Path second = Path.of("src/main/java/Second.java");
+        List<Path> published = new java.util.ArrayList<>();
+
+        engine.validate(sink -> {
+            sink.accept(new ChangeSetEntry(first, GitFileStatus.MODIFIED, false, true, false, false, "test"));
+            try {
+                assertThat(firstChecked.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            sink.accept(new ChangeSetEntry(first, GitFileStatus.MODIFIED, true, false, false, false, "test"));
+            sink.accept(new ChangeSetEntry(Path.of("src/main/java/Gone.java"), GitFileStatus.DELETED, true, false,
+                    false, true, "test"));
+            sink.accept(new ChangeSetEntry(second, GitFileStatus.ADDED, true, false, false, false, "test"));
+        }, ValidationMode.PRE_COMMIT, 2, result -> published.add(result.file()));
+
+        assertThat(published).containsExactly(first, second);
+    }
+
+    @Test
+    void producerFailureIsRethrownAfterValidationStops() {
+        ValidationEngine engine = new DefaultValidationEngine(registry(List.of(new CountingCheck()), List.of()));
+
+        assertThatThrownBy(() -> engine.validate(sink -> {
+            sink.accept(new ChangeSetEntry(Path.of("src/main/java/First.java"), GitFileStatus.MODIFIED, false, true,
+                    false, false, "test"));
+            throw new IllegalStateException("git failed");
+        }, ValidationMode.BATCH, 4, _ -> {
+        })).isInstanceOf(IllegalStateException.class).hasMessage("git failed");
+    }
+
     @Test
     void ruleInterestFiltersFilesBeforeLegacyResponsibilityCheck() {
         CountingCheck check = new CountingCheck();
@@ -92,7 +185,7 @@ class DefaultValidationEngineTest {
         return new DefaultRuleRegistry(checks, fixActions);
     }
 
-    private static final class CountingCheck implements CodeCheck {
+    private static class CountingCheck implements CodeCheck {
 
         private int checkCalls;
 
@@ -7,7 +7,6 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -15,7 +14,7 @@ class NoMagicValuesRuleMetadataTest {
 
     @Test
     void noMagicValuesCheckIsRepresentedAsJavaMainSourceRule(@TempDir Path tempDir) {
-        NoMagicValuesCheck check = new NoMagicValuesCheck(new FileLoader(tempDir, Optional.empty()));
+        NoMagicValuesCheck check = new NoMagicValuesCheck(new FileLoader(tempDir));
         RuleRegistry registry = new DefaultRuleRegistry(List.of(check), List.of());
 
         Rule rule = registry.activeRules().get(0);
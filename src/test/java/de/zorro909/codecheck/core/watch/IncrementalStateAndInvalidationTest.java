@@ -9,6 +9,9 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -41,6 +44,109 @@ class IncrementalStateAndInvalidationTest {
         assertThat(state.status(mapper)).isEqualTo(FileValidationStatus.STALE);
     }
 
+    @Test
+    void closureVisitsEveryTransitiveDependentOnceEvenWithCycles() {
+        DependencyInvalidationGraph graph = new DependencyInvalidationGraph();
+        Path changed = Path.of("src/main/java/Changed.java");
+        Path first = Path.of("src/main/java/First.java");
+        Path second = Path.of("src/main/java/Second.java");
+        graph.recordDependency(changed, first);
+        graph.recordDependency(first, second);
+        graph.recordDependency(second, first);
+
+        assertThat(graph.closure(List.of(changed, changed))).containsExactly(changed.toAbsolutePath().normalize(),
+                first.toAbsolutePath().normalize(), second.toAbsolutePath().normalize());
+    }
+
+    @Test
+    void revalidationReplacesRecordedDependencies() {
+        DependencyInvalidationGraph graph = new DependencyInvalidationGraph();
+        Path validated = Path.of("src/main/java/Service.java");
+        Path removed = Path.of("src/main/java/Removed.java");
+        Path kept = Path.of("src/main/java/Kept.java");
+        graph.replaceDependencies(validated, List.of(removed, kept, validated));
+
+        graph.replaceDependencies(validated, List.of(kept));
+
+        assertThat(graph.dependents(removed)).isEmpty();
+        assertThat(graph.dependents(kept)).containsExactly(validated.toAbsolutePath().normalize());
+        assertThat(graph.dependents(validated)).isEmpty();
+    }
+
+    @Test
+    void renameCarriesDiagnosticsAndDependenciesToNewPathAsStale() {
+        IncrementalValidationState state = new IncrementalValidationState();
+        DependencyInvalidationGraph graph = new DependencyInvalidationGraph();
+        Path previous = Path.of("src/main/java/old/Mapper.java");
+        Path renamed = Path.of("src/main/java/moved/Mapper.java");
+        Path context = Path.of("src/main/java/Context.java");
+        state.updateCurrent(previous, List.of(diagnostic(previous, "known")));
+        graph.recordDependency(context, previous);
+
+        graph.rename(previous, renamed);
+        state.migrate(previous, renamed, false);
+
+        assertThat(state.status(renamed)).isEqualTo(FileValidationStatus.STALE);
+        assertThat(state.diagnostics(renamed)).singleElement().satisfies(diagnostic -> {
+            assertThat(diagnostic.file()).isEqualTo(renamed);
+            assertThat(diagnostic.message()).isEqualTo("known");
+        });
+        assertThat(state.diagnostics(previous)).isEmpty();
+        assertThat(graph.dependents(context)).containsExactly(renamed.toAbsolutePath().normalize());
+    }
+
+    @Test
+    void migrationDoesNotOverrideStateOfAlreadyValidatedTarget() {
+        IncrementalValidationState state = new IncrementalValidationState();
+        Path previous = Path.of("src/main/java/Original.java");
+        Path copy = Path.of("src/main/java/Copy.java");
+        state.updateCurrent(previous, List.of(diagnostic(previous, "original")));
+
+        state.migrate(previous, copy, true);
+        state.updateCurrent(copy, List.of());
+        state.migrate(previous, copy, true);
+
+        assertThat(state.status(copy)).isEqualTo(FileValidationStatus.CURRENT);
+        assertThat(state.diagnostics(copy)).isEmpty();
+        assertThat(state.status(previous)).isEqualTo(FileValidationStatus.CURRENT);
+    }
+
+    @Test
+    void claimedValidationIsDroppedWhenFileChangesMeanwhile() {
+        IncrementalValidationState state = new IncrementalValidationState();
+        Path file = Path.of("src/main/java/Edited.java");
+
+        OptionalLong version = state.claim(file);
+        state.markStale(file);
+
+        assertThat(version).isPresent();
+        assertThat(state.complete(file, version.getAsLong(), List.of(diagnostic(file, "outdated")))).isFalse();
+        assertThat(state.status(file)).isEqualTo(FileValidationStatus.STALE);
+        assertThat(state.diagnostics(file)).isEmpty();
+    }
+
+    @Test
+    void secondClaimWaitsForTheRunningValidation() throws Exception {
+        IncrementalValidationState state = new IncrementalValidationState();
+        Path file = Path.of("src/main/java/Shared.java");
+        OptionalLong version = state.claim(file);
+        CompletableFuture<FileValidationStatus> waiting = new CompletableFuture<>();
+
+        assertThat(state.claim(file)).isEmpty();
+        Thread.ofVirtual().start(() -> {
+            try {
+                waiting.complete(state.awaitSettled(file));
+            }
+            catch (InterruptedException e) {
+                waiting.completeExceptionally(e);
+            }
+        });
+        state.complete(file, version.getAsLong(), List.of(diagnostic(file, "shared")));
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(FileValidationStatus.CURRENT);
+        assertThat(state.diagnostics(file)).extracting(Diagnostic::message).containsExactly("shared");
+    }
+
     private Diagnostic diagnostic(Path file, String message) {
         return new Diagnostic(file, message, new SourcePosition(1, 1), ValidationError.Severity.LOW,
                 DiagnosticKind.RULE_VIOLATION, new RuleId("test"));
@@ -4,6 +4,7 @@ import de.zorro909.codecheck.core.project.MavenModule;
 import de.zorro909.codecheck.core.project.ModuleId;
 import de.zorro909.codecheck.core.project.ProjectModel;
 import de.zorro909.codecheck.core.project.ProjectModelService;
+import de.zorro909.codecheck.core.project.SourceTypeIndex;
 import de.zorro909.codecheck.core.validation.rule.FileInterest;
 import de.zorro909.codecheck.core.validation.fix.Fixer;
 import de.zorro909.codecheck.core.validation.rule.Rule;
@@ -99,6 +100,11 @@ class WatchScopeServiceTest {
             public ProjectModel refresh() {
                 return model;
             }
+
+            @Override
+            public SourceTypeIndex typeIndex() {
+                return SourceTypeIndex.build(model);
+            }
         };
     }
 
@@ -1,22 +1,37 @@
 package de.zorro909.codecheck.daemon;
 
+import com.github.javaparser.Position;
+import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
+import de.zorro909.codecheck.core.changeset.ChangeSetService;
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.legacy.FileLoader;
 import de.zorro909.codecheck.legacy.ValidationCheckPipeline;
+import de.zorro909.codecheck.legacy.checks.CodeCheck;
 import de.zorro909.codecheck.legacy.selector.FileSelector;
+import de.zorro909.codecheck.legacy.selector.impl.AllFileSelector;
 import jakarta.inject.Provider;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DaemonServerTest {
 
@@ -74,6 +89,167 @@ class DaemonServerTest {
         }
     }
 
+    @Test
+    void watchedCheckServesUnchangedFilesFromState(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("Watched.java"), "class Watched {}\n");
+        CountingCheck check = new CountingCheck();
+        DaemonProcessRegistry registry = new DaemonProcessRegistry(tempDir.resolve("repo"), tempDir.resolve("cache"));
+        DaemonMetadata metadata = registry.createMetadata();
+        DaemonServer server = new DaemonServer(() -> Stream.of(file), pipelineProvider(List.of(check)));
+        server.workTreeWatched();
+        Thread serverThread = Thread.ofVirtual().start(() -> run(server, metadata));
+        try {
+            URI baseUri = URI.create("http://" + metadata.host() + ":" + metadata.port());
+            waitUntilReady(baseUri.resolve("/health"), metadata.token());
+
+            String first = check(baseUri, metadata.token());
+            String second = check(baseUri, metadata.token());
+            server.workTreeChanged(file, true);
+            String afterChange = check(baseUri, metadata.token());
+
+            assertThat(first).contains("counted");
+            assertThat(second).isEqualTo(first);
+            assertThat(afterChange).isEqualTo(first);
+            assertThat(check.calls).hasValue(2);
+        }
+        finally {
+            shutdown(metadata);
+            serverThread.join(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void changedDependencyInvalidatesTheFilesThatReadIt(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("Dependent.java"), "class Dependent {}\n");
+        Path dependency = tempDir.resolve("Dependency.java");
+        CountingCheck check = new CountingCheck(new FileLoader(tempDir), "Dependency.java");
+        DaemonProcessRegistry registry = new DaemonProcessRegistry(tempDir.resolve("repo"), tempDir.resolve("cache"));
+        DaemonMetadata metadata = registry.createMetadata();
+        DaemonServer server = new DaemonServer(() -> Stream.of(file), pipelineProvider(List.of(check)));
+        server.workTreeWatched();
+        Thread serverThread = Thread.ofVirtual().start(() -> run(server, metadata));
+        try {
+            URI baseUri = URI.create("http://" + metadata.host() + ":" + metadata.port());
+            waitUntilReady(baseUri.resolve("/health"), metadata.token());
+
+            check(baseUri, metadata.token());
+            check(baseUri, metadata.token());
+            server.workTreeChanged(dependency, false);
+            check(baseUri, metadata.token());
+
+            assertThat(check.calls).hasValue(2);
+        }
+        finally {
+            shutdown(metadata);
+            serverThread.join(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void updatedFilesAreValidatedOnceAlongWithTheirDependents(@TempDir Path tempDir) throws Exception {
+        Path dependent = Files.writeString(tempDir.resolve("Dependent.java"), "class Dependent {}\n");
+        Path dependency = Files.writeString(tempDir.resolve("Dependency.java"), "class Dependency {}\n");
+        CountingCheck check = new CountingCheck(new FileLoader(tempDir), "Dependency.java");
+        DaemonServer server = new DaemonServer(() -> Stream.of(dependent), pipelineProvider(List.of(check)));
+        server.updateFile(dependent);
+        check.calls.set(0);
+
+        server.updateFiles(List.of(dependency, dependent, dependency));
+
+        assertThat(check.calls).hasValue(2);
+    }
+
+    @Test
+    void validationFailingWithAnErrorReleasesItsClaim(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("Nested.java"), "class Nested {}\n");
+        CountingCheck check = new CountingCheck(new StackOverflowError());
+        DaemonProcessRegistry registry = new DaemonProcessRegistry(tempDir.resolve("repo"), tempDir.resolve("cache"));
+        DaemonMetadata metadata = registry.createMetadata();
+        DaemonServer server = new DaemonServer(() -> Stream.of(file), pipelineProvider(List.of(check)));
+        server.workTreeWatched();
+        Thread serverThread = Thread.ofVirtual().start(() -> run(server, metadata));
+        try {
+            URI baseUri = URI.create("http://" + metadata.host() + ":" + metadata.port());
+            waitUntilReady(baseUri.resolve("/health"), metadata.token());
+
+            assertThatThrownBy(() -> check(baseUri, metadata.token(), Duration.ofSeconds(2)))
+                .isInstanceOf(IOException.class);
+
+            assertThat(check(baseUri, metadata.token(), Duration.ofSeconds(5))).contains("counted");
+        }
+        finally {
+            shutdown(metadata);
+            serverThread.join(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void updateFailingWithAnErrorReleasesItsClaims(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("Nested.java"), "class Nested {}\n");
+        CountingCheck check = new CountingCheck(new StackOverflowError());
+        DaemonProcessRegistry registry = new DaemonProcessRegistry(tempDir.resolve("repo"), tempDir.resolve("cache"));
+        DaemonMetadata metadata = registry.createMetadata();
+        DaemonServer server = new DaemonServer(() -> Stream.of(file), pipelineProvider(List.of(check)));
+        server.workTreeWatched();
+        Thread serverThread = Thread.ofVirtual().start(() -> run(server, metadata));
+        try {
+            URI baseUri = URI.create("http://" + metadata.host() + ":" + metadata.port());
+            waitUntilReady(baseUri.resolve("/health"), metadata.token());
+
+            assertThatThrownBy(() -> server.updateFile(file)).isInstanceOf(StackOverflowError.class);
+
+            assertThat(check(baseUri, metadata.token(), Duration.ofSeconds(5))).contains("counted");
+        }
+        finally {
+            shutdown(metadata);
+            serverThread.join(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void explicitSelectorIsNotReplacedByTheLiveChangeSet(@TempDir Path tempDir) throws Exception {
+        Path work = Files.createDirectories(tempDir.resolve("work"));
+        Path file = Files.writeString(work.resolve("All.java"), "class All {}\n");
+        LiveChangeSet liveChangeSet = new LiveChangeSet(new FixedChangeSetService(Path.of("Changed.java")),
+                (_, _) -> () -> {
+                }, work);
+        DaemonProcessRegistry registry = new DaemonProcessRegistry(tempDir.resolve("repo"), tempDir.resolve("cache"));
+        DaemonMetadata metadata = registry.createMetadata();
+        DaemonServer server = new DaemonServer(new AllFileSelector(work), emptyPipelineProvider(), liveChangeSet, null);
+        Thread serverThread = Thread.ofVirtual().start(() -> run(server, metadata));
+        try {
+            URI baseUri = URI.create("http://" + metadata.host() + ":" + metadata.port());
+            waitUntilReady(baseUri.resolve("/health"), metadata.token());
+
+            String changed = HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(baseUri.resolve("/changeset"))
+                    .header("X-CodeCheck-Token", metadata.token())
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString())
+                .body();
+
+            assertThat(changed).isEqualTo(file.toString());
+        }
+        finally {
+            shutdown(metadata);
+            serverThread.join(Duration.ofSeconds(5));
+        }
+    }
+
+    private String check(URI baseUri, String token) throws Exception {
+        return check(baseUri, token, Duration.ofMinutes(1));
+    }
+
+    private String check(URI baseUri, String token, Duration timeout) throws Exception {
+        return HttpClient.newHttpClient()
+            .send(HttpRequest.newBuilder(baseUri.resolve("/check"))
+                .header("X-CodeCheck-Token", token)
+                .timeout(timeout)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString())
+            .body();
+    }
+
     private void waitUntilResponding(URI healthUri) throws Exception {
         HttpClient client = HttpClient.newHttpClient();
         Instant deadline = Instant.now().plusSeconds(5);
@@ -130,13 +306,94 @@ class DaemonServerTest {
     }
 
     private Provider<ValidationCheckPipeline> emptyPipelineProvider() {
+        return pipelineProvider(List.of());
+    }
+
+    private Provider<ValidationCheckPipeline> pipelineProvider(List<CodeCheck> checks) {
         return () -> {
             ValidationCheckPipeline pipeline = new ValidationCheckPipeline();
-            setField(pipeline, "codeChecker", List.of());
+            setField(pipeline, "codeChecker", checks);
             return pipeline;
         };
     }
 
+    private static final class CountingCheck implements CodeCheck {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final FileLoader fileLoader;
+
+        private final String dependency;
+
+        private final AtomicReference<Error> firstFailure;
+
+        private CountingCheck() {
+            this(null, null);
+        }
+
+        private CountingCheck(Error firstFailure) {
+            this(null, null, firstFailure);
+        }
+
+        private CountingCheck(FileLoader fileLoader, String dependency) {
+            this(fileLoader, dependency, null);
+        }
+
+        private CountingCheck(FileLoader fileLoader, String dependency, Error firstFailure) {
+            this.fileLoader = fileLoader;
+            this.dependency = dependency;
+            this.firstFailure = new AtomicReference<>(firstFailure);
+        }
+
+        @Override
+        public boolean isResponsible(Path file) {
+            return true;
+        }
+
+        @Override
+        public List<ValidationError> check(Path file) {
+            Error failure = firstFailure.getAndSet(null);
+            if (failure != null) {
+                throw failure;
+            }
+            calls.incrementAndGet();
+            if (fileLoader != null) {
+                fileLoader.fileExists(dependency);
+            }
+            return List.of(new ValidationError(file, "counted", new Position(1, 1), ValidationError.Severity.LOW));
+        }
+
+        @Override
+        public void resetCache(Path file) {
+        }
+
+    }
+
+    private record FixedChangeSetService(Path changed) implements ChangeSetService {
+
+        @Override
+        public ChangeSet currentAssistantChangeSet() {
+            return new ChangeSet(List
+                .of(new ChangeSetEntry(changed, GitFileStatus.MODIFIED, false, true, false, false, "unstaged change")));
+        }
+
+        @Override
+        public ChangeSet currentInteractiveCheckChangeSet() {
+            return currentAssistantChangeSet();
+        }
+
+        @Override
+        public ChangeSet preCommitChangeSet() {
+            return currentAssistantChangeSet();
+        }
+
+        @Override
+        public ChangeSet explicitFiles(Collection<Path> files) {
+            return ChangeSet.empty();
+        }
+
+    }
+
     private static void setField(Object target, String fieldName, Object value) {
         try {
             java.lang.reflect.Field field = target.getClass().getDeclaredField(fieldName);
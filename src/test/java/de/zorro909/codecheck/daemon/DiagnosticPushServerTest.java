@@ -0,0 +1,135 @@
+package de.zorro909.codecheck.daemon;
+
+import com.github.javaparser.Position;
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiagnosticPushServerTest {
+
+    private static final String TOKEN = "secret";
+
+    @Test
+    void subscribersReceiveChangedDiagnosticsOnly() throws Exception {
+        Path file = Path.of("/repo/A.java");
+        try (DiagnosticPushServer server = started()) {
+            MessageCollector messages = new MessageCollector();
+            WebSocket webSocket = connect(server, TOKEN, messages);
+
+            server.publish(file, List.of(error(file, "first \"quoted\"")));
+            server.publish(file, List.of(error(file, "first \"quoted\"")));
+            server.publish(file, List.of());
+
+            assertThat(messages.next()).isEqualTo("{\"file\":\"/repo/A.java\",\"diagnostics\":[{\"severity\":\"HIGH\","
+                    + "\"line\":3,\"column\":7,\"message\":\"first \\\"quoted\\\"\"}]}");
+            assertThat(messages.next()).isEqualTo("{\"file\":\"/repo/A.java\",\"diagnostics\":[]}");
+            assertThat(messages.poll()).isNull();
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        }
+    }
+
+    @Test
+    void newSubscriberReceivesCurrentDiagnosticsFirst() throws Exception {
+        Path withErrors = Path.of("/repo/Broken.java");
+        try (DiagnosticPushServer server = started()) {
+            server.publish(withErrors, List.of(error(withErrors, "broken")));
+            server.publish(Path.of("/repo/Clean.java"), List.of());
+
+            MessageCollector messages = new MessageCollector();
+            connect(server, TOKEN, messages);
+
+            assertThat(messages.next()).contains("Broken.java").contains("broken");
+            assertThat(messages.poll()).isNull();
+        }
+    }
+
+    @Test
+    void currentDiagnosticsBeyondThePendingFrameLimitReachANewSubscriber() throws Exception {
+        try (DiagnosticPushServer server = started()) {
+            for (int i = 0; i < 1500; i++) {
+                Path file = Path.of("/repo/File" + i + ".java");
+                server.publish(file, List.of(error(file, "broken")));
+            }
+
+            MessageCollector messages = new MessageCollector();
+            connect(server, TOKEN, messages);
+
+            for (int i = 0; i < 1500; i++) {
+                assertThat(messages.next()).contains("File" + i + ".java");
+            }
+            assertThat(server.hasSubscribers()).isTrue();
+        }
+    }
+
+    @Test
+    void handshakeRequiresToken() throws Exception {
+        try (DiagnosticPushServer server = started()) {
+            assertThatThrownBy(() -> connect(server, "wrong", new MessageCollector()))
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(WebSocketHandshakeException.class);
+            assertThat(server.hasSubscribers()).isFalse();
+        }
+    }
+
+    private DiagnosticPushServer started() throws Exception {
+        DiagnosticPushServer server = new DiagnosticPushServer();
+        server.start("127.0.0.1", 0, TOKEN);
+        return server;
+    }
+
+    private WebSocket connect(DiagnosticPushServer server, String token, MessageCollector messages) {
+        return HttpClient.newHttpClient()
+            .newWebSocketBuilder()
+            .header("X-CodeCheck-Token", token)
+            .buildAsync(URI.create("ws://127.0.0.1:" + server.port() + "/"), messages)
+            .join();
+    }
+
+    private ValidationError error(Path file, String message) {
+        return new ValidationError(file, message, new Position(3, 7), ValidationError.Severity.HIGH);
+    }
+
+    private static final class MessageCollector implements WebSocket.Listener {
+
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                messages.add(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        private String next() throws InterruptedException {
+            String message = messages.poll(5, TimeUnit.SECONDS);
+            assertThat(message).as("pushed message").isNotNull();
+            return message;
+        }
+
+        private String poll() throws InterruptedException {
+            return messages.poll(200, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+}
@@ -5,6 +5,8 @@ import de.zorro909.codecheck.legacy.ValidationCheckPipeline;
 import de.zorro909.codecheck.core.config.CodeCheckConfig;
 import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
 import de.zorro909.codecheck.core.config.ConfigOverrides;
+import de.zorro909.codecheck.core.project.DefaultJavaParserService;
+import de.zorro909.codecheck.core.project.MavenProjectModelService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -32,7 +34,8 @@ class FileWatcherConfigTest {
                 return load();
             }
         };
-        FileWatcher watcher = new FileWatcher(daemonServer(), repositoryPathProvider(tempDir), countingLoader);
+        FileWatcher watcher = new FileWatcher(daemonServer(), repositoryPathProvider(tempDir), countingLoader,
+                new DefaultJavaParserService(new MavenProjectModelService(tempDir)));
 
         watcher.watch();
 
@@ -0,0 +1,182 @@
+package de.zorro909.codecheck.daemon;
+
+import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
+import de.zorro909.codecheck.core.changeset.ChangeSetService;
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveChangeSetTest {
+
+    @Test
+    void watchedChangeSetIsServedWithoutAskingGitAgain(@TempDir Path repo) throws Exception {
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        try (LiveChangeSet liveChangeSet = started(service, new AtomicReference<>(), repo)) {
+            LiveChangeSet.Snapshot first = liveChangeSet.current();
+            int calls = service.calls.get();
+
+            LiveChangeSet.Snapshot second = liveChangeSet.current();
+
+            assertThat(second).isSameAs(first);
+            assertThat(service.calls).hasValue(calls);
+        }
+    }
+
+    @Test
+    void gitStateChangeRecomputesChangeSetAndBumpsGeneration(@TempDir Path repo) throws Exception {
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        AtomicReference<Runnable> onChange = new AtomicReference<>();
+        try (LiveChangeSet liveChangeSet = started(service, onChange, repo)) {
+            LiveChangeSet.Snapshot before = liveChangeSet.current();
+
+            service.next = changeSet("A.java", "B.java");
+            onChange.get().run();
+            LiveChangeSet.Snapshot after = liveChangeSet.current();
+
+            assertThat(after.changeSet().paths()).containsExactly(Path.of("A.java"), Path.of("B.java"));
+            assertThat(after.generation()).isGreaterThan(before.generation());
+        }
+    }
+
+    @Test
+    void unchangedChangeSetKeepsItsGeneration(@TempDir Path repo) throws Exception {
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        AtomicReference<Runnable> onChange = new AtomicReference<>();
+        try (LiveChangeSet liveChangeSet = started(service, onChange, repo)) {
+            long generation = liveChangeSet.current().generation();
+
+            onChange.get().run();
+
+            assertThat(liveChangeSet.current().generation()).isEqualTo(generation);
+        }
+    }
+
+    @Test
+    void savingAFileAlreadyChangedInTheWorkTreeSkipsRecompute(@TempDir Path repo) throws Exception {
+        Files.writeString(repo.resolve("A.java"), "class A {}\n");
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        try (LiveChangeSet liveChangeSet = started(service, new AtomicReference<>(), repo)) {
+            liveChangeSet.current();
+            int calls = service.calls.get();
+
+            liveChangeSet.workTreeChanged(repo.resolve("A.java"), true);
+            liveChangeSet.current();
+
+            assertThat(service.calls).hasValue(calls);
+        }
+    }
+
+    @Test
+    void newFileInTheWorkTreeRecomputesChangeSet(@TempDir Path repo) throws Exception {
+        Files.writeString(repo.resolve("B.java"), "class B {}\n");
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        try (LiveChangeSet liveChangeSet = started(service, new AtomicReference<>(), repo)) {
+            liveChangeSet.current();
+            service.next = changeSet("A.java", "B.java");
+
+            liveChangeSet.workTreeChanged(repo.resolve("B.java"), false);
+
+            assertThat(liveChangeSet.current().changeSet().paths()).contains(Path.of("B.java"));
+        }
+    }
+
+    @Test
+    void brokenStateWatchFallsBackToRecomputingEveryRead(@TempDir Path repo) throws Exception {
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        AtomicReference<Runnable> onFailure = new AtomicReference<>();
+        try (LiveChangeSet liveChangeSet = started(service, new AtomicReference<>(), onFailure, repo)) {
+            liveChangeSet.current();
+            onFailure.get().run();
+            liveChangeSet.current();
+            int calls = service.calls.get();
+
+            liveChangeSet.current();
+
+            assertThat(service.calls).hasValue(calls + 1);
+        }
+    }
+
+    @Test
+    void withoutWorkTreeWatchEveryReadRecomputes(@TempDir Path repo) throws Exception {
+        CountingChangeSetService service = new CountingChangeSetService(changeSet("A.java"));
+        try (LiveChangeSet liveChangeSet = new LiveChangeSet(service, (_, _) -> () -> {
+        }, repo)) {
+            liveChangeSet.start();
+            liveChangeSet.current();
+            int calls = service.calls.get();
+
+            liveChangeSet.current();
+
+            assertThat(service.calls).hasValue(calls + 1);
+        }
+    }
+
+    private LiveChangeSet started(ChangeSetService service, AtomicReference<Runnable> onChange, Path repo) {
+        return started(service, onChange, new AtomicReference<>(), repo);
+    }
+
+    private LiveChangeSet started(ChangeSetService service, AtomicReference<Runnable> onChange,
+            AtomicReference<Runnable> onFailure, Path repo) {
+        LiveChangeSet liveChangeSet = new LiveChangeSet(service, (changeListener, failureListener) -> {
+            onChange.set(changeListener);
+            onFailure.set(failureListener);
+            return () -> {
+            };
+        }, repo);
+        liveChangeSet.start();
+        liveChangeSet.workTreeWatched();
+        return liveChangeSet;
+    }
+
+    private static ChangeSet changeSet(String... paths) {
+        return new ChangeSet(List.of(paths)
+            .stream()
+            .map(path -> new ChangeSetEntry(Path.of(path), GitFileStatus.MODIFIED, false, true, false, false,
+                    "unstaged change"))
+            .toList());
+    }
+
+    private static final class CountingChangeSetService implements ChangeSetService {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile ChangeSet next;
+
+        private CountingChangeSetService(ChangeSet changeSet) {
+            this.next = changeSet;
+        }
+
+        @Override
+        public ChangeSet currentAssistantChangeSet() {
+            calls.incrementAndGet();
+            return next;
+        }
+
+        @Override
+        public ChangeSet currentInteractiveCheckChangeSet() {
+            return next;
+        }
+
+        @Override
+        public ChangeSet preCommitChangeSet() {
+            return next;
+        }
+
+        @Override
+        public ChangeSet explicitFiles(Collection<Path> files) {
+            return ChangeSet.empty();
+        }
+
+    }
+
+}
@@ -0,0 +1,306 @@
+package de.zorro909.codecheck.daemon;
+
+import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.ChangeSetEntry;
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
+import de.zorro909.codecheck.core.config.FileSystemCodeCheckConfigLoader;
+import de.zorro909.codecheck.core.diagnostic.Diagnostic;
+import de.zorro909.codecheck.core.diagnostic.DiagnosticKind;
+import de.zorro909.codecheck.core.diagnostic.SourcePosition;
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.core.project.DefaultJavaParserService;
+import de.zorro909.codecheck.core.project.MavenProjectModelService;
+import de.zorro909.codecheck.core.project.SourceOverlay;
+import de.zorro909.codecheck.core.project.SourceVersion;
+import de.zorro909.codecheck.core.validation.DefaultValidationEngine;
+import de.zorro909.codecheck.core.validation.ValidationContext;
+import de.zorro909.codecheck.core.validation.ValidationEngine;
+import de.zorro909.codecheck.core.validation.ValidationMode;
+import de.zorro909.codecheck.core.validation.ValidationResult;
+import de.zorro909.codecheck.core.validation.fix.Fixer;
+import de.zorro909.codecheck.core.validation.rule.FileInterest;
+import de.zorro909.codecheck.core.validation.rule.Rule;
+import de.zorro909.codecheck.core.validation.rule.RuleId;
+import de.zorro909.codecheck.core.validation.rule.RuleMetadata;
+import de.zorro909.codecheck.core.validation.rule.RuleRegistry;
+import de.zorro909.codecheck.core.validation.rule.WatchPlan;
+import de.zorro909.codecheck.legacy.FileLoader;
+import de.zorro909.codecheck.legacy.adapter.CodeCheckRuleAdapter;
+import de.zorro909.codecheck.legacy.checks.java.test.PublicMethodsAreTestedCheck;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentDiagnosticCacheTest {
+
+    @Test
+    void warmRunReturnsStoredDiagnosticsWithoutRunningRule(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+
+        ValidationResult cold = engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        ValidationResult warm = engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(rule.calls).hasValue(1);
+        assertThat(warm).isEqualTo(cold);
+        assertThat(warm.diagnostics()).singleElement()
+            .satisfies(diagnostic -> assertThat(diagnostic.message()).isEqualTo("checked \"Cached\"\nwith details"));
+    }
+
+    @Test
+    void changedContentToolVersionOrConfigRevalidates(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        Files.writeString(source, "class Cached { int value; }");
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, rule, "1.1").validate(changeSet(source), ValidationMode.BATCH);
+        Files.writeString(repo.resolve(".codecheck.yaml"), """
+                java:
+                  languageLevel: 21
+                """);
+        engine(repo, tempDir, rule, "1.1").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(rule.calls).hasValue(4);
+        assertThat(generations(tempDir)).hasSize(3);
+    }
+
+    @Test
+    void onlyTheMostRecentlyUsedGenerationsAreKept(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+        for (String version : List.of("1", "2", "3", "4", "1", "5")) {
+            engine(repo, tempDir, rule, version).validate(changeSet(source), ValidationMode.BATCH);
+        }
+
+        engine(repo, tempDir, rule, "1").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, rule, "2").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(rule.calls).hasValue(6);
+        assertThat(generations(tempDir)).hasSize(4);
+    }
+
+    @Test
+    void onlyTheMostRecentlyUsedVersionsOfAnEntryAreKept(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+        for (int version = 0; version < 6; version++) {
+            Files.writeString(source, "class Cached { int value" + version + "; }");
+            engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        }
+
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(rule.calls).hasValue(6);
+        try (var entries = Files.walk(tempDir.resolve("cache"))) {
+            assertThat(entries.filter(Files::isRegularFile)).hasSize(4);
+        }
+    }
+
+    @Test
+    void codeHashChangesWhenAClassFileIsRewrittenInPlace(@TempDir Path tempDir) throws Exception {
+        Path classes = Files.createDirectories(tempDir.resolve("classes/com/example"));
+        Path classFile = Files.writeString(classes.resolve("Rule.class"), "first");
+        FileTime directoryTime = Files.getLastModifiedTime(tempDir.resolve("classes"));
+        String first = PersistentDiagnosticCache.codeHash(tempDir.resolve("classes"));
+
+        Files.writeString(classFile, "second");
+        Files.setLastModifiedTime(tempDir.resolve("classes"), directoryTime);
+
+        assertThat(PersistentDiagnosticCache.codeHash(tempDir.resolve("classes"))).isNotEqualTo(first);
+        Files.writeString(classFile, "first");
+        assertThat(PersistentDiagnosticCache.codeHash(tempDir.resolve("classes"))).isEqualTo(first);
+    }
+
+    @Test
+    void projectWideRulesRevalidateOnlyWhenAFileTheyReadChanges(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        Path dependency = repo.resolve("src/main/java/com/example/Other.java");
+        CountingRule fileLocal = new CountingRule(true, dependency);
+        CountingRule projectWide = new CountingRule(false, dependency);
+        engine(repo, tempDir, fileLocal, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, projectWide, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        write(repo, "src/main/java/com/example/Unrelated.java", "class Unrelated {}");
+        engine(repo, tempDir, projectWide, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        write(repo, "src/main/java/com/example/Other.java", "class Other {}");
+        engine(repo, tempDir, fileLocal, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, projectWide, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, projectWide, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        Files.writeString(dependency, "class Other { int value; }");
+        engine(repo, tempDir, projectWide, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(fileLocal.calls).hasValue(1);
+        assertThat(projectWide.calls).hasValue(3);
+    }
+
+    @Test
+    void legacyCheckRevalidatesWhenAFileItFoundMissingAppears(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Impl.java",
+                "package com.example; public class Impl { public void run() {} }");
+        Rule rule = new CodeCheckRuleAdapter(new PublicMethodsAreTestedCheck(new FileLoader(repo),
+                new DefaultJavaParserService(new MavenProjectModelService(repo))));
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        write(repo, "src/test/java/com/example/ImplTest.java", "package com.example; class ImplTest {}");
+        ValidationResult warm = engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(warm.diagnostics()).singleElement()
+            .satisfies(diagnostic -> assertThat(diagnostic.message()).contains("'run'"));
+    }
+
+    @Test
+    void stagedContentKeysTheEntryWhileTheWorkingTreeIsUnchanged(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+
+        engine(repo, tempDir, rule, staged(source, "first")).validate(changeSet(source), ValidationMode.PRE_COMMIT);
+        engine(repo, tempDir, rule, staged(source, "second")).validate(changeSet(source), ValidationMode.PRE_COMMIT);
+        engine(repo, tempDir, rule, staged(source, "second")).validate(changeSet(source), ValidationMode.PRE_COMMIT);
+
+        assertThat(rule.calls).hasValue(2);
+    }
+
+    @Test
+    void disabledCacheAlwaysRunsRules(@TempDir Path tempDir) throws Exception {
+        Path repo = repo(tempDir);
+        Files.writeString(repo.resolve(".codecheck.yaml"), """
+                validation:
+                  diagnosticCache: false
+                """);
+        Path source = write(repo, "src/main/java/com/example/Cached.java", "class Cached {}");
+        CountingRule rule = new CountingRule(true);
+
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+        engine(repo, tempDir, rule, "1.0").validate(changeSet(source), ValidationMode.BATCH);
+
+        assertThat(rule.calls).hasValue(2);
+    }
+
+    private ValidationEngine engine(Path repo, Path tempDir, Rule rule, String toolVersion) {
+        return engine(repo, tempDir, rule, toolVersion, SourceOverlay.NONE);
+    }
+
+    private ValidationEngine engine(Path repo, Path tempDir, Rule rule, SourceOverlay overlay) {
+        return engine(repo, tempDir, rule, "1.0", overlay);
+    }
+
+    private ValidationEngine engine(Path repo, Path tempDir, Rule rule, String toolVersion, SourceOverlay overlay) {
+        CodeCheckConfigLoader loader = new FileSystemCodeCheckConfigLoader(repo, tempDir.resolve("user.yaml"));
+        PersistentDiagnosticCache cache = new PersistentDiagnosticCache(tempDir.resolve("cache"), loader, toolVersion,
+                () -> overlay);
+        return new DefaultValidationEngine(new SingleRuleRegistry(rule), loader, cache);
+    }
+
+    private List<Path> generations(Path tempDir) throws Exception {
+        try (var generations = Files.list(tempDir.resolve("cache"))) {
+            return generations.toList();
+        }
+    }
+
+    private SourceOverlay staged(Path file, String content) {
+        SourceOverlay.Source source = new SourceOverlay.Source(SourceVersion.hash(content.getBytes()),
+                content::getBytes);
+        return path -> path.equals(file) ? Optional.of(source) : Optional.empty();
+    }
+
+    private Path repo(Path tempDir) throws Exception {
+        Path repo = tempDir.resolve("repo");
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve("pom.xml"), "<project><modelVersion>4.0.0</modelVersion></project>");
+        return repo;
+    }
+
+    private Path write(Path repo, String relativePath, String content) throws Exception {
+        Path file = repo.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private ChangeSet changeSet(Path file) {
+        return new ChangeSet(
+                List.of(new ChangeSetEntry(file, GitFileStatus.UNKNOWN, false, false, false, false, "test")));
+    }
+
+    private static final class CountingRule implements Rule {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final boolean fileLocal;
+
+        private final List<Path> reads;
+
+        private CountingRule(boolean fileLocal, Path... reads) {
+            this.fileLocal = fileLocal;
+            this.reads = List.of(reads);
+        }
+
+        @Override
+        public RuleId id() {
+            return new RuleId(fileLocal ? "test.counting" : "test.counting-project");
+        }
+
+        @Override
+        public RuleMetadata metadata() {
+            return new RuleMetadata("Counting", "Counts checks", "1", fileLocal, false);
+        }
+
+        @Override
+        public FileInterest validatedFiles() {
+            return FileInterest.any();
+        }
+
+        @Override
+        public FileInterest contextFiles() {
+            return FileInterest.none();
+        }
+
+        @Override
+        public List<Diagnostic> check(ValidationContext context, Path file) {
+            calls.incrementAndGet();
+            reads.forEach(context.dependencies()::record);
+            String name = file.getFileName().toString().replace(".java", "");
+            return List.of(new Diagnostic(file, "checked \"" + name + "\"\nwith details", new SourcePosition(1, 2),
+                    ValidationError.Severity.MEDIUM, DiagnosticKind.RULE_VIOLATION, id()));
+        }
+
+    }
+
+    private record SingleRuleRegistry(Rule rule) implements RuleRegistry {
+
+        @Override
+        public List<Rule> activeRules() {
+            return List.of(rule);
+        }
+
+        @Override
+        public List<Fixer> activeFixers() {
+            return List.of();
+        }
+
+        @Override
+        public WatchPlan watchPlan() {
+            return new WatchPlan(List.of(rule.validatedFiles()), List.of(rule.contextFiles()));
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.zorro909.codecheck.daemon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final AtomicLong generation = new AtomicLong(1);
+
+    private final Semaphore lookups = new Semaphore(0);
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>(() -> {
+        long current = generation.get();
+        lookups.release();
+        return current;
+    });
+
+    @Test
+    void requestsForTheRunningGenerationShareItsResult() throws Exception {
+        try (ExecutorService executor = Executors.newCachedThreadPool()) {
+            Future<String> first = arrive(executor);
+            Future<String> second = arrive(executor);
+            Future<String> third = arrive(executor);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+            assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+            assertThat(computations).hasValue(1);
+        }
+    }
+
+    @Test
+    void requestsForANewerGenerationShareTheNextComputation() throws Exception {
+        try (ExecutorService executor = Executors.newCachedThreadPool()) {
+            Future<String> first = arrive(executor);
+            generation.set(2);
+            Future<String> second = arrive(executor);
+            Future<String> third = arrive(executor);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result 1");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result 2");
+            assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("result 2");
+            assertThat(computations).hasValue(2);
+        }
+    }
+
+    @Test
+    void failedComputationWithAnErrorDoesNotBlockLaterRequests() throws Exception {
+        assertThatThrownBy(() -> singleFlight.run(() -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(singleFlight.run(() -> "recovered")).isEqualTo("recovered");
+    }
+
+    // The generation is looked up while a request registers, so after the lookup the
+    // request has joined or queued.
+    private Future<String> arrive(ExecutorService executor) throws InterruptedException {
+        Future<String> result = executor.submit(() -> singleFlight.run(() -> {
+            int computation = computations.incrementAndGet();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "result " + computation;
+        }));
+        assertThat(lookups.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+
+}
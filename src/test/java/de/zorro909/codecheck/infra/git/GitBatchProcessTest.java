@@ -0,0 +1,26 @@
+package de.zorro909.codecheck.infra.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GitBatchProcessTest {
+
+    @Test
+    void queryFailingWhileReadingRestartsTheHelper(@TempDir Path directory) {
+        try (GitBatchProcess echo = new GitBatchProcess(directory, List.of("cat", "-"))) {
+            GitBatchProcess.ResponseReader<Integer> number = batch -> Integer.parseInt(batch.readLine());
+
+            assertThatThrownBy(() -> echo.query("unexpected\n7", number)).isInstanceOf(GitCommandException.class)
+                .hasRootCauseInstanceOf(NumberFormatException.class);
+
+            assertThat(echo.query("8", number)).isEqualTo(8);
+        }
+    }
+
+}
@@ -4,6 +4,8 @@ import de.zorro909.codecheck.core.config.CodeCheckConfig;
 import de.zorro909.codecheck.core.config.CodeCheckConfigLoader;
 import de.zorro909.codecheck.core.config.ConfigOverrides;
 import de.zorro909.codecheck.core.changeset.ChangeSet;
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import de.zorro909.codecheck.core.project.SourceOverlay;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -43,7 +45,7 @@ class GitChangeSetServiceTest {
     }
 
     @Test
-    void featureBranchUsesDirectDiffAgainstFirstExistingMainBranch(@TempDir Path repo) throws Exception {
+    void featureBranchDiffsAgainstMergeBaseWithFirstExistingMainBranch(@TempDir Path repo) throws Exception {
         initRepo(repo, "develop");
         write(repo, "Feature.java", "class Feature {}\n");
         git(repo, "add", ".");
@@ -54,7 +56,7 @@ class GitChangeSetServiceTest {
         ChangeSet changeSet = service(repo, List.of("develop", "main")).currentInteractiveCheckChangeSet();
 
         assertThat(paths(changeSet)).containsExactly("Feature.java");
-        assertThat(changeSet.entries().get(0).originReason()).contains("direct diff against develop");
+        assertThat(changeSet.entries().get(0).originReason()).contains("diff against merge-base with develop");
     }
 
     @Test
@@ -69,7 +71,45 @@ class GitChangeSetServiceTest {
         ChangeSet changeSet = service(repo, List.of("develop", "main")).currentInteractiveCheckChangeSet();
 
         assertThat(paths(changeSet)).containsExactly("Fallback.java");
-        assertThat(changeSet.entries().get(0).originReason()).contains("direct diff against main");
+        assertThat(changeSet.entries().get(0).originReason()).contains("diff against merge-base with main");
+    }
+
+    @Test
+    void featureBranchExcludesUpstreamChangesOnMainBranch(@TempDir Path repo) throws Exception {
+        initRepo(repo, "develop");
+        write(repo, "Feature.java", "class Feature {}\n");
+        write(repo, "Upstream.java", "class Upstream {}\n");
+        git(repo, "add", ".");
+        git(repo, "commit", "-m", "base");
+        git(repo, "checkout", "-b", "feature/long-lived");
+        write(repo, "Feature.java", "class Feature { int value; }\n");
+        git(repo, "commit", "-am", "feature work");
+        git(repo, "checkout", "develop");
+        write(repo, "Upstream.java", "class Upstream { int value; }\n");
+        git(repo, "commit", "-am", "upstream work");
+        git(repo, "checkout", "feature/long-lived");
+
+        ChangeSet changeSet = service(repo, List.of("develop")).currentInteractiveCheckChangeSet();
+
+        assertThat(paths(changeSet)).containsExactly("Feature.java");
+    }
+
+    @Test
+    void cachedBranchModelFollowsCheckout(@TempDir Path repo) throws Exception {
+        initRepo(repo, "develop");
+        write(repo, "Feature.java", "class Feature {}\n");
+        git(repo, "add", ".");
+        git(repo, "commit", "-m", "base");
+        git(repo, "checkout", "-b", "feature/switch");
+        write(repo, "Feature.java", "class Feature { int value; }\n");
+        GitChangeSetService service = service(repo, List.of("develop"));
+
+        assertThat(service.currentInteractiveCheckChangeSet().entries().get(0).originReason())
+            .contains("merge-base with develop");
+        git(repo, "checkout", "develop");
+
+        assertThat(service.currentInteractiveCheckChangeSet().entries().get(0).originReason())
+            .isEqualTo("unstaged change");
     }
 
     @Test
@@ -88,6 +128,25 @@ class GitChangeSetServiceTest {
         assertThat(changeSet.entries().get(0).staged()).isTrue();
     }
 
+    @Test
+    void preCommitSourcesServeStagedContentOfPartiallyStagedFile(@TempDir Path repo) throws Exception {
+        initRepo(repo, "develop");
+        write(repo, "Partial.java", "class Partial {}\n");
+        git(repo, "add", ".");
+        git(repo, "commit", "-m", "base");
+        write(repo, "Partial.java", "class Partial { int staged; }\n");
+        git(repo, "add", "Partial.java");
+        write(repo, "Partial.java", "class Partial { int staged; int unstaged; }\n");
+        write(repo, "Untracked.java", "class Untracked {}\n");
+
+        SourceOverlay sources = service(repo, List.of("develop")).preCommitSources();
+
+        assertThat(sources.source(repo.resolve("Partial.java")))
+            .hasValueSatisfying(source -> assertThat(new String(source.content().get(), StandardCharsets.UTF_8))
+                .isEqualTo("class Partial { int staged; }\n"));
+        assertThat(sources.source(repo.resolve("Untracked.java"))).isEmpty();
+    }
+
     @Test
     void assistantIncludesUntrackedJavaFiles(@TempDir Path repo) throws Exception {
         initRepo(repo, "develop");
@@ -107,6 +166,47 @@ class GitChangeSetServiceTest {
         });
     }
 
+    @Test
+    void subdirectoryRepositoryReportsStagedRenameRelativeToSubdirectory(@TempDir Path repo) throws Exception {
+        initRepo(repo, "develop");
+        write(repo, "module/Old.java", "class Old {}\n");
+        write(repo, "Outside.java", "class Outside {}\n");
+        git(repo, "add", ".");
+        git(repo, "commit", "-m", "base");
+        git(repo, "mv", "module/Old.java", "module/New.java");
+        write(repo, "module/Untracked.java", "class Untracked {}\n");
+        write(repo, "Outside.java", "class Outside { int value; }\n");
+
+        ChangeSet changeSet = service(repo.resolve("module"), List.of("develop")).currentAssistantChangeSet();
+
+        assertThat(paths(changeSet)).containsExactlyInAnyOrder("New.java", "Untracked.java");
+        assertThat(changeSet.entries()).anySatisfy(entry -> {
+            assertThat(entry.path()).isEqualTo(Path.of("New.java"));
+            assertThat(entry.status()).isEqualTo(GitFileStatus.RENAMED);
+            assertThat(entry.staged()).isTrue();
+            assertThat(entry.previousPath()).contains(Path.of("Old.java"));
+        });
+    }
+
+    @Test
+    void renamesCarryTheirSourcePathInEveryChangeSet(@TempDir Path repo) throws Exception {
+        initRepo(repo, "develop");
+        write(repo, "old/Moved.java", "class Moved { String unique = \"moved\"; }\n");
+        git(repo, "add", ".");
+        git(repo, "commit", "-m", "base");
+        git(repo, "checkout", "-b", "feature/move");
+        git(repo, "mv", "old", "moved");
+        GitChangeSetService service = service(repo, List.of("develop"));
+
+        assertThat(service.preCommitChangeSet().moves()).singleElement().satisfies(entry -> {
+            assertThat(entry.path()).isEqualTo(Path.of("moved/Moved.java"));
+            assertThat(entry.previousPath()).contains(Path.of("old/Moved.java"));
+        });
+        git(repo, "commit", "-m", "move");
+        assertThat(service.currentInteractiveCheckChangeSet().moves()).singleElement()
+            .satisfies(entry -> assertThat(entry.previousPath()).contains(Path.of("old/Moved.java")));
+    }
+
     private GitChangeSetService service(Path repo, List<String> mainBranches) {
         return new GitChangeSetService(repo, loader(mainBranches));
     }
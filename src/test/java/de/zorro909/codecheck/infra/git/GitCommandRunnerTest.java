@@ -0,0 +1,89 @@
+package de.zorro909.codecheck.infra.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class GitCommandRunnerTest {
+
+    @Test
+    void batchLookupsResolveRevisionsAndReadBlobs(@TempDir Path repo) throws Exception {
+        initRepoWithCommit(repo);
+
+        try (GitCommandRunner git = new GitCommandRunner(repo)) {
+            String head = git.run("rev-parse", "HEAD").get(0);
+
+            for (int i = 0; i < 50; i++) {
+                assertThat(git.resolve("develop")).contains(head);
+                assertThat(git.readObject("HEAD:Sample.java"))
+                    .hasValueSatisfying(content -> assertThat(new String(content, StandardCharsets.UTF_8))
+                        .isEqualTo("class Sample {}\n"));
+            }
+            assertThat(git.resolve("missing-branch")).isEmpty();
+            assertThat(git.readObject("HEAD:Missing.java")).isEmpty();
+            assertThat(git.resolve("HEAD:Sample.java")).isPresent();
+        }
+    }
+
+    @Test
+    void closedBatchHelperIsRestartedOnNextLookup(@TempDir Path repo) throws Exception {
+        initRepoWithCommit(repo);
+        GitCommandRunner git = new GitCommandRunner(repo);
+
+        assertThat(git.resolve("develop")).isPresent();
+        git.close();
+
+        assertThat(git.resolve("develop")).isPresent();
+        assertThat(git.readObject("HEAD:Sample.java")).isPresent();
+        git.close();
+    }
+
+    @Test
+    void recordsAreStreamedSplitAtNul(@TempDir Path repo) throws Exception {
+        initRepoWithCommit(repo);
+        Files.writeString(repo.resolve("with space.java"), "class WithSpace {}\n", StandardCharsets.UTF_8);
+        Files.writeString(repo.resolve("line\nbreak.java"), "class LineBreak {}\n", StandardCharsets.UTF_8);
+        List<String> records = new ArrayList<>();
+
+        try (GitCommandRunner git = new GitCommandRunner(repo)) {
+            git.forEachRecord((record, length) -> records.add(new String(record, 0, length, StandardCharsets.UTF_8)),
+                    "ls-files", "-z", "--others");
+        }
+
+        assertThat(records).containsExactlyInAnyOrder("with space.java", "line\nbreak.java");
+    }
+
+    @Test
+    void largeStderrOfFailingCommandDoesNotBlock(@TempDir Path repo) throws Exception {
+        initRepoWithCommit(repo);
+
+        try (GitCommandRunner git = new GitCommandRunner(repo)) {
+            assertThatThrownBy(() -> assertTimeoutPreemptively(Duration.ofSeconds(20),
+                    () -> git.run("-c", "alias.noisy=!yes error | head -c 1000000 >&2; exit 3", "noisy")))
+                .isInstanceOf(GitCommandException.class)
+                .hasMessageContaining("exit code 3");
+        }
+    }
+
+    private void initRepoWithCommit(Path repo) throws Exception {
+        GitCommandRunner git = new GitCommandRunner(repo);
+        git.run("init");
+        git.run("config", "user.email", "test@example.invalid");
+        git.run("config", "user.name", "Test User");
+        git.run("checkout", "-b", "develop");
+        Files.writeString(repo.resolve("Sample.java"), "class Sample {}\n", StandardCharsets.UTF_8);
+        git.run("add", ".");
+        git.run("commit", "-m", "base");
+    }
+
+}
@@ -0,0 +1,50 @@
+package de.zorro909.codecheck.infra.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitIndexTest {
+
+    @Test
+    void splitIndexEntriesAreMergedInPathOrderLikeGit(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = new GitCommandRunner(repo);
+        git.run("init", "--quiet");
+        for (int i = 0; i < 20; i++) {
+            write(repo, "b/Type" + i + ".java", "class Type" + i + " {}\n");
+        }
+        write(repo, "d/Last.java", "class Last {}\n");
+        git.run("add", ".");
+        git.run("update-index", "--split-index");
+        write(repo, "a/First.java", "class First {}\n");
+        write(repo, "c/Middle.java", "class Middle {}\n");
+        write(repo, "d/Last.java", "class Last { int changed; }\n");
+        git.run("add", ".");
+
+        Path indexFile = repo.resolve(".git/index");
+        List<String> entries = GitIndex.read(indexFile)
+            .entries()
+            .stream()
+            .map(entry -> entry.objectId() + " " + entry.path())
+            .toList();
+
+        assertThat(entries).containsExactlyElementsOf(git.run("ls-files", "--stage")
+            .stream()
+            .map(line -> line.split(" ", 2)[1].replace(" 0\t", " "))
+            .toList());
+        assertThat(entries.getFirst()).endsWith("a/First.java");
+    }
+
+    private void write(Path repo, String relativePath, String content) throws Exception {
+        Path file = repo.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+}
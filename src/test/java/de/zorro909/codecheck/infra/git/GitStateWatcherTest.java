@@ -0,0 +1,75 @@
+package de.zorro909.codecheck.infra.git;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitStateWatcherTest {
+
+    @Test
+    void stagingAFileReportsAStateChange(@TempDir Path repo) throws Exception {
+        git(repo, "init");
+        Files.writeString(repo.resolve("Staged.java"), "class Staged {}\n");
+        CountDownLatch changed = new CountDownLatch(1);
+
+        try (AutoCloseable _ = new GitStateWatcher(repo).watch(changed::countDown, () -> {
+        })) {
+            git(repo, "add", "Staged.java");
+
+            assertThat(changed.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void switchingBranchesReportsAStateChange(@TempDir Path repo) throws Exception {
+        git(repo, "init");
+
+        CountDownLatch changed = new CountDownLatch(1);
+        try (AutoCloseable _ = new GitStateWatcher(repo).watch(changed::countDown, () -> {
+        })) {
+            git(repo, "checkout", "-b", "feature/watch");
+
+            assertThat(changed.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void refDirectoriesVanishingRightAfterCreationKeepTheWatch(@TempDir Path repo) throws Exception {
+        git(repo, "init");
+        CountDownLatch changed = new CountDownLatch(1);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        try (AutoCloseable _ = new GitStateWatcher(repo).watch(changed::countDown, failed::countDown)) {
+            for (int i = 0; i < 50; i++) {
+                Path directory = Files.createDirectories(repo.resolve(".git/refs/heads/transient/" + i));
+                Files.delete(directory);
+                Files.delete(directory.getParent());
+            }
+            git(repo, "checkout", "-b", "feature/watch");
+
+            assertThat(changed.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(failed.getCount()).isEqualTo(1);
+        }
+    }
+
+    private void git(Path repo, String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).directory(repo.toFile()).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new AssertionError("git " + String.join(" ", args) + " failed: " + output);
+        }
+    }
+
+}
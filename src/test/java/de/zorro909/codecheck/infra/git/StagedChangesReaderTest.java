@@ -0,0 +1,134 @@
+package de.zorro909.codecheck.infra.git;
+
+import de.zorro909.codecheck.core.changeset.GitFileStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StagedChangesReaderTest {
+
+    @Test
+    void unbornBranchReportsEveryStagedFileAsAdded(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = initRepo(repo);
+        write(repo, "src/First.java", "class First {}\n");
+        write(repo, "Second.java", "class Second {}\n");
+        git.run("add", ".");
+
+        assertThat(nativeChanges(repo)).containsExactly(
+                Map.entry("Second.java", StagedChangesReader.StagedChange.of(GitFileStatus.ADDED)),
+                Map.entry("src/First.java", StagedChangesReader.StagedChange.of(GitFileStatus.ADDED)));
+    }
+
+    @Test
+    void looseObjectsMatchGitDiffCached(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = initRepo(repo);
+        commitBase(repo, git);
+        stageChanges(repo, git);
+
+        assertThat(nativeChanges(repo)).isEqualTo(gitChanges(git)).isNotEmpty();
+    }
+
+    @Test
+    void packedObjectsAndIndexVersionFourMatchGitDiffCached(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = initRepo(repo);
+        commitBase(repo, git);
+        write(repo, "src/main/Keep.java", "class Keep { int second; }\n");
+        git.run("commit", "-am", "second");
+        git.run("gc", "--quiet");
+        git.run("update-index", "--index-version", "4");
+        stageChanges(repo, git);
+
+        assertThat(nativeChanges(repo)).isEqualTo(gitChanges(git)).isNotEmpty();
+    }
+
+    @Test
+    void splitIndexMatchesGitDiffCached(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = initRepo(repo);
+        commitBase(repo, git);
+        git.run("update-index", "--split-index");
+        stageChanges(repo, git);
+
+        assertThat(nativeChanges(repo)).isEqualTo(gitChanges(git)).isNotEmpty();
+    }
+
+    @Test
+    void renameSourceGoesToTheFirstCopyInPathOrderLikeGit(@TempDir Path repo) throws Exception {
+        GitCommandRunner git = initRepo(repo);
+        write(repo, "src/Original.java", "class Original { int copied; }\n");
+        git.run("add", ".");
+        git.run("commit", "-m", "base");
+        git.run("rm", "--quiet", "src/Original.java");
+        for (String copy : List.of("zeta", "alpha", "mid/inner", "beta", "omega", "gamma", "delta", "kappa")) {
+            write(repo, copy + "/Original.java", "class Original { int copied; }\n");
+        }
+        git.run("add", ".");
+
+        assertThat(nativeChanges(repo)).isEqualTo(gitChanges(git))
+            .containsEntry("alpha/Original.java",
+                    new StagedChangesReader.StagedChange(GitFileStatus.RENAMED, Optional.of("src/Original.java")));
+    }
+
+    private void commitBase(Path repo, GitCommandRunner git) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            write(repo, "src/main/pkg" + (i % 4) + "/Type" + i + ".java", "class Type" + i + " { int value; }\n");
+        }
+        write(repo, "src/main/Keep.java", "class Keep {}\n");
+        write(repo, "src/main/Removed.java", "class Removed {}\n");
+        write(repo, "src/main/Moved.java", "class Moved { String unique = \"moved\"; }\n");
+        write(repo, "script.sh", "echo\n");
+        git.run("add", ".");
+        git.run("commit", "-m", "base");
+    }
+
+    private void stageChanges(Path repo, GitCommandRunner git) throws Exception {
+        write(repo, "src/main/pkg1/Type5.java", "class Type5 { int changed; }\n");
+        write(repo, "src/main/Added.java", "class Added {}\n");
+        git.run("rm", "--quiet", "src/main/Removed.java");
+        git.run("mv", "src/main/Moved.java", "src/main/pkg0/Moved.java");
+        git.run("update-index", "--chmod=+x", "script.sh");
+        git.run("add", ".");
+        write(repo, "src/main/pkg2/Type6.java", "class Type6 { int unstagedOnly; }\n");
+    }
+
+    private Map<String, StagedChangesReader.StagedChange> nativeChanges(Path repo) {
+        GitRepository repository = GitRepository.discover(repo).orElseThrow();
+        return StagedChangesReader.read(repository, Map.of()).orElseThrow();
+    }
+
+    // Only exact renames are detected natively, hence -M100%.
+    private Map<String, StagedChangesReader.StagedChange> gitChanges(GitCommandRunner git) {
+        Map<String, StagedChangesReader.StagedChange> changes = new TreeMap<>();
+        for (String line : git.run("diff", "--cached", "--name-status", "-M100%")) {
+            String[] parts = line.split("\t");
+            changes.put(parts[parts.length - 1],
+                    new StagedChangesReader.StagedChange(PorcelainStatus.status(parts[0].charAt(0)),
+                            parts.length == 3 ? Optional.of(parts[1]) : Optional.empty()));
+        }
+        return changes;
+    }
+
+    private GitCommandRunner initRepo(Path repo) {
+        GitCommandRunner git = new GitCommandRunner(repo);
+        git.run("init", "--quiet");
+        git.run("config", "user.email", "test@example.invalid");
+        git.run("config", "user.name", "Test User");
+        git.run("checkout", "--quiet", "-b", "develop");
+        return git;
+    }
+
+    private void write(Path repo, String relativePath, String content) throws Exception {
+        Path file = repo.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+}
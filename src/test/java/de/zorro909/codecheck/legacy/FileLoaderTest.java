@@ -1,5 +1,6 @@
 package de.zorro909.codecheck.legacy;
 
+import de.zorro909.codecheck.core.validation.DependencyScope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -8,7 +9,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -26,7 +28,7 @@ class FileLoaderTest {
 
     @BeforeEach
     void setUp() {
-        fileLoader = new FileLoader(tempDir, Optional.empty());
+        fileLoader = new FileLoader(tempDir);
     }
 
     // --- getPath tests ---
@@ -154,13 +156,24 @@ class FileLoaderTest {
     // --- markFile tests ---
 
     @Test
-    void shouldNotThrowWhenMarkingFileWithNoDaemonServer() {
+    void shouldNotThrowWhenMarkingFileOutsideOfAValidation() {
         Path file = tempDir.resolve("test.java");
 
-        // Should not throw when DaemonServer is not present
+        // Should not throw when no validation records dependencies
         fileLoader.markFile(file);
     }
 
+    @Test
+    void shouldReportLoadedFilesToTheRecorderOfTheRunningValidation() {
+        List<Path> recorded = new ArrayList<>();
+
+        boolean exists = DependencyScope.recording(recorded::add, () -> fileLoader.fileExists("Other.java"));
+        fileLoader.getPath("Unrecorded.java");
+
+        assertThat(exists).isFalse();
+        assertThat(recorded).containsExactly(tempDir.resolve("Other.java"));
+    }
+
     // --- edge cases ---
 
     @Test
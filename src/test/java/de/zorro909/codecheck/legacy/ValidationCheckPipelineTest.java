@@ -187,7 +187,7 @@ class ValidationCheckPipelineTest {
     // --- checkFile tests ---
 
     @Test
-    void shouldResetCacheBeforeChecking(@TempDir Path tempDir) throws Exception {
+    void shouldNotResetCacheBeforeChecking(@TempDir Path tempDir) throws Exception {
         Path file = tempDir.resolve("Example.java");
         Files.writeString(file, "class Example {}");
 
@@ -213,7 +213,9 @@ class ValidationCheckPipelineTest {
 
         pipeline.checkFile(file).toList();
 
-        assertThat(cacheReset.get()).isTrue();
+        // Staleness is detected by the parse cache, so rules share one parse per content
+        // version instead of invalidating it before every check.
+        assertThat(cacheReset.get()).isFalse();
     }
 
     @Test
@@ -9,14 +9,15 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * Tests for GitStageAction — the post-action that stages modified files using git add in
- * batches.
+ * Tests for GitStageAction — the post-action that stages modified files with a single
+ * stdin-fed git invocation.
  */
 class GitStageActionTest {
 
@@ -77,7 +78,7 @@ class GitStageActionTest {
 
     @Test
     void perform_handlesBatchingWithManyFiles() throws Exception {
-        // Create more than 10 files to exercise the batching logic
+        // Create enough files that they used to be split across several git processes
         Set<Path> files = new LinkedHashSet<>();
         for (int i = 1; i <= 25; i++) {
             Path file = tempDir.resolve("BatchFile" + i + ".java");
@@ -103,13 +104,72 @@ class GitStageActionTest {
 
         Path fakeFile = nonExistentPath.resolve("Fake.java");
 
-        // With a non-existent directory, git add will fail.
-        // The batch size halving logic will eventually reach 1, then return false.
+        // With a non-existent directory, git cannot even be started.
         boolean result = badAction.perform(Set.of(fakeFile));
 
         assertThat(result).isFalse();
     }
 
+    @Test
+    void stage_reportsMissingPathAndStagesTheRest() throws Exception {
+        Path present = tempDir.resolve("Present.java");
+        Files.writeString(present, "public class Present {}");
+        Path missing = tempDir.resolve("Missing.java");
+
+        GitStageAction.StageResult result = action.stage(new LinkedHashSet<>(List.of(missing, present)));
+
+        assertThat(result.staged()).containsExactly(present);
+        assertThat(result.failures()).containsOnlyKeys(missing);
+        assertThat(result.failures().get(missing)).contains("Missing.java");
+        assertThat(getGitStatus()).contains("A  Present.java");
+    }
+
+    @Test
+    void stage_handlesPathsWithSpacesAndSubdirectories() throws Exception {
+        Path file = tempDir.resolve("src dir/With Space.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "public class WithSpace {}");
+
+        GitStageAction.StageResult result = action.stage(Set.of(file));
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(getGitStatus()).contains("A  \"src dir/With Space.java\"");
+    }
+
+    @Test
+    void stage_treatsGlobCharactersInFileNamesLiterally() throws Exception {
+        Path bracketed = tempDir.resolve("Foo[1].java");
+        Path lookalike = tempDir.resolve("Foo1.java");
+        Files.writeString(bracketed, "public class Foo {}");
+        Files.writeString(lookalike, "public class Foo1 {}");
+
+        GitStageAction.StageResult result = action.stage(Set.of(bracketed));
+
+        assertThat(result.failures()).isEmpty();
+        String status = getGitStatus();
+        assertThat(status).contains("A  Foo[1].java");
+        assertThat(status).contains("?? Foo1.java");
+    }
+
+    @Test
+    void performAfterFix_updatesIndexForModifiedAndDeletedFiles() throws Exception {
+        Path modified = tempDir.resolve("Modified.java");
+        Path deleted = tempDir.resolve("Deleted.java");
+        Files.writeString(modified, "public class Modified {}");
+        Files.writeString(deleted, "public class Deleted {}");
+        runGit("add", ".");
+        runGit("commit", "-m", "base");
+        Files.writeString(modified, "public class Modified { int fixed; }");
+        Files.delete(deleted);
+
+        boolean result = action.performAfterFix(Set.of(modified, deleted));
+
+        assertThat(result).isTrue();
+        String status = getGitStatus();
+        assertThat(status).contains("M  Modified.java");
+        assertThat(status).contains("D  Deleted.java");
+    }
+
     // --- constructor tests ---
 
     @Test
@@ -11,7 +11,6 @@ import org.junit.jupiter.api.io.TempDir;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -23,7 +22,7 @@ class JavaCheckerSharedParserTest {
         Files.writeString(file, "class Sample {}");
 
         try (ApplicationContext context = ApplicationContext.builder()
-            .singletons(new String[0], new FileLoader(Path.of(""), Optional.empty()))
+            .singletons(new String[0], new FileLoader(Path.of("")))
             .start()) {
             JavaParserService parserService = context.getBean(JavaParserService.class);
             ParseOutcome expected = parserService.parse(file);
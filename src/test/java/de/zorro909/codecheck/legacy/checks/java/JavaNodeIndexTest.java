@@ -0,0 +1,88 @@
+package de.zorro909.codecheck.legacy.checks.java;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.TextBlockLiteralExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithArguments;
+import de.zorro909.codecheck.core.diagnostic.ValidationError;
+import de.zorro909.codecheck.legacy.FileLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JavaNodeIndexTest {
+
+    private static final String SOURCE = """
+            package com.example;
+            class Outer {
+                void first() { run(1); new Object(); }
+                class Inner {
+                    void second() { run(2); }
+                }
+            }
+            """;
+
+    @BeforeEach
+    void clearRegistrations() {
+        JavaNodeIndex.clearRegistrations();
+    }
+
+    @Test
+    void indexIsBuiltOncePerCompilationUnit() {
+        CompilationUnit compilationUnit = StaticJavaParser.parse(SOURCE);
+
+        assertThat(JavaNodeIndex.of(compilationUnit)).isSameAs(JavaNodeIndex.of(compilationUnit));
+    }
+
+    @Test
+    void registeredTypesAreCollectedInDocumentOrder() {
+        JavaNodeIndex.register(List.of(MethodDeclaration.class, NodeWithArguments.class));
+        CompilationUnit compilationUnit = StaticJavaParser.parse(SOURCE);
+
+        JavaNodeIndex index = JavaNodeIndex.of(compilationUnit);
+
+        assertThat(index.nodes(MethodDeclaration.class)).extracting(MethodDeclaration::getNameAsString)
+            .containsExactly("first", "second");
+        assertThat(index.nodes(NodeWithArguments.class)).extracting(Object::toString)
+            .containsExactly("run(1)", "new Object()", "run(2)");
+    }
+
+    @Test
+    void checkersRegisterTheirNodeTypesWhenConstructed() {
+        new JavaChecker(new FileLoader(Path.of("")), null, Set.of(TextBlockLiteralExpr.class)) {
+            @Override
+            public boolean isJavaResponsible(Path path) {
+                return true;
+            }
+
+            @Override
+            public List<ValidationError> check(CompilationUnit javaUnit) {
+                return List.of();
+            }
+        };
+
+        assertThat(JavaNodeIndex.registered(TextBlockLiteralExpr.class)).isTrue();
+    }
+
+    @Test
+    void unregisteredTypesFallBackToSeparateLookup() {
+        JavaNodeIndex.register(List.of(MethodDeclaration.class));
+        CompilationUnit compilationUnit = StaticJavaParser.parse(SOURCE);
+
+        JavaNodeIndex index = JavaNodeIndex.of(compilationUnit);
+
+        assertThat(JavaNodeIndex.registered(TypeDeclaration.class)).isFalse();
+        assertThat(JavaNodeIndex.registered(MethodCallExpr.class)).isFalse();
+        assertThat(index.nodes(TypeDeclaration.class)).hasSize(2);
+        assertThat(index.nodes(MethodCallExpr.class)).extracting(Object::toString).containsExactly("run(1)", "run(2)");
+    }
+
+}
@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,7 +31,7 @@ class NoMagicValuesCheckTest {
 
     @BeforeEach
     void setUp() {
-        FileLoader fileLoader = new FileLoader(tempDir, Optional.empty());
+        FileLoader fileLoader = new FileLoader(tempDir);
         check = new NoMagicValuesCheck(fileLoader);
     }
 
@@ -199,6 +198,20 @@ class NoMagicValuesCheckTest {
         assertThat(errors).isEmpty();
     }
 
+    @Test
+    void check_doesNotReportUnresolvedSymbolsItNeverResolves() throws IOException {
+        String source = """
+                package com.example;
+                public class MyClass {
+                    private MissingType missing;
+                }
+                """;
+
+        List<ValidationError> errors = parseAndCheck(source, "com/example", "MyClass.java");
+
+        assertThat(errors).isEmpty();
+    }
+
     // --- helper ---
 
     private List<ValidationError> parseAndCheck(String source, String packageDir, String fileName) throws IOException {
@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,7 +31,7 @@ class JavaDocCheckTest {
 
     @BeforeEach
     void setUp() {
-        FileLoader fileLoader = new FileLoader(tempDir, Optional.empty());
+        FileLoader fileLoader = new FileLoader(tempDir);
         check = new JavaDocCheck(fileLoader);
     }
 
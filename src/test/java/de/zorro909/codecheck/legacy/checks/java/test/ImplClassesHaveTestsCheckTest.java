@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,7 +33,7 @@ class ImplClassesHaveTestsCheckTest {
 
     @BeforeEach
     void setUp() {
-        fileLoader = new FileLoader(tempDir, Optional.empty());
+        fileLoader = new FileLoader(tempDir);
         check = new ImplClassesHaveTestsCheck(fileLoader);
     }
 